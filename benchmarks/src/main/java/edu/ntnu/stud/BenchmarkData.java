@@ -0,0 +1,86 @@
+package edu.ntnu.stud;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Class that creates timetable data for the benchmarks.
+ *
+ *<p>The data is the same on every run: train numbers 1 to size, departure times spread
+ * over the day from 01:00, {@link #LINES} lines, {@link #TRACKS} tracks and
+ * the destinations in {@link #DESTINATIONS}. Every tenth departure is delayed.
+ */
+final class BenchmarkData {
+  static final int LINES = 100;
+  static final int TRACKS = 20;
+  static final String[] DESTINATIONS = {"Oslo", "Bergen", "Trondheim", "Stavanger", "Bodø",
+      "Kristiansand", "Drammen", "Hamar", "Lillehammer", "Gjøvik", "Halden", "Moss",
+      "Skien", "Arendal", "Myrdal", "Voss", "Åndalsnes", "Røros", "Narvik", "Steinkjer"};
+
+  private BenchmarkData() {
+  }
+
+  static LocalTime departureTime(int trainNumber) {
+    int minute = 60 + trainNumber % (23 * 60);
+    return LocalTime.of(minute / 60, minute % 60);
+  }
+
+  static String line(int trainNumber) {
+    return "L" + trainNumber % LINES;
+  }
+
+  static String destination(int trainNumber) {
+    return DESTINATIONS[trainNumber % DESTINATIONS.length];
+  }
+
+  static int track(int trainNumber) {
+    return 1 + trainNumber % TRACKS;
+  }
+
+  static LocalTime delay(int trainNumber) {
+    return trainNumber % 10 == 0 ? LocalTime.of(0, 5) : LocalTime.of(0, 0);
+  }
+
+  static TrainDeparture departure(int trainNumber) {
+    return new TrainDeparture(departureTime(trainNumber), line(trainNumber),
+        destination(trainNumber), trainNumber, track(trainNumber), delay(trainNumber));
+  }
+
+  static Stream<TrainDeparture> departures(int size) {
+    return IntStream.rangeClosed(1, size).mapToObj(BenchmarkData::departure);
+  }
+
+  static TrainRegistry registry(int size) {
+    TrainRegistry trainRegistry = new TrainRegistry();
+    trainRegistry.loadDepartures(departures(size));
+    return trainRegistry;
+  }
+
+  /**
+   * Writes a timetable file in the format of TrainDepartureData.txt.
+   *
+   * @param size the number of departures in the file.
+   * @return the path of a temporary file, deleted when the JVM exits.
+   * @throws IOException if the file cannot be written.
+   */
+  static Path timetableFile(int size) throws IOException {
+    Path file = Files.createTempFile("timetable", ".txt");
+    file.toFile().deleteOnExit();
+    try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+      writer.write("DepartureTime (HH:mm), Line, Destination, TrainNumber, Track, Delay(HH:mm)");
+      writer.newLine();
+      for (int trainNumber = 1; trainNumber <= size; trainNumber++) {
+        writer.write(departureTime(trainNumber) + ", " + line(trainNumber) + ", "
+            + destination(trainNumber) + ", " + trainNumber + ", " + track(trainNumber) + ", "
+            + delay(trainNumber));
+        writer.newLine();
+      }
+    }
+    return file;
+  }
+}
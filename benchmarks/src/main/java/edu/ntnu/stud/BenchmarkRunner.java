@@ -0,0 +1,37 @@
+package edu.ntnu.stud;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class of the benchmark jar.
+ *
+ *<p>Runs the benchmarks with the normal JMH command line options,
+ * and always adds the GC profiler, so every result also reports the allocation rate
+ * ({@code gc.alloc.rate.norm} is bytes allocated per operation).
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args JMH command line options, for example a benchmark name pattern
+   *             or {@code -p size=1000}.
+   * @throws CommandLineOptionException if the options are invalid.
+   * @throws RunnerException if a benchmark fails.
+   */
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    new Runner(new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
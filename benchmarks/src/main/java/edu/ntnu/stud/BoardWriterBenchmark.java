@@ -0,0 +1,62 @@
+package edu.ntnu.stud;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for printing a whole board to a stream set up like {@link System#out},
+ * with one {@code println} for each row compared to {@link BoardWriter}.
+ *
+ *<p>The stream discards the bytes, so the result is the cost of rendering, encoding,
+ * locking and flushing the stream, without the cost of the terminal or file behind it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoardWriterBenchmark {
+
+  @Param({"1000", "100000"})
+  private int size;
+
+  private List<TrainDeparture> departures;
+  private PrintStream out;
+  private BoardWriter boardWriter;
+
+  @Setup
+  public void setUp() {
+    departures = BenchmarkData.registry(size).getTrainDepartures();
+    out = new PrintStream(new BufferedOutputStream(OutputStream.nullOutputStream(), 8192), true);
+    boardWriter = new BoardWriter(TrainDepartureUserInterface.TABLE_LINE);
+  }
+
+  @Benchmark
+  public void printlnPerRow() {
+    for (TrainDeparture trainDeparture : departures) {
+      out.println(trainDeparture + TrainDepartureUserInterface.TABLE_LINE);
+    }
+  }
+
+  @Benchmark
+  public void boardWriter() throws IOException {
+    boardWriter.write(departures, out);
+    out.flush();
+  }
+}
@@ -0,0 +1,41 @@
+package edu.ntnu.stud;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for parsing one row of timetable data, as a string with
+ * {@link TrainRegistry#parseDeparture(String)} and as bytes with a reused
+ * {@link DepartureParser}, the way {@link ParallelTimetableLoader} parses a chunk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DepartureParserBenchmark {
+
+  private final String row = "13:45, L12, Trondheim S, 1234, 3, 00:05";
+  private final byte[] rowBytes = row.getBytes(StandardCharsets.UTF_8);
+  private final DepartureParser parser = new DepartureParser();
+
+  @Benchmark
+  public TrainDeparture parseString() {
+    return TrainRegistry.parseDeparture(row);
+  }
+
+  @Benchmark
+  public TrainDeparture parseBytes() {
+    return parser.parse(rowBytes, 0, rowBytes.length);
+  }
+}
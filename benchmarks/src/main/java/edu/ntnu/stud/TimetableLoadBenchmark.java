@@ -0,0 +1,57 @@
+package edu.ntnu.stud;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for loading a timetable file into an empty {@link TrainRegistry}.
+ *
+ *<p>{@link TrainRegistry#fillTrainDepartureListFromFile()} always reads the file in
+ * src/main/resources, so the benchmark calls {@link TrainRegistry#loadDepartures(Path)},
+ * which it delegates to, with a generated file of the given size.
+ * {@link TrainRegistry#loadDeparturesParallel(Path)} loads the same file on all cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TimetableLoadBenchmark {
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  private int size;
+
+  private Path timetableFile;
+
+  @Setup
+  public void setUp() throws IOException {
+    timetableFile = BenchmarkData.timetableFile(size);
+  }
+
+  @Benchmark
+  public TrainRegistry fillTrainDepartureListFromFile() throws IOException {
+    TrainRegistry trainRegistry = new TrainRegistry();
+    trainRegistry.loadDepartures(timetableFile);
+    return trainRegistry;
+  }
+
+  @Benchmark
+  public TrainRegistry loadDeparturesParallel() throws IOException {
+    TrainRegistry trainRegistry = new TrainRegistry();
+    trainRegistry.loadDeparturesParallel(timetableFile);
+    return trainRegistry;
+  }
+}
@@ -0,0 +1,47 @@
+package edu.ntnu.stud;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for planning the tracks of a whole day with {@link TrackAllocator},
+ * without applying the plan, so every call plans the same departures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackAllocatorBenchmark {
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  private int size;
+
+  private List<TrainDeparture> departures;
+  private TrackAllocator trackAllocator;
+
+  @Setup
+  public void setUp() {
+    TrainRegistry trainRegistry = BenchmarkData.registry(size);
+    departures = trainRegistry.getTrainDepartures();
+    trackAllocator = new TrackAllocator(trainRegistry, Duration.ofMinutes(3), 20);
+  }
+
+  @Benchmark
+  public int[] planTracks() {
+    return trackAllocator.plan(departures);
+  }
+}
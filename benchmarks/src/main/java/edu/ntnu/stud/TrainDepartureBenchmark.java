@@ -0,0 +1,58 @@
+package edu.ntnu.stud;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for {@link TrainDeparture#toString()}, which returns the cached row of the board,
+ * and for {@link TrainDeparture#appendRow(StringBuilder)}, which renders the row again
+ * into a reused builder.
+ *
+ *<p>The rows are taken from a registry of the given size, cycling through all of them,
+ * so the result also shows how rendering is affected by the data not fitting in cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainDepartureBenchmark {
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  private int size;
+
+  private TrainDeparture[] departures;
+  private int next;
+  private final StringBuilder row = new StringBuilder(128);
+
+  @Setup
+  public void setUp() {
+    departures = BenchmarkData.departures(size).toArray(TrainDeparture[]::new);
+    next = 0;
+  }
+
+  @Benchmark
+  public String departureToString() {
+    next = next == departures.length - 1 ? 0 : next + 1;
+    return departures[next].toString();
+  }
+
+  @Benchmark
+  public int renderRow() {
+    next = next == departures.length - 1 ? 0 : next + 1;
+    row.setLength(0);
+    departures[next].appendRow(row);
+    return row.length();
+  }
+}
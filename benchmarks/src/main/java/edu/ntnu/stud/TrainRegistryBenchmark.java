@@ -0,0 +1,105 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for single operations on a {@link TrainRegistry} of a given size.
+ *
+ *<p>Each benchmark looks up a different train number on every call,
+ * cycling through all departures in the registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainRegistryBenchmark {
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  private int size;
+
+  private TrainRegistry trainRegistry;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    trainRegistry = BenchmarkData.registry(size);
+    // Before every departure, so removeDeparted measures the cost of finding nothing to remove
+    trainRegistry.setCurrentTime(LocalTime.of(0, 30));
+    next = 0;
+  }
+
+  private int nextTrainNumber() {
+    next = next == size ? 1 : next + 1;
+    return next;
+  }
+
+  /**
+   * Replaces an existing departure, so the registry keeps its size between calls.
+   */
+  @Benchmark
+  public void addDeparture() {
+    int trainNumber = nextTrainNumber();
+    trainRegistry.addDeparture(BenchmarkData.departureTime(trainNumber),
+        BenchmarkData.line(trainNumber), BenchmarkData.destination(trainNumber), trainNumber,
+        BenchmarkData.track(trainNumber), BenchmarkData.delay(trainNumber));
+  }
+
+  @Benchmark
+  public TrainDeparture departureFromNumber() {
+    return trainRegistry.departureFromNumber(nextTrainNumber());
+  }
+
+  @Benchmark
+  public List<TrainDeparture> departureFromDestination() {
+    return trainRegistry.departureFromDestination(
+        BenchmarkData.destination(nextTrainNumber()));
+  }
+
+  @Benchmark
+  public boolean checkDepartureTimeExistsTrack() {
+    int trainNumber = nextTrainNumber();
+    return trainRegistry.checkDepartureTimeExistsTrack(BenchmarkData.track(trainNumber),
+        BenchmarkData.departureTime(trainNumber));
+  }
+
+  @Benchmark
+  public boolean checkDepartureTimeExistsLine() {
+    int trainNumber = nextTrainNumber();
+    return trainRegistry.checkDepartureTimeExistsLine(BenchmarkData.line(trainNumber),
+        BenchmarkData.departureTime(trainNumber));
+  }
+
+  /**
+   * The next 10 departures after the departure time of a train, as on a platform screen.
+   */
+  @Benchmark
+  public List<TrainDeparture> nextDepartures() {
+    return trainRegistry.nextDepartures(BenchmarkData.departureTime(nextTrainNumber()), 10);
+  }
+
+  @Benchmark
+  public List<TrainDeparture> nextDeparturesWithDelay() {
+    return trainRegistry.nextDeparturesWithDelay(
+        BenchmarkData.departureTime(nextTrainNumber()), 10);
+  }
+
+  @Benchmark
+  public void removeDeparted() {
+    trainRegistry.removeDeparted();
+  }
+}
@@ -0,0 +1,121 @@
+package edu.ntnu.stud;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Class that follows the changes of a {@link TrainRegistry} for one display, and renders
+ * only the rows that changed since the display was last refreshed.
+ *
+ *<p>A BoardDiff is added to the registry with {@link TrainRegistry#subscribe(Consumer)},
+ * and every refresh of the display calls {@link #render()}. Each line of the result,
+ * which ends with a line break like the rows of the board, is
+ * <ul>
+ *     <li>{@code + <train number> <row>} when the departure was added or changed,
+ *     and the display should add the row or replace its row for the train number, or</li>
+ *     <li>{@code - <train number> <row>} when the departure departed or was cancelled,
+ *     and the display should remove its row for the train number.</li>
+ * </ul>
+ * Only the latest change of each departure is rendered, so a departure that was delayed
+ * ten times between two refreshes is sent once. The first render, and the first render
+ * after a bulk load, renders every row of the latest {@link TrainRegistry#snapshot()} with
+ * a {@code +}, after a line with {@code =} telling the display to clear the board.
+ *
+ *<p>Events are received on the thread that changes the registry, and {@link #render()} is
+ * called by the display, so both are synchronized on the BoardDiff.
+ *
+ * @see DepartureEvent
+ */
+public class BoardDiff implements Consumer<DepartureEvent> {
+  private final TrainRegistry trainRegistry;
+  private final LinkedHashMap<Integer, DepartureEvent> changes = new LinkedHashMap<>();
+  private final StringBuilder diff = new StringBuilder(1 << 10);
+  private boolean resync = true;
+  private long receivedSequence = 0;
+  private long renderedSequence = 0;
+
+  /**
+   * Creates a BoardDiff for a registry. The BoardDiff must be added to the registry with
+   * {@link TrainRegistry#subscribe(Consumer)} to receive its changes.
+   *
+   *<p>Snapshots of the registry are turned on here, so that {@link #render()} never has to
+   * wait for the lock of the registry while holding the lock of the BoardDiff.
+   *
+   * @param trainRegistry the registry, used to render the whole board.
+   */
+  public BoardDiff(TrainRegistry trainRegistry) {
+    this.trainRegistry = trainRegistry;
+    trainRegistry.snapshot();
+  }
+
+  /**
+   * Method that records a change. The change replaces any earlier change of the same
+   * departure that has not been rendered yet.
+   *
+   * @param event the change.
+   */
+  @Override
+  public synchronized void accept(DepartureEvent event) {
+    receivedSequence = event.sequence();
+    if (event.type() == DepartureEvent.Type.RELOADED) {
+      changes.clear();
+      resync = true;
+    } else if (!resync) {
+      int trainNumber = event.departure().getTrainNumber();
+      changes.remove(trainNumber);
+      changes.put(trainNumber, event);
+    }
+  }
+
+  /**
+   * Method that renders the rows that changed since the last render, in the order
+   * of their latest change.
+   *
+   *<p>The returned text is the internal buffer of the BoardDiff, so it is only valid
+   * until the next call to this method.
+   *
+   * @return the changed rows, or an empty text if nothing changed.
+   */
+  public synchronized CharSequence render() {
+    diff.setLength(0);
+    if (resync) {
+      diff.append('=').append('\n');
+      List<TrainDeparture> departures = trainRegistry.snapshot().getTrainDepartures();
+      for (TrainDeparture trainDeparture : departures) {
+        appendLine('+', trainDeparture);
+      }
+      resync = false;
+    } else {
+      for (DepartureEvent event : changes.values()) {
+        appendLine(event.isRemoval() ? '-' : '+', event.departure());
+      }
+    }
+    changes.clear();
+    renderedSequence = receivedSequence;
+    return diff;
+  }
+
+  /**
+   * Method that returns the sequence number of the last change included in a render.
+   *
+   * @return the sequence number, or 0 if no change has been rendered.
+   */
+  public synchronized long getRenderedSequence() {
+    return renderedSequence;
+  }
+
+  /**
+   * Method that returns the number of departures that changed since the last render.
+   *
+   * @return the number of changed departures.
+   */
+  public synchronized int pendingChanges() {
+    return changes.size();
+  }
+
+  private void appendLine(char marker, TrainDeparture trainDeparture) {
+    diff.append(marker).append(' ').append(trainDeparture.getTrainNumber()).append(' ')
+        .append(trainDeparture.toString());
+  }
+}
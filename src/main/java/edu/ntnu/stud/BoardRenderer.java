@@ -0,0 +1,60 @@
+package edu.ntnu.stud;
+
+import java.util.List;
+
+/**
+ * Class that renders the rows of the departure board.
+ *
+ *<p>Each row is the cached {@link TrainDeparture#toString()} of a departure, followed by
+ * the row separator, and the rows are separated by line breaks. The rows are written to
+ * one {@link StringBuilder} that is reused for every refresh, so rendering a board where
+ * no departure has changed does not create any new strings.
+ *
+ * @see BoardWriter
+ */
+public class BoardRenderer {
+  private final String rowSeparator;
+  private final StringBuilder board = new StringBuilder(1 << 12);
+
+  /**
+   * Creates a renderer that ends every row with the given separator.
+   *
+   * @param rowSeparator the text written after each row, such as a table line.
+   */
+  public BoardRenderer(String rowSeparator) {
+    this.rowSeparator = rowSeparator;
+  }
+
+  /**
+   * Method that renders a list of departures.
+   *
+   *<p>The returned text is the internal buffer of the renderer, so it is only valid
+   * until the next call to this method.
+   *
+   * @param departures the departures to be rendered, in board order.
+   * @return the rendered rows.
+   */
+  public CharSequence render(List<TrainDeparture> departures) {
+    return render(departures, 0, departures.size());
+  }
+
+  /**
+   * Method that renders the departures from one index of a list up to another.
+   * The returned builder is the internal buffer of the renderer.
+   *
+   * @param departures the departures, in board order.
+   * @param from the index of the first departure to render.
+   * @param to the index after the last departure to render.
+   * @return the rendered rows.
+   */
+  StringBuilder render(List<TrainDeparture> departures, int from, int to) {
+    board.setLength(0);
+    for (int i = from; i < to; i++) {
+      if (i > from) {
+        board.append('\n');
+      }
+      board.append(departures.get(i).toString()).append(rowSeparator);
+    }
+    return board;
+  }
+}
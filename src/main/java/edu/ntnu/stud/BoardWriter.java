@@ -0,0 +1,258 @@
+package edu.ntnu.stud;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Class that writes the rows of the departure board to a {@link Writer},
+ * an {@link OutputStream} or a {@link WritableByteChannel}, one page at a time.
+ *
+ *<p>A page is up to {@link #getPageSize()} rows, rendered with a {@link BoardRenderer},
+ * and every row is followed by a line break. Each page is written with one call to the
+ * output, from a buffer that is reused for every page:
+ * <ul>
+ *     <li>A {@link Writer} gets the characters of the page.</li>
+ *     <li>A {@link PrintStream}, such as {@link System#out}, gets the characters of the page
+ *     and encodes them with its own charset, like {@link PrintStream#println(String)}.</li>
+ *     <li>Any other {@link OutputStream}, or a {@link WritableByteChannel}, gets the page
+ *     encoded with the charset of the BoardWriter.</li>
+ * </ul>
+ * A board of any size is therefore written with one call for every page, and without
+ * holding more than one page in memory. A display that shows one page at a time can use
+ * {@link #pageCount(List)} and the {@code writePage} methods instead of {@code write}.
+ *
+ *<p>A BoardWriter is not thread-safe, since the buffers are shared by all its calls.
+ *
+ * @see TrainDepartureUserInterface#printDepartureOverview()
+ */
+public class BoardWriter {
+  static final int DEFAULT_PAGE_SIZE = 1024;
+
+  private final BoardRenderer boardRenderer;
+  private final int pageSize;
+  private final CharsetEncoder encoder;
+  private char[] chars = new char[1 << 16];
+  private ByteBuffer bytes = ByteBuffer.allocate(1 << 16);
+
+  /**
+   * Creates a writer with pages of {@value #DEFAULT_PAGE_SIZE} rows,
+   * that encodes with the default charset when writing to a stream that is not a
+   * {@link PrintStream}, or to a channel.
+   *
+   * @param rowSeparator the text written after each row, such as a table line.
+   */
+  public BoardWriter(String rowSeparator) {
+    this(rowSeparator, DEFAULT_PAGE_SIZE, Charset.defaultCharset());
+  }
+
+  /**
+   * Creates a writer.
+   *
+   * @param rowSeparator the text written after each row, such as a table line.
+   * @param pageSize the highest number of rows in a page.
+   * @param charset the charset used to encode the rows for streams and channels.
+   *                Characters the charset cannot encode are replaced.
+   * @throws IllegalArgumentException if the page size is less than 1.
+   */
+  public BoardWriter(String rowSeparator, int pageSize, Charset charset) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size cannot be less than 1");
+    }
+    this.boardRenderer = new BoardRenderer(rowSeparator);
+    this.pageSize = pageSize;
+    this.encoder = charset.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  /**
+   * Method that returns the highest number of rows in a page.
+   *
+   * @return the page size.
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Method that returns the number of pages needed for a list of departures.
+   *
+   * @param departures the departures.
+   * @return the number of pages, 0 if the list is empty.
+   */
+  public int pageCount(List<TrainDeparture> departures) {
+    return (departures.size() + pageSize - 1) / pageSize;
+  }
+
+  /**
+   * Method that writes every row of a list of departures to a writer.
+   * The writer is not flushed.
+   *
+   * @param departures the departures, in board order.
+   * @param out the writer.
+   * @throws IOException if the writer fails.
+   */
+  public void write(List<TrainDeparture> departures, Writer out) throws IOException {
+    for (int page = 0; page < pageCount(departures); page++) {
+      writePage(departures, page, out);
+    }
+  }
+
+  /**
+   * Method that writes every row of a list of departures to a stream.
+   * The stream is not flushed.
+   *
+   * @param departures the departures, in board order.
+   * @param out the stream.
+   * @throws IOException if the stream fails.
+   */
+  public void write(List<TrainDeparture> departures, OutputStream out) throws IOException {
+    for (int page = 0; page < pageCount(departures); page++) {
+      writePage(departures, page, out);
+    }
+  }
+
+  /**
+   * Method that writes every row of a list of departures to a print stream, which encodes
+   * them with its own charset. The stream is not flushed, unless it flushes automatically.
+   *
+   * @param departures the departures, in board order.
+   * @param out the stream.
+   */
+  public void write(List<TrainDeparture> departures, PrintStream out) {
+    for (int page = 0; page < pageCount(departures); page++) {
+      writePage(departures, page, out);
+    }
+  }
+
+  /**
+   * Method that writes every row of a list of departures to a channel.
+   *
+   * @param departures the departures, in board order.
+   * @param out the channel.
+   * @throws IOException if the channel fails.
+   */
+  public void write(List<TrainDeparture> departures, WritableByteChannel out)
+      throws IOException {
+    for (int page = 0; page < pageCount(departures); page++) {
+      writePage(departures, page, out);
+    }
+  }
+
+  /**
+   * Method that writes one page of a list of departures to a writer.
+   *
+   * @param departures the departures, in board order.
+   * @param page the number of the page, from 0.
+   * @param out the writer.
+   * @return the number of rows written.
+   * @throws IOException if the writer fails.
+   * @throws IndexOutOfBoundsException if the page is not between 0 and the page count.
+   */
+  public int writePage(List<TrainDeparture> departures, int page, Writer out)
+      throws IOException {
+    int rows = rowsOf(departures, page);
+    out.write(chars, 0, renderPage(departures, page, rows));
+    return rows;
+  }
+
+  /**
+   * Method that writes one page of a list of departures to a stream.
+   *
+   * @param departures the departures, in board order.
+   * @param page the number of the page, from 0.
+   * @param out the stream.
+   * @return the number of rows written.
+   * @throws IOException if the stream fails.
+   * @throws IndexOutOfBoundsException if the page is not between 0 and the page count.
+   */
+  public int writePage(List<TrainDeparture> departures, int page, OutputStream out)
+      throws IOException {
+    int rows = rowsOf(departures, page);
+    ByteBuffer encoded = encode(renderPage(departures, page, rows));
+    out.write(encoded.array(), 0, encoded.limit());
+    return rows;
+  }
+
+  /**
+   * Method that writes one page of a list of departures to a print stream,
+   * which encodes it with its own charset.
+   *
+   * @param departures the departures, in board order.
+   * @param page the number of the page, from 0.
+   * @param out the stream.
+   * @return the number of rows written.
+   * @throws IndexOutOfBoundsException if the page is not between 0 and the page count.
+   */
+  public int writePage(List<TrainDeparture> departures, int page, PrintStream out) {
+    int rows = rowsOf(departures, page);
+    out.append(CharBuffer.wrap(chars, 0, renderPage(departures, page, rows)));
+    return rows;
+  }
+
+  /**
+   * Method that writes one page of a list of departures to a channel.
+   *
+   * @param departures the departures, in board order.
+   * @param page the number of the page, from 0.
+   * @param out the channel.
+   * @return the number of rows written.
+   * @throws IOException if the channel fails.
+   * @throws IndexOutOfBoundsException if the page is not between 0 and the page count.
+   */
+  public int writePage(List<TrainDeparture> departures, int page, WritableByteChannel out)
+      throws IOException {
+    int rows = rowsOf(departures, page);
+    ByteBuffer encoded = encode(renderPage(departures, page, rows));
+    while (encoded.hasRemaining()) {
+      out.write(encoded);
+    }
+    return rows;
+  }
+
+  private int rowsOf(List<TrainDeparture> departures, int page) {
+    Objects.checkIndex(page, pageCount(departures));
+    return Math.min(pageSize, departures.size() - page * pageSize);
+  }
+
+  private int renderPage(List<TrainDeparture> departures, int page, int rows) {
+    int from = page * pageSize;
+    StringBuilder rendered = boardRenderer.render(departures, from, from + rows).append('\n');
+    int length = rendered.length();
+    if (chars.length < length) {
+      chars = new char[Math.max(length, chars.length * 2)];
+    }
+    rendered.getChars(0, length, chars, 0);
+    return length;
+  }
+
+  private ByteBuffer encode(int length) throws CharacterCodingException {
+    int maxBytes = (int) Math.ceil(length * (double) encoder.maxBytesPerChar());
+    if (bytes.capacity() < maxBytes) {
+      bytes = ByteBuffer.allocate(Math.max(maxBytes, bytes.capacity() * 2));
+    }
+    bytes.clear();
+    encoder.reset();
+    CoderResult result = encoder.encode(CharBuffer.wrap(chars, 0, length), bytes, true);
+    if (!result.isUnderflow()) {
+      result.throwException();
+    }
+    result = encoder.flush(bytes);
+    if (!result.isUnderflow()) {
+      result.throwException();
+    }
+    return bytes.flip();
+  }
+}
@@ -0,0 +1,180 @@
+package edu.ntnu.stud;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Class that runs a script of commands against a {@link TrainRegistry}, without prompts.
+ *
+ *<p>Each command is one line of text, with the fields separated by commas:
+ * <ul>
+ *     <li>{@code ADD,}, {@code DELAY,}, {@code TRACK,} and {@code CANCEL,} change the
+ *     registry, in the same format as {@link UpdateIngester}.</li>
+ *     <li>{@code CLOCK,HH:mm} sets the current time and removes the departed trains,
+ *     like {@link TrainDepartureUserInterface#updateCurrentTime()}.
+ *     The time cannot be before the current time.</li>
+ *     <li>{@code PRINT} writes the departure board, like
+ *     {@link TrainDepartureUserInterface#printDepartureOverview()}.</li>
+ * </ul>
+ * Blank lines and lines starting with {@code #} are ignored. A command that fails
+ * writes {@code Line <number>: <reason>} to the output, and the script continues.
+ * The failures are always written in line order, before the output of any later command.
+ *
+ *<p>The changes between two {@code CLOCK} or {@code PRINT} commands are applied together,
+ * up to {@link #MAX_BATCH_SIZE} at a time, with
+ * {@link TrainRegistry#applyBatch(DepartureBatch)}, while holding the lock of the registry.
+ * The output is buffered and only flushed at the end of the script,
+ * so a day of operations can be replayed in seconds.
+ *
+ * @see TrainDispatchApp
+ */
+public class CommandScript {
+  static final int MAX_BATCH_SIZE = 4096;
+  private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
+
+  /**
+   * The outcome of a script.
+   *
+   * @param commands the number of commands that were run.
+   * @param failed the number of commands that failed.
+   */
+  public record Summary(long commands, long failed) {
+  }
+
+  /**
+   * A command that failed, waiting to be written in line order.
+   */
+  private record Failure(long lineNumber, String message) {
+  }
+
+  private final TrainRegistry trainRegistry;
+  private final BoardWriter boardWriter = new BoardWriter(TrainDepartureUserInterface.TABLE_LINE);
+  private DepartureBatch batch = new DepartureBatch();
+  private final long[] batchLines = new long[MAX_BATCH_SIZE];
+  private final List<Failure> pendingFailures = new ArrayList<>();
+  private long failed = 0;
+
+  /**
+   * Creates a script runner for a registry.
+   *
+   * @param trainRegistry the registry the commands are run against.
+   */
+  public CommandScript(TrainRegistry trainRegistry) {
+    this.trainRegistry = trainRegistry;
+  }
+
+  /**
+   * Method that runs every command of a script. The reader is not closed,
+   * and the output is flushed but not closed.
+   *
+   * @param script the commands, one per line.
+   * @param output receives the boards and the failed commands.
+   * @return the number of commands and failed commands.
+   * @throws IOException if the script cannot be read or the output cannot be written.
+   */
+  public Summary run(Reader script, Writer output) throws IOException {
+    BufferedReader reader = script instanceof BufferedReader buffered
+        ? buffered : new BufferedReader(script, 1 << 16);
+    Writer out = output instanceof BufferedWriter ? output : new BufferedWriter(output, 1 << 16);
+    long commands = 0;
+    failed = 0;
+    long lineNumber = 0;
+    String line = reader.readLine();
+    while (line != null) {
+      lineNumber++;
+      String command = line.trim();
+      if (!command.isEmpty() && !command.startsWith("#")) {
+        commands++;
+        run(command, lineNumber, out);
+      }
+      line = reader.readLine();
+    }
+    applyBatch(out);
+    out.flush();
+    return new Summary(commands, failed);
+  }
+
+  private void run(String command, long lineNumber, Writer out) throws IOException {
+    int comma = command.indexOf(',');
+    String type = (comma < 0 ? command : command.substring(0, comma)).trim();
+    if (type.equalsIgnoreCase("PRINT")) {
+      applyBatch(out);
+      printBoard(out);
+    } else if (type.equalsIgnoreCase("CLOCK")) {
+      applyBatch(out);
+      try {
+        setClock(LocalTime.parse(command.substring(comma + 1).trim(), formatter));
+      } catch (DateTimeParseException | IllegalArgumentException e) {
+        fail(out, lineNumber, comma < 0 ? "Clock has no time" : e.getMessage());
+      }
+    } else {
+      try {
+        batchLines[batch.size()] = lineNumber;
+        batch.add(UpdateIngester.parseUpdate(command));
+      } catch (IllegalArgumentException e) {
+        pendingFailures.add(new Failure(lineNumber, e.getMessage()));
+      }
+      if (batch.size() == MAX_BATCH_SIZE || pendingFailures.size() == MAX_BATCH_SIZE) {
+        applyBatch(out);
+      }
+    }
+  }
+
+  private void setClock(LocalTime time) {
+    synchronized (trainRegistry) {
+      LocalTime currentTime = trainRegistry.getCurrentTime();
+      if (currentTime != null && time.isBefore(currentTime)) {
+        throw new IllegalArgumentException("Cannot set time before current time");
+      }
+      trainRegistry.setCurrentTime(time);
+      trainRegistry.removeDeparted();
+    }
+  }
+
+  private void printBoard(Writer out) throws IOException {
+    synchronized (trainRegistry) {
+      if (trainRegistry.getCurrentTime() != null) {
+        trainRegistry.removeDeparted();
+      }
+      out.write(TrainDepartureUserInterface.tableHeader(trainRegistry.getCurrentTime()));
+      out.write('\n');
+      boardWriter.write(trainRegistry.getTrainDepartures(), out);
+    }
+  }
+
+  /**
+   * Method that applies the waiting changes, and writes the commands that failed since the
+   * last call, both when parsing and when applying, sorted by line number.
+   */
+  private void applyBatch(Writer out) throws IOException {
+    if (batch.size() > 0) {
+      DepartureBatch.Result result;
+      synchronized (trainRegistry) {
+        result = trainRegistry.applyBatch(batch);
+      }
+      for (DepartureBatch.Failure failure : result.failures()) {
+        pendingFailures.add(new Failure(batchLines[failure.index()], failure.message()));
+      }
+      batch = new DepartureBatch();
+    }
+    pendingFailures.sort(Comparator.comparingLong(Failure::lineNumber));
+    for (Failure failure : pendingFailures) {
+      fail(out, failure.lineNumber(), failure.message());
+    }
+    pendingFailures.clear();
+  }
+
+  private void fail(Writer out, long lineNumber, String message) throws IOException {
+    failed++;
+    out.write("Line " + lineNumber + ": " + message + "\n");
+  }
+}
@@ -0,0 +1,390 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Class that represents a registry of TrainDeparture objects that can be shared by many threads.
+ *
+ *<p>Has the same behaviour as {@link TrainRegistry}, but:
+ * <ul>
+ *     <li>All reads are lock-free. Departures are stored in a {@link ConcurrentHashMap},
+ *     and the ordered indexes are {@link ConcurrentSkipListMap}s.</li>
+ *     <li>Changes to a departure lock one of {@link #STRIPES} locks, chosen by the train number.
+ *     Changes to different trains therefore rarely wait for each other.</li>
+ *     <li>A departure is never changed once it is in the registry. A new track or delay
+ *     replaces it with a changed copy in every index, so a reader always finds a departure
+ *     at the position that matches its values, and never sees it half changed.
+ *     A departure that was read earlier keeps its old values.</li>
+ *     <li>Lists returned by the search methods are read-only copies, since the indexes
+ *     can change while they are being read.</li>
+ * </ul>
+ *
+ *<p>The ordered indexes are keyed by {@link DepartureIndex#orderKey(LocalTime, int)},
+ * a time and a train number packed into one long, so a key never depends on
+ * a value that can change while it is in an index.
+ *
+ * @see DepartureRegistry
+ * @see TrainRegistry
+ */
+public class ConcurrentTrainRegistry implements DepartureRegistry {
+  private static final int STRIPES = 64;
+
+  private final ConcurrentHashMap<Integer, TrainDeparture> numberToDepartureMap =
+      new ConcurrentHashMap<>();
+  private final ConcurrentSkipListMap<Long, TrainDeparture> departuresByTime =
+      new ConcurrentSkipListMap<>();
+  private final ConcurrentSkipListMap<Long, TrainDeparture> departureQueue =
+      new ConcurrentSkipListMap<>();
+  private final KeyIndex<Integer> trackIndex = new KeyIndex<>();
+  private final KeyIndex<String> lineIndex = new KeyIndex<>();
+  private final KeyIndex<String> destinationIndex = new KeyIndex<>();
+  private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+  private volatile LocalTime currentTime = null;
+
+  /**
+   * Creates an empty ConcurrentTrainRegistry.
+   */
+  public ConcurrentTrainRegistry() {
+    for (int i = 0; i < STRIPES; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Departures grouped by a key, each key with its departures ordered by
+   * {@link DepartureIndex#orderKey(LocalTime, int)}.
+   *
+   * @param <K> the type of the key the departures are grouped by.
+   */
+  private static final class KeyIndex<K> {
+    private final ConcurrentHashMap<K, ConcurrentSkipListMap<Long, TrainDeparture>> index =
+        new ConcurrentHashMap<>();
+
+    void add(K key, TrainDeparture trainDeparture) {
+      index.compute(key, (k, departures) -> {
+        ConcurrentSkipListMap<Long, TrainDeparture> result =
+            departures == null ? new ConcurrentSkipListMap<>() : departures;
+        result.put(scheduledKey(trainDeparture), trainDeparture);
+        return result;
+      });
+    }
+
+    void remove(K key, TrainDeparture trainDeparture) {
+      index.computeIfPresent(key, (k, departures) -> {
+        departures.remove(scheduledKey(trainDeparture));
+        return departures.isEmpty() ? null : departures;
+      });
+    }
+
+    List<TrainDeparture> departures(K key) {
+      ConcurrentSkipListMap<Long, TrainDeparture> departures = index.get(key);
+      return departures == null ? List.of() : List.copyOf(departures.values());
+    }
+
+    boolean containsTime(K key, LocalTime time) {
+      ConcurrentSkipListMap<Long, TrainDeparture> departures = index.get(key);
+      if (departures == null) {
+        return false;
+      }
+      Long found = departures.ceilingKey(DepartureIndex.orderKey(time, 0));
+      return found != null && (found >>> 32) == time.toSecondOfDay();
+    }
+  }
+
+  @Override
+  public void addDeparture(LocalTime departureTime, String line,
+                           String destination, int trainNumber, int track, LocalTime delay) {
+    putDeparture(new TrainDeparture(departureTime, line, destination, trainNumber, track, delay));
+  }
+
+  @Override
+  public void loadDepartures(Stream<TrainDeparture> departures) {
+    departures.forEach(this::putDeparture);
+  }
+
+  /**
+   * Method that sets the track of a specific TrainDeparture, by replacing it with a copy
+   * that has the new track, which is moved to the new track in {@link #trackIndex}.
+   *
+   * @param trainNumber the train number of the train departure to be assigned a track.
+   * @param track the track to be assigned to the train departure.
+   */
+  @Override
+  public void assignTrack(int trainNumber, int track) {
+    ReentrantLock lock = lockFor(trainNumber);
+    lock.lock();
+    try {
+      TrainDeparture trainDeparture = numberToDepartureMap.get(trainNumber);
+      replaceDeparture(trainDeparture, trainDeparture.withTrack(track));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method that sets the delay of a specific TrainDeparture, by replacing it with a copy
+   * that has the new delay, which is moved to its new position in {@link #departureQueue}.
+   *
+   * @param trainNumber the train number of the train departure to be assigned a delay.
+   * @param delay the delay to be assigned to the train departure.
+   */
+  @Override
+  public void addDelay(int trainNumber, LocalTime delay) {
+    ReentrantLock lock = lockFor(trainNumber);
+    lock.lock();
+    try {
+      TrainDeparture trainDeparture = numberToDepartureMap.get(trainNumber);
+      replaceDeparture(trainDeparture, trainDeparture.withDelay(delay));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean cancelDeparture(int trainNumber) {
+    ReentrantLock lock = lockFor(trainNumber);
+    lock.lock();
+    try {
+      TrainDeparture removed = numberToDepartureMap.remove(trainNumber);
+      if (removed != null) {
+        unindexDeparture(removed);
+      }
+      return removed != null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public TrainDeparture departureFromNumber(int trainNumber) {
+    return numberToDepartureMap.get(trainNumber);
+  }
+
+  @Override
+  public List<TrainDeparture> departureFromDestination(String destination) {
+    List<TrainDeparture> foundDepartures = destinationIndex.departures(foldCase(destination));
+    return foundDepartures.isEmpty() ? null : foundDepartures;
+  }
+
+  @Override
+  public List<TrainDeparture> departuresFromLine(String line) {
+    return lineIndex.departures(foldCase(line));
+  }
+
+  @Override
+  public List<TrainDeparture> departuresFromTrack(int track) {
+    return trackIndex.departures(track);
+  }
+
+  @Override
+  public List<TrainDeparture> nextDepartures(LocalTime time, int count) {
+    return firstDepartures(departuresByTime, time, count);
+  }
+
+  @Override
+  public List<TrainDeparture> departuresBetween(LocalTime from, LocalTime to) {
+    return departuresInWindow(departuresByTime, from, to);
+  }
+
+  @Override
+  public List<TrainDeparture> nextDeparturesWithDelay(LocalTime time, int count) {
+    return firstDepartures(departureQueue, time, count);
+  }
+
+  @Override
+  public List<TrainDeparture> departuresWithDelayBetween(LocalTime from, LocalTime to) {
+    return departuresInWindow(departureQueue, from, to);
+  }
+
+  @Override
+  public List<LocalTime> departureTimesFromLine(String line) {
+    return departuresFromLine(line).stream().map(TrainDeparture::getDepartureTime).toList();
+  }
+
+  @Override
+  public List<LocalTime> departureTimesFromTrack(int track) {
+    return departuresFromTrack(track).stream().map(TrainDeparture::getDepartureTime).toList();
+  }
+
+  @Override
+  public boolean checkDepartureTimeExistsTrack(int track, LocalTime time) {
+    return trackIndex.containsTime(track, time);
+  }
+
+  @Override
+  public boolean checkDepartureTimeExistsLine(String line, LocalTime time) {
+    return lineIndex.containsTime(foldCase(line), time);
+  }
+
+  @Override
+  public List<TrainDeparture> getTrainDepartures() {
+    return List.copyOf(departuresByTime.values());
+  }
+
+  @Override
+  public void setCurrentTime(LocalTime time) {
+    currentTime = time;
+  }
+
+  @Override
+  public LocalTime getCurrentTime() {
+    return currentTime;
+  }
+
+  /**
+   * Method that removes all departures that have departed.
+   *
+   *<p>Takes departures from the front of {@link #departureQueue} while their
+   * departure time + delay is before the current time. Each departure is checked again
+   * while its lock is held, in case its delay was changed in the meantime.
+   */
+  @Override
+  public void removeDeparted() {
+    LocalTime time = currentTime;
+    Map.Entry<Long, TrainDeparture> first = departureQueue.firstEntry();
+    while (first != null && first.getValue().getDepartureTimeWithDelay().isBefore(time)) {
+      TrainDeparture trainDeparture = first.getValue();
+      ReentrantLock lock = lockFor(trainDeparture.getTrainNumber());
+      lock.lock();
+      try {
+        if (trainDeparture.getDepartureTimeWithDelay().isBefore(time)
+            && numberToDepartureMap.remove(trainDeparture.getTrainNumber(), trainDeparture)) {
+          unindexDeparture(trainDeparture);
+        }
+      } finally {
+        lock.unlock();
+      }
+      first = departureQueue.firstEntry();
+    }
+  }
+
+  /**
+   * Method that adds a TrainDeparture to the registry, replacing any departure
+   * with the same train number.
+   *
+   * @param trainDeparture the departure to be added.
+   */
+  private void putDeparture(TrainDeparture trainDeparture) {
+    ReentrantLock lock = lockFor(trainDeparture.getTrainNumber());
+    lock.lock();
+    try {
+      TrainDeparture replaced = numberToDepartureMap.put(trainDeparture.getTrainNumber(),
+          trainDeparture);
+      if (replaced != null) {
+        unindexDeparture(replaced);
+      }
+      departuresByTime.put(scheduledKey(trainDeparture), trainDeparture);
+      departureQueue.put(delayedKey(trainDeparture), trainDeparture);
+      trackIndex.add(trainDeparture.getTrack(), trainDeparture);
+      lineIndex.add(foldCase(trainDeparture.getLine()), trainDeparture);
+      destinationIndex.add(foldCase(trainDeparture.getDestination()), trainDeparture);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method that replaces a TrainDeparture with a changed copy in every index.
+   * The entries of the keys both departures have are replaced in one step,
+   * the other entries are removed before the new ones are added.
+   * Must be called while the lock of the train number is held.
+   *
+   * @param old the departure in the registry.
+   * @param changed the copy with a new track or delay.
+   */
+  private void replaceDeparture(TrainDeparture old, TrainDeparture changed) {
+    numberToDepartureMap.put(changed.getTrainNumber(), changed);
+    departuresByTime.put(scheduledKey(changed), changed);
+    if (delayedKey(old) != delayedKey(changed)) {
+      departureQueue.remove(delayedKey(old), old);
+    }
+    departureQueue.put(delayedKey(changed), changed);
+    if (old.getTrack() != changed.getTrack()) {
+      trackIndex.remove(old.getTrack(), old);
+    }
+    trackIndex.add(changed.getTrack(), changed);
+    lineIndex.add(foldCase(changed.getLine()), changed);
+    destinationIndex.add(foldCase(changed.getDestination()), changed);
+  }
+
+  /**
+   * Method that removes a TrainDeparture from every index.
+   * Must be called while the lock of the train number is held.
+   *
+   * @param trainDeparture the departure to be removed.
+   */
+  private void unindexDeparture(TrainDeparture trainDeparture) {
+    departuresByTime.remove(scheduledKey(trainDeparture), trainDeparture);
+    departureQueue.remove(delayedKey(trainDeparture), trainDeparture);
+    trackIndex.remove(trainDeparture.getTrack(), trainDeparture);
+    lineIndex.remove(foldCase(trainDeparture.getLine()), trainDeparture);
+    destinationIndex.remove(foldCase(trainDeparture.getDestination()), trainDeparture);
+  }
+
+  /**
+   * Method that copies the first departures of an ordered index at or after a time.
+   *
+   * @param departures the ordered index.
+   * @param time the earliest time.
+   * @param count the largest number of departures to be returned.
+   * @return a read-only copy of up to {@code count} departures.
+   * @throws IllegalArgumentException if the count is less than 0.
+   */
+  private static List<TrainDeparture> firstDepartures(
+      ConcurrentSkipListMap<Long, TrainDeparture> departures, LocalTime time, int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be less than 0");
+    }
+    return departures.tailMap(DepartureIndex.orderKey(time, 0)).values().stream()
+        .limit(count)
+        .toList();
+  }
+
+  /**
+   * Method that copies the departures of an ordered index in a time window.
+   *
+   * @param departures the ordered index.
+   * @param from the start of the window, included.
+   * @param to the end of the window, not included.
+   * @return a read-only copy of the departures in the window.
+   */
+  private static List<TrainDeparture> departuresInWindow(
+      ConcurrentSkipListMap<Long, TrainDeparture> departures, LocalTime from, LocalTime to) {
+    if (!from.isBefore(to)) {
+      return List.of();
+    }
+    return List.copyOf(departures.subMap(DepartureIndex.orderKey(from, 0),
+        DepartureIndex.orderKey(to, 0)).values());
+  }
+
+  /**
+   * Method that returns the lock guarding changes to the given train number.
+   *
+   * @param trainNumber the train number to be changed.
+   * @return one of the {@link #STRIPES} locks.
+   */
+  private ReentrantLock lockFor(int trainNumber) {
+    return locks[(trainNumber ^ (trainNumber >>> 16)) & (STRIPES - 1)];
+  }
+
+  private static long scheduledKey(TrainDeparture trainDeparture) {
+    return DepartureIndex.orderKey(trainDeparture.getDepartureTime(),
+        trainDeparture.getTrainNumber());
+  }
+
+  private static long delayedKey(TrainDeparture trainDeparture) {
+    return DepartureIndex.orderKey(trainDeparture.getDepartureTimeWithDelay(),
+        trainDeparture.getTrainNumber());
+  }
+
+  private static String foldCase(String text) {
+    return text.toUpperCase(Locale.ROOT);
+  }
+}
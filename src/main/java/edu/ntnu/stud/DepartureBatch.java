@@ -0,0 +1,151 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class that collects many changes to a {@link TrainRegistry}, to be applied together with
+ * {@link TrainRegistry#applyBatch(DepartureBatch)}.
+ *
+ *<p>Changes are applied in the order they were added to the batch. Every change is
+ * validated first, a change that would fail is left out and reported in the {@link Result},
+ * and all other changes are applied. Each change only updates the indexes it affects,
+ * and a batch that changes a large part of the registry rebuilds the indexes once instead.
+ *
+ * @see TrainRegistry#applyBatch(DepartureBatch)
+ */
+public class DepartureBatch {
+
+  private final List<Mutation> mutations = new ArrayList<>();
+
+  /**
+   * One change in a batch.
+   */
+  sealed interface Mutation {
+    int trainNumber();
+  }
+
+  record Add(LocalTime departureTime, String line, String destination,
+             int trainNumber, int track, LocalTime delay) implements Mutation {
+  }
+
+  record Delay(int trainNumber, LocalTime delay) implements Mutation {
+  }
+
+  record Track(int trainNumber, int track) implements Mutation {
+  }
+
+  record Cancel(int trainNumber) implements Mutation {
+  }
+
+  /**
+   * A change that was not applied, and why.
+   *
+   * @param index the position of the change in the batch, starting at 0.
+   * @param trainNumber the train number of the change.
+   * @param message the reason the change was not applied.
+   */
+  public record Failure(int index, int trainNumber, String message) {
+  }
+
+  /**
+   * The outcome of applying a batch.
+   *
+   * @param applied the number of changes that were applied.
+   * @param failures the changes that were not applied, in batch order.
+   */
+  public record Result(int applied, List<Failure> failures) {
+
+    /**
+     * Checks if every change in the batch was applied.
+     *
+     * @return {@code true} if there were no failures.
+     */
+    public boolean isSuccessful() {
+      return failures.isEmpty();
+    }
+  }
+
+  /**
+   * Method that adds a new departure to the batch.
+   *
+   * @param departureTime the departure time of the train
+   * @param line the line the train is operating on
+   * @param destination the destination of the train
+   * @param trainNumber the train number of the train
+   * @param track the track number of the train, 0 if not set
+   * @param delay the delay of the train
+   * @return this batch.
+   */
+  public DepartureBatch addDeparture(LocalTime departureTime, String line, String destination,
+                                     int trainNumber, int track, LocalTime delay) {
+    mutations.add(new Add(departureTime, line, destination, trainNumber, track, delay));
+    return this;
+  }
+
+  /**
+   * Method that adds a delay to the batch.
+   *
+   * @param trainNumber the train number of the departure.
+   * @param delay the delay in HH:mm.
+   * @return this batch.
+   */
+  public DepartureBatch addDelay(int trainNumber, LocalTime delay) {
+    mutations.add(new Delay(trainNumber, delay));
+    return this;
+  }
+
+  /**
+   * Method that adds a track assignment to the batch.
+   *
+   * @param trainNumber the train number of the departure.
+   * @param track the track, 0 to remove the track.
+   * @return this batch.
+   */
+  public DepartureBatch assignTrack(int trainNumber, int track) {
+    mutations.add(new Track(trainNumber, track));
+    return this;
+  }
+
+  /**
+   * Method that adds a cancellation to the batch. The departure is removed from the registry.
+   *
+   * @param trainNumber the train number of the departure.
+   * @return this batch.
+   */
+  public DepartureBatch cancelDeparture(int trainNumber) {
+    mutations.add(new Cancel(trainNumber));
+    return this;
+  }
+
+  /**
+   * Method that adds a change that was already created, such as a parsed update.
+   *
+   * @param mutation the change to be added.
+   * @return this batch.
+   */
+  DepartureBatch add(Mutation mutation) {
+    mutations.add(mutation);
+    return this;
+  }
+
+  /**
+   * Method that returns the number of changes in the batch.
+   *
+   * @return the number of changes.
+   */
+  public int size() {
+    return mutations.size();
+  }
+
+  /**
+   * Method that returns the changes in the batch.
+   *
+   * @return a read-only list of the changes, in the order they were added.
+   */
+  List<Mutation> mutations() {
+    return Collections.unmodifiableList(mutations);
+  }
+}
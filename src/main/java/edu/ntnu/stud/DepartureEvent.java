@@ -0,0 +1,45 @@
+package edu.ntnu.stud;
+
+/**
+ * A change to a {@link TrainRegistry}, sent to the listeners added with
+ * {@link TrainRegistry#subscribe(java.util.function.Consumer)}.
+ *
+ *<p>The departure is a read-only copy made with {@link TrainDeparture#copy()}, so it has
+ * the values the departure had right after the change, and cannot be changed.
+ *
+ * @param sequence the number of the event. Every event of a registry has a higher
+ *                 sequence number than the event before it.
+ * @param type the kind of change.
+ * @param departure the departure after the change,
+ *                  or {@code null} if the type is {@link Type#RELOADED}.
+ * @see BoardDiff
+ */
+public record DepartureEvent(long sequence, Type type, TrainDeparture departure) {
+
+  /**
+   * The kinds of change.
+   */
+  public enum Type {
+    /** A departure was added, or replaced a departure with the same train number. */
+    ADDED,
+    /** The delay of a departure was changed. */
+    DELAYED,
+    /** The track of a departure was changed. */
+    TRACK_CHANGED,
+    /** A departure was removed by {@link TrainRegistry#removeDeparted()}. */
+    DEPARTED,
+    /** A departure was cancelled. */
+    CANCELLED,
+    /** All departures were replaced by a bulk load, so every departure may have changed. */
+    RELOADED
+  }
+
+  /**
+   * Method that checks if the departure is no longer in the registry after the change.
+   *
+   * @return {@code true} if the departure departed or was cancelled.
+   */
+  public boolean isRemoval() {
+    return type == Type.DEPARTED || type == Type.CANCELLED;
+  }
+}
@@ -0,0 +1,168 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Class that groups TrainDeparture objects by a key, such as a track or a line.
+ *
+ *<p>Every key has its own list of departures, which is kept sorted by
+ * {@link TrainRegistry#DEPARTURE_ORDER}. Departures are inserted and removed
+ * with a binary search, so the lists never have to be rebuilt or re-sorted.
+ *
+ *<p>Used by {@link TrainRegistry}, which updates the index whenever a departure
+ * is added, removed or changes the value it is grouped by.
+ *
+ * @param <K> the type of the key the departures are grouped by.
+ * @see TrainRegistry
+ */
+class DepartureIndex<K> {
+
+  private final HashMap<K, Bucket> buckets = new HashMap<>();
+
+  /**
+   * The sorted departures of one key, together with a read-only view of them.
+   */
+  private static final class Bucket {
+    private final ArrayList<TrainDeparture> departures = new ArrayList<>();
+    private final List<TrainDeparture> view = Collections.unmodifiableList(departures);
+  }
+
+  /**
+   * Method that adds a departure to the list of the given key.
+   *
+   * @param key the key the departure is grouped by.
+   * @param trainDeparture the departure to be added.
+   */
+  void add(K key, TrainDeparture trainDeparture) {
+    insertSorted(buckets.computeIfAbsent(key, k -> new Bucket()).departures, trainDeparture);
+  }
+
+  /**
+   * Method that removes a departure from the list of the given key.
+   * The key is dropped when its last departure is removed.
+   *
+   * @param key the key the departure is grouped by.
+   * @param trainDeparture the departure to be removed.
+   */
+  void remove(K key, TrainDeparture trainDeparture) {
+    Bucket bucket = buckets.get(key);
+    if (bucket != null) {
+      removeSorted(bucket.departures, trainDeparture);
+      if (bucket.departures.isEmpty()) {
+        buckets.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Method that removes every key and departure from the index.
+   */
+  void clear() {
+    buckets.clear();
+  }
+
+  /**
+   * Method that returns the departures of the given key.
+   *
+   * @param key the key to look up.
+   * @return a read-only, ordered view of the departures,
+   *         or an empty list if the key has no departures.
+   */
+  List<TrainDeparture> departures(K key) {
+    Bucket bucket = buckets.get(key);
+    return bucket == null ? List.of() : bucket.view;
+  }
+
+  /**
+   * Method that returns the departure times of the given key, in ascending order.
+   *
+   * @param key the key to look up.
+   * @return a list with the departure times of the key.
+   */
+  List<LocalTime> departureTimes(K key) {
+    return departures(key).stream()
+        .map(TrainDeparture::getDepartureTime)
+        .toList();
+  }
+
+  /**
+   * Method that checks if the given key has a departure at the given time.
+   *
+   * @param key the key to look up.
+   * @param time the departure time to be checked for.
+   * @return {@code true} if a departure of the key leaves at the given time,
+   *         {@code false} otherwise.
+   */
+  boolean containsTime(K key, LocalTime time) {
+    List<TrainDeparture> departures = departures(key);
+    int index = firstAtOrAfter(departures, time);
+    return index < departures.size() && departures.get(index).getDepartureTime().equals(time);
+  }
+
+  /**
+   * Method that inserts a departure at its sorted position in a list.
+   *
+   * @param departures a list sorted by {@link TrainRegistry#DEPARTURE_ORDER}.
+   * @param trainDeparture the departure to be inserted.
+   */
+  static void insertSorted(List<TrainDeparture> departures, TrainDeparture trainDeparture) {
+    int index = Collections.binarySearch(departures, trainDeparture,
+        TrainRegistry.DEPARTURE_ORDER);
+    departures.add(index < 0 ? -index - 1 : index, trainDeparture);
+  }
+
+  /**
+   * Method that removes a departure from a sorted list.
+   *
+   * @param departures a list sorted by {@link TrainRegistry#DEPARTURE_ORDER}.
+   * @param trainDeparture the departure to be removed.
+   * @return {@code true} if the departure was found and removed.
+   */
+  static boolean removeSorted(List<TrainDeparture> departures, TrainDeparture trainDeparture) {
+    int index = Collections.binarySearch(departures, trainDeparture,
+        TrainRegistry.DEPARTURE_ORDER);
+    if (index < 0) {
+      return false;
+    }
+    departures.remove(index);
+    return true;
+  }
+
+  /**
+   * Method that finds the first departure in a sorted list that leaves at or after a time.
+   *
+   * @param departures a list sorted by {@link TrainRegistry#DEPARTURE_ORDER}.
+   * @param time the time to search for.
+   * @return the index of the first departure at or after the time,
+   *         or the size of the list if there is none.
+   */
+  static int firstAtOrAfter(List<TrainDeparture> departures, LocalTime time) {
+    int low = 0;
+    int high = departures.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (departures.get(middle).getDepartureTime().isBefore(time)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Method that packs a time and a train number into one long,
+   * which sorts by time first and train number second.
+   *
+   * @param time the time of the key.
+   * @param trainNumber the train number of the key.
+   * @return the key.
+   */
+  static long orderKey(LocalTime time, int trainNumber) {
+    return ((long) time.toSecondOfDay() << 32) | trainNumber;
+  }
+}
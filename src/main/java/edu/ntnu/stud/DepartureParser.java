@@ -0,0 +1,177 @@
+package edu.ntnu.stud;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Class that parses one row of timetable data directly from its characters or bytes.
+ *
+ *<p>A row has six comma separated fields: departure time, line, destination,
+ * train number, track and delay. Whitespace around a field is ignored, and fields
+ * after the sixth are ignored. Times must be in the format HH:mm.
+ *
+ *<p>The row is scanned once to find where the fields start and end. Times and numbers
+ * are decoded from their digits, so the only objects created for a row are the line,
+ * the destination, the two times and the {@link TrainDeparture} itself.
+ * The positions of the fields are kept in the parser, so one parser should be reused
+ * for many rows, and it must not be shared between threads.
+ *
+ * @see TrainRegistry#parseDeparture(String)
+ * @see ParallelTimetableLoader
+ */
+final class DepartureParser {
+  private static final int FIELDS = 6;
+
+  private final int[] fieldStart = new int[FIELDS];
+  private final int[] fieldEnd = new int[FIELDS];
+  private byte[] bytes;
+  private CharSequence chars;
+
+  /**
+   * Method that parses a row of text.
+   *
+   * @param row one row of timetable data.
+   * @return a new TrainDeparture with the values from the row.
+   * @throws IllegalArgumentException if the row has less than six fields.
+   * @throws DateTimeParseException if a time is not in the format HH:mm.
+   * @throws NumberFormatException if the train number or track is not a number.
+   */
+  TrainDeparture parse(CharSequence row) {
+    bytes = null;
+    chars = row;
+    try {
+      return parseFields(0, row.length());
+    } finally {
+      chars = null;
+    }
+  }
+
+  /**
+   * Method that parses a row of UTF-8 encoded bytes.
+   *
+   * @param row the array the row is in.
+   * @param from the index of the first byte of the row.
+   * @param to the index after the last byte of the row.
+   * @return a new TrainDeparture with the values from the row.
+   * @throws IllegalArgumentException if the row has less than six fields.
+   * @throws DateTimeParseException if a time is not in the format HH:mm.
+   * @throws NumberFormatException if the train number or track is not a number.
+   */
+  TrainDeparture parse(byte[] row, int from, int to) {
+    bytes = row;
+    chars = null;
+    try {
+      return parseFields(from, to);
+    } finally {
+      bytes = null;
+    }
+  }
+
+  /**
+   * Method that checks if a row of bytes only has whitespace.
+   *
+   * @param row the array the row is in.
+   * @param from the index of the first byte of the row.
+   * @param to the index after the last byte of the row.
+   * @return {@code true} if the row is empty or only has whitespace.
+   */
+  static boolean isBlank(byte[] row, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if ((row[i] & 0xff) > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private TrainDeparture parseFields(int from, int to) {
+    int field = 0;
+    int start = from;
+    for (int i = from; i <= to && field < FIELDS; i++) {
+      if (i == to || charAt(i) == ',') {
+        int fieldFrom = start;
+        int fieldTo = i;
+        while (fieldFrom < fieldTo && charAt(fieldFrom) <= ' ') {
+          fieldFrom++;
+        }
+        while (fieldTo > fieldFrom && charAt(fieldTo - 1) <= ' ') {
+          fieldTo--;
+        }
+        fieldStart[field] = fieldFrom;
+        fieldEnd[field] = fieldTo;
+        field++;
+        start = i + 1;
+      }
+    }
+    if (field < FIELDS) {
+      throw new IllegalArgumentException("Row must have " + FIELDS + " fields: " + text(from, to));
+    }
+    LocalTime departureTime = parseTime(fieldStart[0], fieldEnd[0]);
+    String line = text(fieldStart[1], fieldEnd[1]);
+    String destination = text(fieldStart[2], fieldEnd[2]);
+    int trainNumber = parseInt(fieldStart[3], fieldEnd[3]);
+    int track = parseInt(fieldStart[4], fieldEnd[4]);
+    LocalTime delay = parseTime(fieldStart[5], fieldEnd[5]);
+    return new TrainDeparture(departureTime, line, destination, trainNumber, track, delay);
+  }
+
+  private LocalTime parseTime(int from, int to) {
+    if (to - from == 5 && charAt(from + 2) == ':') {
+      int hourTens = digit(from);
+      int hourOnes = digit(from + 1);
+      int minuteTens = digit(from + 3);
+      int minuteOnes = digit(from + 4);
+      if ((hourTens | hourOnes | minuteTens | minuteOnes) >= 0) {
+        int hour = hourTens * 10 + hourOnes;
+        int minute = minuteTens * 10 + minuteOnes;
+        if (hour < 24 && minute < 60) {
+          return LocalTime.of(hour, minute);
+        }
+      }
+    }
+    String text = text(from, to);
+    throw new DateTimeParseException("Text '" + text + "' could not be parsed as HH:mm",
+        text, 0);
+  }
+
+  private int parseInt(int from, int to) {
+    int i = from;
+    boolean negative = false;
+    if (i < to && (charAt(i) == '-' || charAt(i) == '+')) {
+      negative = charAt(i) == '-';
+      i++;
+    }
+    if (i == to) {
+      throw new NumberFormatException("For input string: \"" + text(from, to) + "\"");
+    }
+    long value = 0;
+    for (; i < to; i++) {
+      int digit = digit(i);
+      value = value * 10 + digit;
+      if (digit < 0 || value > (long) Integer.MAX_VALUE + 1) {
+        throw new NumberFormatException("For input string: \"" + text(from, to) + "\"");
+      }
+    }
+    long result = negative ? -value : value;
+    if (result > Integer.MAX_VALUE) {
+      throw new NumberFormatException("For input string: \"" + text(from, to) + "\"");
+    }
+    return (int) result;
+  }
+
+  private int digit(int index) {
+    int digit = charAt(index) - '0';
+    return digit >= 0 && digit <= 9 ? digit : -1;
+  }
+
+  private int charAt(int index) {
+    return bytes != null ? bytes[index] & 0xff : chars.charAt(index);
+  }
+
+  private String text(int from, int to) {
+    return bytes != null
+        ? new String(bytes, from, to - from, StandardCharsets.UTF_8)
+        : chars.subSequence(from, to).toString();
+  }
+}
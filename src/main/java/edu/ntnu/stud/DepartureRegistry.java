@@ -0,0 +1,198 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Interface for a registry of TrainDeparture objects.
+ *
+ *<p>Has methods for adding and modifying departures, and for searching for departures
+ * by train number, destination, line and track.
+ *
+ *<p>Implemented by {@link TrainRegistry}, which is used by a single thread,
+ * and by {@link ConcurrentTrainRegistry}, which can be shared by many threads.
+ *
+ * @see TrainRegistry
+ * @see ConcurrentTrainRegistry
+ */
+public interface DepartureRegistry {
+
+  /**
+   * Method that adds a new TrainDeparture to the registry.
+   * A departure with the same train number is replaced.
+   *
+   * @param departureTime the departure time of the train
+   * @param line the line the train is operating on
+   * @param destination the destination of the train
+   * @param trainNumber the train number of the train
+   * @param track the track number of the train, 0 if not set
+   * @param delay the delay of the train
+   */
+  void addDeparture(LocalTime departureTime, String line,
+                    String destination, int trainNumber, int track, LocalTime delay);
+
+  /**
+   * Method that adds many TrainDeparture objects to the registry at once.
+   *
+   * @param departures the departures to be added.
+   */
+  void loadDepartures(Stream<TrainDeparture> departures);
+
+  /**
+   * Method that sets the track of a specific TrainDeparture.
+   *
+   * @param trainNumber the train number of the train departure to be assigned a track.
+   * @param track the track to be assigned to the train departure.
+   */
+  void assignTrack(int trainNumber, int track);
+
+  /**
+   * Method that sets the delay of a specific TrainDeparture.
+   *
+   * @param trainNumber the train number of the train departure to be assigned a delay.
+   * @param delay the delay to be assigned to the train departure.
+   */
+  void addDelay(int trainNumber, LocalTime delay);
+
+  /**
+   * Method that cancels a departure, removing it from the registry.
+   *
+   * @param trainNumber the train number of the departure to be cancelled.
+   * @return {@code true} if the departure was found and removed.
+   */
+  boolean cancelDeparture(int trainNumber);
+
+  /**
+   * Method that finds a specific TrainDeparture using the train number.
+   *
+   * @param trainNumber the train number for the TrainDeparture to be found.
+   * @return the TrainDeparture with the given train number, or {@code null} if not found.
+   */
+  TrainDeparture departureFromNumber(int trainNumber);
+
+  /**
+   * Method that finds all TrainDepartures with a specific destination, ignoring case.
+   *
+   * @param destination the destination of the train departures to be found.
+   * @return a list sorted by departure time, or {@code null} if no departure was found.
+   */
+  List<TrainDeparture> departureFromDestination(String destination);
+
+  /**
+   * Method that returns all departures on a specific line, ignoring case.
+   *
+   * @param line the line of which departures are to be found.
+   * @return a list sorted by departure time and train number.
+   */
+  List<TrainDeparture> departuresFromLine(String line);
+
+  /**
+   * Method that returns all departures on a specific track.
+   *
+   * @param track the track of which departures are to be found.
+   * @return a list sorted by departure time and train number.
+   */
+  List<TrainDeparture> departuresFromTrack(int track);
+
+  /**
+   * Method that returns the next departures at or after a time, by scheduled departure time.
+   *
+   * @param time the earliest departure time.
+   * @param count the largest number of departures to be returned.
+   * @return up to {@code count} departures, sorted by departure time and train number.
+   * @throws IllegalArgumentException if the count is less than 0.
+   */
+  List<TrainDeparture> nextDepartures(LocalTime time, int count);
+
+  /**
+   * Method that returns all departures with a scheduled departure time in a time window.
+   *
+   * @param from the start of the window, included.
+   * @param to the end of the window, not included.
+   * @return the departures in the window, sorted by departure time and train number.
+   */
+  List<TrainDeparture> departuresBetween(LocalTime from, LocalTime to);
+
+  /**
+   * Method that returns the next departures at or after a time, by departure time + delay.
+   *
+   * @param time the earliest departure time with delay.
+   * @param count the largest number of departures to be returned.
+   * @return up to {@code count} departures, sorted by departure time with delay
+   *         and train number.
+   * @throws IllegalArgumentException if the count is less than 0.
+   */
+  List<TrainDeparture> nextDeparturesWithDelay(LocalTime time, int count);
+
+  /**
+   * Method that returns all departures with a departure time + delay in a time window.
+   *
+   * @param from the start of the window, included.
+   * @param to the end of the window, not included.
+   * @return the departures in the window, sorted by departure time with delay
+   *         and train number.
+   */
+  List<TrainDeparture> departuresWithDelayBetween(LocalTime from, LocalTime to);
+
+  /**
+   * Method that returns the departure times for all departures on a specific line.
+   *
+   * @param line the line of which departure times are to be found.
+   * @return a list of departure times in ascending order.
+   */
+  List<LocalTime> departureTimesFromLine(String line);
+
+  /**
+   * Method that returns the departure times for all departures on a specific track.
+   *
+   * @param track the track of which departure times are to be found.
+   * @return a list of departure times in ascending order.
+   */
+  List<LocalTime> departureTimesFromTrack(int track);
+
+  /**
+   * Method that checks if a given departure time exists on a given track.
+   *
+   * @param track the track to be checked for.
+   * @param time the departure time to be checked for.
+   * @return {@code true} if the departure time exists on the given track.
+   */
+  boolean checkDepartureTimeExistsTrack(int track, LocalTime time);
+
+  /**
+   * Method that checks if a given departure time exists on a given line.
+   *
+   * @param line the line to be checked for.
+   * @param time the departure time to be checked for.
+   * @return {@code true} if the departure time exists on the given line.
+   */
+  boolean checkDepartureTimeExistsLine(String line, LocalTime time);
+
+  /**
+   * Method that returns all departures, sorted by departure time and train number.
+   *
+   * @return a read-only list with TrainDeparture objects.
+   */
+  List<TrainDeparture> getTrainDepartures();
+
+  /**
+   * Method that sets the current time of the registry.
+   *
+   * @param time the time to be set as current time.
+   */
+  void setCurrentTime(LocalTime time);
+
+  /**
+   * Method that returns the current time of the registry.
+   *
+   * @return the current time.
+   */
+  LocalTime getCurrentTime();
+
+  /**
+   * Method that removes all departures where departure time + delay
+   * is before the current time.
+   */
+  void removeDeparted();
+}
@@ -0,0 +1,140 @@
+package edu.ntnu.stud;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class that counts latencies in buckets, so percentiles can be found without
+ * storing every value.
+ *
+ *<p>Values below 16 have a bucket each. Above that, every power of two is split into
+ * 8 buckets of equal width, so a value is reported at most 12.5% too high.
+ * All of the 488 buckets are allocated up front.
+ *
+ *<p>Recording a value only increments an {@link AtomicLongArray} slot and a few
+ * {@link LongAdder}s, so it never locks and never allocates, and can be called from
+ * many threads at once. Reading percentiles copies the counts, which is only done
+ * when the metrics are looked at.
+ *
+ * @see RegistryMetrics
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+  private static final int BUCKETS = LINEAR_LIMIT + (62 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Method that records one value. Negative values are recorded as 0.
+   *
+   * @param value the value, such as a latency in nanoseconds.
+   */
+  public void record(long value) {
+    long recorded = Math.max(value, 0);
+    counts.incrementAndGet(bucketOf(recorded));
+    count.increment();
+    total.add(recorded);
+    max.accumulate(recorded);
+  }
+
+  /**
+   * Method that returns the number of recorded values.
+   *
+   * @return the number of values.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Method that returns the largest recorded value.
+   *
+   * @return the largest value, or 0 if nothing was recorded.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Method that returns the mean of the recorded values.
+   *
+   * @return the mean, or 0 if nothing was recorded.
+   */
+  public double getMean() {
+    long values = count.sum();
+    return values == 0 ? 0 : (double) total.sum() / values;
+  }
+
+  /**
+   * Method that returns a percentile of the recorded values.
+   *
+   *<p>The result is the highest value of the bucket the percentile falls in,
+   * but never more than {@link #getMax()}.
+   *
+   * @param percentile the percentile, from 0 to 100.
+   * @return the value at the percentile, or 0 if nothing was recorded.
+   * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+   */
+  public long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    long[] snapshot = new long[BUCKETS];
+    long values = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      values += snapshot[i];
+    }
+    if (values == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * values));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(highestValueOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Method that removes all recorded values.
+   * Values recorded at the same time may or may not be kept.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.reset();
+    total.reset();
+    max.reset();
+  }
+
+  static int bucketOf(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long highestValueOf(int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    }
+    int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+    long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+    long lowest = subBucket << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
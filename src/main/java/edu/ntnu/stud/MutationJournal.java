@@ -0,0 +1,471 @@
+package edu.ntnu.stud;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Class that writes every change made to a {@link TrainRegistry} to an append-only file,
+ * so the changes can be replayed after a crash.
+ *
+ *<p>Each change is one record: the length of the record, the record itself,
+ * and a CRC32 checksum of the record. A record starts with its type:
+ * <ul>
+ *     <li>{@link #ADD}: a departure added with
+ *     {@link TrainRegistry#addDeparture(LocalTime, String, String, int, int, LocalTime)}</li>
+ *     <li>{@link #TRACK}: a track set with {@link TrainRegistry#assignTrack(int, int)}</li>
+ *     <li>{@link #DELAY}: a delay set with {@link TrainRegistry#addDelay(int, LocalTime)}</li>
+ *     <li>{@link #REMOVE_DEPARTED}: {@link TrainRegistry#removeDeparted()}
+ *     with the current time</li>
+ *     <li>{@link #CANCEL}: a departure removed with {@link TrainRegistry#cancelDeparture(int)}</li>
+ * </ul>
+ *
+ *<p>Records are collected in a buffer and written to the file with one write and one
+ * fsync, once {@code groupSize} records are waiting or the oldest waiting record is older
+ * than {@code maxDelay}. When the first record of a group is added, a flush is scheduled on
+ * a background thread for {@code maxDelay} later, so a record is never kept waiting longer
+ * than that, even if no other record follows it. {@link #sync()} and {@link #close()} write
+ * the waiting records at once. A crash can therefore lose at most the records of the last
+ * {@code maxDelay}. If a scheduled flush fails, the next call to the journal throws its error.
+ *
+ *<p>On startup the base timetable or snapshot is loaded first, then
+ * {@link #replay(Path, DepartureRegistry)} applies the journal, and then the journal is
+ * opened with {@link #open(Path)} and given to {@link TrainRegistry#setJournal(MutationJournal)}.
+ * A record that was only partly written when the crash happened is ignored, and is cut off
+ * when the journal is opened again. {@link #compact(TrainRegistry, Path)} saves a snapshot
+ * and empties the journal.
+ *
+ * @see TrainRegistry#setJournal(MutationJournal)
+ * @see TimetableSnapshot
+ */
+public class MutationJournal implements Closeable {
+  static final byte ADD = 1;
+  static final byte TRACK = 2;
+  static final byte DELAY = 3;
+  static final byte REMOVE_DEPARTED = 4;
+  static final byte CANCEL = 5;
+
+  private static final int DEFAULT_GROUP_SIZE = 64;
+  private static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(20);
+  private static final int HEADER_SIZE = Integer.BYTES;
+  private static final int CHECKSUM_SIZE = Integer.BYTES;
+  private static final int SCAN_WINDOW_SIZE = 1 << 20;
+
+  private final FileChannel channel;
+  private final int groupSize;
+  private final long maxDelayNanos;
+  private final CRC32 checksum = new CRC32();
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+  private int recordStart = 0;
+  private int waitingRecords = 0;
+  private long oldestWaitingNanos = 0;
+  private ScheduledExecutorService flusher = null;
+  private boolean flushScheduled = false;
+  private IOException flushFailure = null;
+
+  private MutationJournal(FileChannel channel, int groupSize, Duration maxDelay) {
+    this.channel = channel;
+    this.groupSize = groupSize;
+    this.maxDelayNanos = maxDelay.toNanos();
+  }
+
+  /**
+   * Method that opens a journal file with the default group commit settings,
+   * creating the file if it does not exist.
+   *
+   * @param filePath the path of the journal file.
+   * @return the opened journal.
+   * @throws IOException if the file cannot be opened.
+   */
+  public static MutationJournal open(Path filePath) throws IOException {
+    return open(filePath, DEFAULT_GROUP_SIZE, DEFAULT_MAX_DELAY);
+  }
+
+  /**
+   * Method that opens a journal file, creating the file if it does not exist.
+   * A partly written record at the end of the file is cut off, new records are appended.
+   *
+   * @param filePath the path of the journal file.
+   * @param groupSize the number of records that are written and synced together.
+   * @param maxDelay the longest time a record waits before it is written and synced.
+   * @return the opened journal.
+   * @throws IOException if the file cannot be opened.
+   * @throws IllegalArgumentException if the group size is less than 1.
+   */
+  public static MutationJournal open(Path filePath, int groupSize, Duration maxDelay)
+      throws IOException {
+    if (groupSize < 1) {
+      throw new IllegalArgumentException("Group size cannot be less than 1");
+    }
+    FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long validLength = scan(channel, null);
+      channel.truncate(validLength);
+      channel.position(validLength);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return new MutationJournal(channel, groupSize, maxDelay);
+  }
+
+  /**
+   * Method that applies every record in a journal file to a registry.
+   * Records after a partly written or damaged record are ignored.
+   *
+   * @param filePath the path of the journal file.
+   * @param trainRegistry the registry the changes are applied to.
+   * @return the number of records that were applied, 0 if the file does not exist.
+   * @throws IOException if the file cannot be read.
+   */
+  public static int replay(Path filePath, DepartureRegistry trainRegistry) throws IOException {
+    if (!Files.exists(filePath)) {
+      return 0;
+    }
+    int[] applied = new int[1];
+    try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+      scan(channel, record -> {
+        apply(record, trainRegistry);
+        applied[0]++;
+      });
+    }
+    return applied[0];
+  }
+
+  /**
+   * Method that saves the state of a registry to a snapshot, and then empties the journal.
+   * After a crash the registry is restored by loading the snapshot and replaying the journal.
+   *
+   *<p>{@link TimetableSnapshot#save(DepartureRegistry, Path)} replaces the snapshot in one
+   * atomic step and forces it to disk, so the journal is only emptied once the new snapshot
+   * is safe. A crash before that leaves the old snapshot and the full journal.
+   *
+   *<p>A change is recorded in the journal before it is applied to the registry, and callers
+   * change the registry while they hold its lock. The compaction therefore holds the lock of
+   * the registry, and then the lock of the journal, so the snapshot contains every recorded
+   * change and no change is recorded between the snapshot and the emptying of the journal.
+   *
+   * @param trainRegistry the registry this journal belongs to.
+   * @param snapshotPath the path of the snapshot file.
+   * @throws IOException if the snapshot cannot be written or the journal cannot be emptied.
+   */
+  public void compact(TrainRegistry trainRegistry, Path snapshotPath) throws IOException {
+    synchronized (trainRegistry) {
+      synchronized (this) {
+        sync();
+        trainRegistry.saveSnapshot(snapshotPath);
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+      }
+    }
+  }
+
+  /**
+   * Method that records a departure that was added.
+   *
+   * @param trainDeparture the added departure.
+   * @throws IOException if the journal cannot be written.
+   */
+  public synchronized void recordAdd(TrainDeparture trainDeparture) throws IOException {
+    byte[] line = trainDeparture.getLine().getBytes(StandardCharsets.UTF_8);
+    byte[] destination = trainDeparture.getDestination().getBytes(StandardCharsets.UTF_8);
+    ByteBuffer record = startRecord(1 + 4 + 2 + 2 + 4 + 4 + line.length + 4 + destination.length);
+    record.put(ADD)
+        .putInt(trainDeparture.getTrainNumber())
+        .putShort(toMinutes(trainDeparture.getDepartureTime()))
+        .putShort(toMinutes(trainDeparture.getDelay()))
+        .putInt(trainDeparture.getTrack())
+        .putInt(line.length).put(line)
+        .putInt(destination.length).put(destination);
+    endRecord();
+  }
+
+  /**
+   * Method that records a track that was assigned.
+   *
+   * @param trainNumber the train number of the departure.
+   * @param track the assigned track.
+   * @throws IOException if the journal cannot be written.
+   */
+  public synchronized void recordTrack(int trainNumber, int track) throws IOException {
+    startRecord(1 + 4 + 4).put(TRACK).putInt(trainNumber).putInt(track);
+    endRecord();
+  }
+
+  /**
+   * Method that records a delay that was set.
+   *
+   * @param trainNumber the train number of the departure.
+   * @param delay the delay in HH:mm.
+   * @throws IOException if the journal cannot be written.
+   */
+  public synchronized void recordDelay(int trainNumber, LocalTime delay) throws IOException {
+    startRecord(1 + 4 + 2).put(DELAY).putInt(trainNumber).putShort(toMinutes(delay));
+    endRecord();
+  }
+
+  /**
+   * Method that records that departed trains were removed.
+   *
+   * @param currentTime the current time the departures were removed at.
+   * @throws IOException if the journal cannot be written.
+   */
+  public synchronized void recordRemoveDeparted(LocalTime currentTime) throws IOException {
+    startRecord(1 + 4).put(REMOVE_DEPARTED).putInt(currentTime.toSecondOfDay());
+    endRecord();
+  }
+
+  /**
+   * Method that records a departure that was cancelled.
+   *
+   * @param trainNumber the train number of the departure.
+   * @throws IOException if the journal cannot be written.
+   */
+  public synchronized void recordCancel(int trainNumber) throws IOException {
+    startRecord(1 + 4).put(CANCEL).putInt(trainNumber);
+    endRecord();
+  }
+
+  /**
+   * Method that writes all waiting records to the file and waits until they are on disk.
+   *
+   * @throws IOException if the journal cannot be written.
+   */
+  public synchronized void sync() throws IOException {
+    checkFlushFailure();
+    if (waitingRecords == 0 && buffer.position() == 0) {
+      return;
+    }
+    writeBuffer();
+    channel.force(false);
+    waitingRecords = 0;
+  }
+
+  /**
+   * Method that syncs the waiting records and closes the file.
+   *
+   * @throws IOException if the journal cannot be written or closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (flusher != null) {
+      flusher.shutdownNow();
+      flusher = null;
+    }
+    try {
+      sync();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Method run by the {@link #flusher} {@code maxDelay} after the first record of a group
+   * was added. Syncs the waiting records, if they have not been synced already.
+   */
+  private synchronized void flushWaiting() {
+    flushScheduled = false;
+    if (!channel.isOpen() || flushFailure != null) {
+      return;
+    }
+    try {
+      sync();
+    } catch (IOException e) {
+      flushFailure = e;
+    }
+  }
+
+  private void checkFlushFailure() throws IOException {
+    if (flushFailure != null) {
+      throw new IOException("A scheduled journal flush failed", flushFailure);
+    }
+  }
+
+  private ByteBuffer startRecord(int length) throws IOException {
+    checkFlushFailure();
+    int size = HEADER_SIZE + length + CHECKSUM_SIZE;
+    if (buffer.remaining() < size) {
+      writeBuffer();
+      if (buffer.capacity() < size) {
+        buffer = ByteBuffer.allocateDirect(size);
+      }
+    }
+    recordStart = buffer.position();
+    buffer.putInt(length);
+    return buffer;
+  }
+
+  private void endRecord() throws IOException {
+    ByteBuffer payload = buffer.duplicate();
+    payload.limit(buffer.position()).position(recordStart + HEADER_SIZE);
+    checksum.reset();
+    checksum.update(payload);
+    buffer.putInt((int) checksum.getValue());
+
+    long now = System.nanoTime();
+    if (waitingRecords == 0) {
+      oldestWaitingNanos = now;
+    }
+    waitingRecords++;
+    if (waitingRecords >= groupSize || now - oldestWaitingNanos >= maxDelayNanos) {
+      sync();
+    } else if (!flushScheduled) {
+      if (flusher == null) {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "journal-flush");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+      flusher.schedule(this::flushWaiting, maxDelayNanos, TimeUnit.NANOSECONDS);
+      flushScheduled = true;
+    }
+  }
+
+  private void writeBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Reads the records of a journal from the start, giving each valid record to the handler.
+   *
+   *<p>The file is read through a window of {@link #SCAN_WINDOW_SIZE} bytes, which only
+   * grows to fit a record that is larger, so a journal of any size can be scanned.
+   * Every byte before the returned length has been checked.
+   *
+   * @param channel the journal file.
+   * @param handler receives each record, positioned after the length, or {@code null}.
+   * @return the length of the valid part of the file.
+   */
+  private static long scan(FileChannel channel, RecordHandler handler) throws IOException {
+    long fileSize = channel.size();
+    ByteBuffer window = ByteBuffer.allocate((int) Math.min(fileSize, SCAN_WINDOW_SIZE));
+    window.flip();
+    long windowStart = 0;
+    CRC32 crc = new CRC32();
+    while (true) {
+      long start = windowStart + window.position();
+      if (window.remaining() < HEADER_SIZE) {
+        windowStart = start;
+        window = fill(channel, window, windowStart, HEADER_SIZE);
+        if (window.remaining() < HEADER_SIZE) {
+          return start;
+        }
+      }
+      int length = window.getInt(window.position());
+      long size = (long) HEADER_SIZE + length + CHECKSUM_SIZE;
+      if (length <= 0 || start + size > fileSize) {
+        return start;
+      }
+      if (window.remaining() < size) {
+        windowStart = start;
+        window = fill(channel, window, windowStart, (int) size);
+        if (window.remaining() < size) {
+          return start;
+        }
+      }
+      ByteBuffer record = window.slice(window.position() + HEADER_SIZE, length);
+      crc.reset();
+      crc.update(record.duplicate());
+      if (window.getInt(window.position() + HEADER_SIZE + length) != (int) crc.getValue()) {
+        return start;
+      }
+      if (handler != null) {
+        handler.handle(record);
+      }
+      window.position(window.position() + (int) size);
+    }
+  }
+
+  /**
+   * Moves the unread bytes of a scan window to its start and reads the file after them,
+   * until at least {@code count} bytes are in the window or the file ends.
+   *
+   * @param channel the journal file.
+   * @param window the window, ready to be read.
+   * @param windowStart the position in the file of the first unread byte of the window.
+   * @param count the number of bytes needed.
+   * @return the window, or a larger one if {@code count} did not fit, ready to be read.
+   */
+  private static ByteBuffer fill(FileChannel channel, ByteBuffer window, long windowStart,
+                                 int count) throws IOException {
+    if (window.capacity() < count) {
+      window = ByteBuffer.allocate(count).put(window);
+    } else {
+      window.compact();
+    }
+    while (window.position() < count) {
+      int read = channel.read(window, windowStart + window.position());
+      if (read < 0) {
+        break;
+      }
+    }
+    return window.flip();
+  }
+
+  /**
+   * Receives the records found by {@link #scan(FileChannel, RecordHandler)}.
+   */
+  private interface RecordHandler {
+    void handle(ByteBuffer record);
+  }
+
+  private static void apply(ByteBuffer record, DepartureRegistry trainRegistry) {
+    try {
+      switch (record.get()) {
+        case ADD -> {
+          int trainNumber = record.getInt();
+          LocalTime departureTime = toTime(record.getShort());
+          LocalTime delay = toTime(record.getShort());
+          int track = record.getInt();
+          String line = readString(record);
+          String destination = readString(record);
+          trainRegistry.addDeparture(departureTime, line, destination, trainNumber,
+              Math.max(track, 0), delay);
+        }
+        case TRACK -> trainRegistry.assignTrack(record.getInt(), record.getInt());
+        case DELAY -> trainRegistry.addDelay(record.getInt(), toTime(record.getShort()));
+        case REMOVE_DEPARTED -> {
+          trainRegistry.setCurrentTime(LocalTime.ofSecondOfDay(record.getInt()));
+          trainRegistry.removeDeparted();
+        }
+        case CANCEL -> trainRegistry.cancelDeparture(record.getInt());
+        default -> throw new IllegalStateException("Unknown journal record");
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IllegalStateException("Damaged journal record", e);
+    }
+  }
+
+  private static String readString(ByteBuffer record) {
+    byte[] bytes = new byte[record.getInt()];
+    record.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static short toMinutes(LocalTime time) {
+    return (short) (time.getHour() * 60 + time.getMinute());
+  }
+
+  private static LocalTime toTime(int minutes) {
+    return LocalTime.of(minutes / 60, minutes % 60);
+  }
+}
@@ -0,0 +1,312 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Class that represents the departures of a network of stations,
+ * with one {@link TrainRegistry} for each station.
+ *
+ *<p>Every station is a shard that is locked on its own: all access to the registry of a
+ * station is done while holding the lock of that registry, the same lock that
+ * {@link UpdateIngester} uses. A station that is busy therefore never blocks another.
+ *
+ *<p>Queries over the whole network, like {@link #departuresToDestination(String)} and
+ * {@link #nextDepartures(LocalTime, int)}, are run on every station in parallel in a
+ * {@link ForkJoinPool}. The stations are split in halves until one station is left,
+ * each station returns its departures in order, and the halves are merged in order.
+ *
+ * @see TrainRegistry
+ */
+public class NetworkRegistry {
+
+  /**
+   * A departure together with the station it leaves from.
+   *
+   * @param station the name of the station.
+   * @param departure the departure.
+   */
+  public record StationDeparture(String station, TrainDeparture departure) {
+  }
+
+  /**
+   * Order of the merged results: departure time first, then station, then train number.
+   */
+  static final Comparator<StationDeparture> NETWORK_ORDER =
+      Comparator.comparing((StationDeparture stationDeparture) ->
+              stationDeparture.departure().getDepartureTime())
+          .thenComparing(StationDeparture::station)
+          .thenComparingInt(stationDeparture -> stationDeparture.departure().getTrainNumber());
+
+  private final ConcurrentHashMap<String, TrainRegistry> stations = new ConcurrentHashMap<>();
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates an empty network that runs its queries in the common fork-join pool.
+   */
+  public NetworkRegistry() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates an empty network that runs its queries in the given pool.
+   *
+   * @param pool the pool the queries are run in.
+   */
+  public NetworkRegistry(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Method that returns the registry of a station, creating it if the station is new.
+   *
+   *<p>The registry is not thread-safe, so a caller that shares the network with other
+   * threads must synchronize on the registry, or use {@link #withStation(String, Function)}.
+   *
+   * @param station the name of the station, case sensitive.
+   * @return the registry of the station.
+   */
+  public TrainRegistry addStation(String station) {
+    return stations.computeIfAbsent(station, name -> new TrainRegistry());
+  }
+
+  /**
+   * Method that removes a station and all of its departures from the network.
+   *
+   * @param station the name of the station.
+   * @return {@code true} if the station was found and removed.
+   */
+  public boolean removeStation(String station) {
+    return stations.remove(station) != null;
+  }
+
+  /**
+   * Method that returns the names of all stations in the network.
+   *
+   * @return a read-only view of the station names.
+   */
+  public Set<String> getStations() {
+    return Collections.unmodifiableSet(stations.keySet());
+  }
+
+  /**
+   * Method that runs an action on the registry of a station while holding its lock.
+   * Other stations can be used at the same time.
+   *
+   *<p>The action must not return lists that are views of the registry,
+   * since they can change as soon as the lock is released.
+   *
+   * @param station the name of the station.
+   * @param action the action, which receives the registry of the station.
+   * @param <T> the type of the result of the action.
+   * @return the result of the action.
+   * @throws IllegalArgumentException if the station is not in the network.
+   */
+  public <T> T withStation(String station, Function<TrainRegistry, T> action) {
+    TrainRegistry trainRegistry = stations.get(station);
+    if (trainRegistry == null) {
+      throw new IllegalArgumentException("Station not found: " + station);
+    }
+    synchronized (trainRegistry) {
+      return action.apply(trainRegistry);
+    }
+  }
+
+  /**
+   * Method that adds a new TrainDeparture to a station, creating the station if it is new.
+   *
+   * @param station the name of the station.
+   * @param departureTime the departure time of the train
+   * @param line the line the train is operating on
+   * @param destination the destination of the train
+   * @param trainNumber the train number of the train
+   * @param track the track number of the train, 0 if not set
+   * @param delay the delay of the train
+   */
+  public void addDeparture(String station, LocalTime departureTime, String line,
+                           String destination, int trainNumber, int track, LocalTime delay) {
+    TrainRegistry trainRegistry = addStation(station);
+    synchronized (trainRegistry) {
+      trainRegistry.addDeparture(departureTime, line, destination, trainNumber, track, delay);
+    }
+  }
+
+  /**
+   * Method that returns the total number of departures in the network.
+   *
+   * @return the number of departures.
+   */
+  public int size() {
+    int size = 0;
+    for (TrainRegistry trainRegistry : stations.values()) {
+      synchronized (trainRegistry) {
+        size += trainRegistry.getTrainDepartures().size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Method that finds the departures to a destination from every station, ignoring case.
+   *
+   * @param destination the destination of the departures to be found.
+   * @return a read-only list sorted by departure time, station and train number.
+   */
+  public List<StationDeparture> departuresToDestination(String destination) {
+    return query((station, trainRegistry) -> {
+      List<TrainDeparture> found = trainRegistry.departureFromDestination(destination);
+      return found == null ? List.of() : atStation(station, found);
+    }, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Method that returns the next departures in the whole network at or after a time,
+   * by scheduled departure time.
+   *
+   * @param time the earliest departure time.
+   * @param count the largest number of departures to be returned.
+   * @return a read-only list of up to {@code count} departures,
+   *         sorted by departure time, station and train number.
+   * @throws IllegalArgumentException if the count is less than 0.
+   */
+  public List<StationDeparture> nextDepartures(LocalTime time, int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be less than 0");
+    }
+    return query((station, trainRegistry) ->
+        atStation(station, trainRegistry.nextDepartures(time, count)), count);
+  }
+
+  /**
+   * Method that removes the departed trains from every station in parallel.
+   *
+   * @param currentTime the current time of the network.
+   */
+  public void removeDeparted(LocalTime currentTime) {
+    pool.invoke(new StationTask<>(stationEntries(), (station, trainRegistry) -> {
+      trainRegistry.setCurrentTime(currentTime);
+      trainRegistry.removeDeparted();
+      return List.of();
+    }, (left, right) -> left));
+  }
+
+  private List<StationDeparture> query(StationQuery<StationDeparture> stationQuery, int limit) {
+    return Collections.unmodifiableList(pool.invoke(new StationTask<>(stationEntries(),
+        stationQuery, (left, right) -> merge(left, right, limit))));
+  }
+
+  private List<Map.Entry<String, TrainRegistry>> stationEntries() {
+    return new ArrayList<>(stations.entrySet());
+  }
+
+  private static List<StationDeparture> atStation(String station,
+                                                  List<TrainDeparture> departures) {
+    List<StationDeparture> result = new ArrayList<>(departures.size());
+    for (TrainDeparture trainDeparture : departures) {
+      result.add(new StationDeparture(station, trainDeparture));
+    }
+    return result;
+  }
+
+  /**
+   * Method that merges two sorted lists into one, keeping at most {@code limit} departures.
+   *
+   * @param left a list sorted by {@link #NETWORK_ORDER}.
+   * @param right a list sorted by {@link #NETWORK_ORDER}.
+   * @param limit the largest number of departures to keep.
+   * @return a new sorted list.
+   */
+  static List<StationDeparture> merge(List<StationDeparture> left,
+                                      List<StationDeparture> right, int limit) {
+    int size = (int) Math.min((long) left.size() + right.size(), limit);
+    List<StationDeparture> merged = new ArrayList<>(size);
+    int i = 0;
+    int j = 0;
+    while (merged.size() < size) {
+      if (j == right.size()
+          || (i < left.size() && NETWORK_ORDER.compare(left.get(i), right.get(j)) <= 0)) {
+        merged.add(left.get(i++));
+      } else {
+        merged.add(right.get(j++));
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * A query that is run on the registry of one station, while holding its lock.
+   * The result must be a copy, not a view of the registry.
+   *
+   * @param <T> the type of the elements of the result.
+   */
+  private interface StationQuery<T> {
+    List<T> run(String station, TrainRegistry trainRegistry);
+  }
+
+  /**
+   * Combines the results of two halves of the stations.
+   *
+   * @param <T> the type of the elements of the results.
+   */
+  private interface Combiner<T> {
+    List<T> combine(List<T> left, List<T> right);
+  }
+
+  /**
+   * Task that runs a query on a range of stations, splitting the range in halves
+   * until one station is left, and combines the results of the halves.
+   *
+   * @param <T> the type of the elements of the result.
+   */
+  private static final class StationTask<T> extends RecursiveTask<List<T>> {
+    private static final long serialVersionUID = 1L;
+    private final List<Map.Entry<String, TrainRegistry>> stations;
+    private final StationQuery<T> stationQuery;
+    private final Combiner<T> combiner;
+    private final int from;
+    private final int to;
+
+    StationTask(List<Map.Entry<String, TrainRegistry>> stations, StationQuery<T> stationQuery,
+                Combiner<T> combiner) {
+      this(stations, stationQuery, combiner, 0, stations.size());
+    }
+
+    private StationTask(List<Map.Entry<String, TrainRegistry>> stations,
+                        StationQuery<T> stationQuery, Combiner<T> combiner, int from, int to) {
+      this.stations = stations;
+      this.stationQuery = stationQuery;
+      this.combiner = combiner;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<T> compute() {
+      if (to - from == 0) {
+        return List.of();
+      }
+      if (to - from == 1) {
+        Map.Entry<String, TrainRegistry> station = stations.get(from);
+        TrainRegistry trainRegistry = station.getValue();
+        synchronized (trainRegistry) {
+          return stationQuery.run(station.getKey(), trainRegistry);
+        }
+      }
+      int middle = (from + to) >>> 1;
+      StationTask<T> left = new StationTask<>(stations, stationQuery, combiner, from, middle);
+      StationTask<T> right = new StationTask<>(stations, stationQuery, combiner, middle, to);
+      left.fork();
+      List<T> rightResult = right.compute();
+      return combiner.combine(left.join(), rightResult);
+    }
+  }
+}
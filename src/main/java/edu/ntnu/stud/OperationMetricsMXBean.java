@@ -0,0 +1,61 @@
+package edu.ntnu.stud;
+
+/**
+ * Management interface for the metrics of one registry operation,
+ * registered by {@link RegistryMetrics#registerMBeans()}.
+ *
+ *<p>Latencies are in microseconds.
+ *
+ * @see RegistryMetrics
+ */
+public interface OperationMetricsMXBean {
+
+  /**
+   * Method that returns the number of times the operation has been done.
+   *
+   * @return the number of operations.
+   */
+  long getCount();
+
+  /**
+   * Method that returns the number of operations per second in the last whole 10 second
+   * window, or since the metrics were created or reset if no window has ended yet.
+   * Reading the rate does not change it, so every client sees the same rate.
+   *
+   * @return the operation rate.
+   */
+  double getRatePerSecond();
+
+  /**
+   * Method that returns the mean latency.
+   *
+   * @return the mean latency in microseconds.
+   */
+  double getMeanMicros();
+
+  /**
+   * Method that returns the median latency.
+   *
+   * @return the 50th percentile latency in microseconds.
+   */
+  double getP50Micros();
+
+  /**
+   * Method that returns the 99th percentile latency.
+   *
+   * @return the 99th percentile latency in microseconds.
+   */
+  double getP99Micros();
+
+  /**
+   * Method that returns the highest latency.
+   *
+   * @return the highest latency in microseconds.
+   */
+  double getMaxMicros();
+
+  /**
+   * Method that removes all recorded latencies and counts.
+   */
+  void reset();
+}
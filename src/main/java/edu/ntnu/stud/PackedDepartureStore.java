@@ -0,0 +1,481 @@
+package edu.ntnu.stud;
+
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Class that stores departures in parallel primitive arrays instead of TrainDeparture objects.
+ *
+ *<p>Every departure is a row, and every field is a column:
+ * <ul>
+ *     <li>Departure time and delay are stored as minutes after midnight in {@code short}s.</li>
+ *     <li>Train number and track are stored as {@code int}s, -1 meaning no track.</li>
+ *     <li>Line and destination are stored as {@code int} ids into a table of distinct strings,
+ *     so each name is only kept once.</li>
+ * </ul>
+ * Train numbers are mapped to rows with an open addressing hash table of {@code int}s,
+ * so no boxed keys are created. A removed row is filled with the last row.
+ *
+ *<p>Rows are read through a {@link Cursor}, a flyweight that can be moved from row to row.
+ * Validation is the same as in {@link TrainDeparture}.
+ *
+ * @see TrainRegistry
+ * @see TrainDeparture
+ */
+public class PackedDepartureStore {
+  private static final int MINUTES_PER_DAY = 24 * 60;
+  private static final int NO_TRACK = -1;
+
+  private int size = 0;
+  private int[] trainNumbers;
+  private short[] departureMinutes;
+  private short[] delayMinutes;
+  private int[] tracks;
+  private int[] lineIds;
+  private int[] destinationIds;
+
+  private int[] hashKeys;
+  private int[] hashRows;
+
+  private final List<String> strings = new ArrayList<>();
+  private final HashMap<String, Integer> stringIds = new HashMap<>();
+
+  /**
+   * Creates an empty store with room for the given number of departures.
+   * The store grows when more departures are added.
+   *
+   * @param capacity the expected number of departures.
+   */
+  public PackedDepartureStore(int capacity) {
+    int initial = Math.max(capacity, 16);
+    trainNumbers = new int[initial];
+    departureMinutes = new short[initial];
+    delayMinutes = new short[initial];
+    tracks = new int[initial];
+    lineIds = new int[initial];
+    destinationIds = new int[initial];
+    int hashCapacity = Integer.highestOneBit(initial * 2 - 1) << 1;
+    hashKeys = new int[hashCapacity];
+    hashRows = new int[hashCapacity];
+  }
+
+  /**
+   * Creates an empty store.
+   */
+  public PackedDepartureStore() {
+    this(16);
+  }
+
+  /**
+   * A flyweight view of one row in the store.
+   *
+   *<p>The cursor holds no data of its own, so one cursor can be moved over every row
+   * with {@link #moveTo(int)}. Its values change if the row it points to is changed or removed.
+   */
+  public final class Cursor {
+    private int row = -1;
+
+    private Cursor() {
+    }
+
+    /**
+     * Moves the cursor to a row.
+     *
+     * @param row the row, from 0 to {@link #size()} - 1.
+     * @return this cursor.
+     * @throws IndexOutOfBoundsException if there is no such row.
+     */
+    public Cursor moveTo(int row) {
+      this.row = Objects.checkIndex(row, size);
+      return this;
+    }
+
+    /**
+     * Gets the row the cursor points to.
+     *
+     * @return the row.
+     */
+    public int getRow() {
+      return row;
+    }
+
+    /**
+     * Gets the train number of the row.
+     *
+     * @return the train number.
+     */
+    public int getTrainNumber() {
+      return trainNumbers[row];
+    }
+
+    /**
+     * Gets the departure time of the row, in minutes after midnight.
+     *
+     * @return the departure minute.
+     */
+    public int getDepartureMinute() {
+      return departureMinutes[row];
+    }
+
+    /**
+     * Gets the delay of the row, in minutes.
+     *
+     * @return the delay in minutes.
+     */
+    public int getDelayMinutes() {
+      return delayMinutes[row];
+    }
+
+    /**
+     * Gets the departure time with delay, in minutes after midnight.
+     * Like {@link TrainDeparture#getDepartureTimeWithDelay()} it wraps around midnight.
+     *
+     * @return the departure minute with delay.
+     */
+    public int getDepartureMinuteWithDelay() {
+      return (departureMinutes[row] + delayMinutes[row]) % MINUTES_PER_DAY;
+    }
+
+    /**
+     * Gets the track of the row.
+     *
+     * @return the track, or -1 if not set.
+     */
+    public int getTrack() {
+      return tracks[row];
+    }
+
+    /**
+     * Gets the line of the row.
+     *
+     * @return the line.
+     */
+    public String getLine() {
+      return strings.get(lineIds[row]);
+    }
+
+    /**
+     * Gets the destination of the row.
+     *
+     * @return the destination.
+     */
+    public String getDestination() {
+      return strings.get(destinationIds[row]);
+    }
+
+    /**
+     * Gets the departure time of the row.
+     *
+     * @return a LocalTime with the departure time.
+     */
+    public LocalTime getDepartureTime() {
+      return toTime(departureMinutes[row]);
+    }
+
+    /**
+     * Gets the delay of the row in HH:mm.
+     *
+     * @return a LocalTime with the delay.
+     */
+    public LocalTime getDelay() {
+      return toTime(delayMinutes[row]);
+    }
+
+    /**
+     * Creates a TrainDeparture with the values of the row.
+     *
+     * @return a new TrainDeparture.
+     */
+    public TrainDeparture toTrainDeparture() {
+      return new TrainDeparture(getDepartureTime(), getLine(), getDestination(),
+          getTrainNumber(), getTrack(), getDelay());
+    }
+  }
+
+  /**
+   * Method that returns a new cursor, to be moved to a row with {@link Cursor#moveTo(int)}.
+   *
+   * @return a new cursor.
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * Method that returns the number of departures in the store.
+   *
+   * @return the number of departures.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Method that adds a departure to the store, replacing any departure with the same
+   * train number.
+   *
+   * @param departureTime the departure time of the train, in HH:mm.
+   * @param line the line the train is operating on.
+   * @param destination the destination of the train.
+   * @param trainNumber the train number of the train.
+   * @param track the track number of the train, 0 or less if not set.
+   * @param delay the delay of the train, in HH:mm.
+   * @return the row of the departure.
+   * @throws DateTimeException if the departure time or delay has seconds.
+   * @throws NullPointerException if the departure time is 00:00, or any value is null.
+   * @throws IllegalArgumentException if the train number is less than or equal to 0.
+   */
+  public int add(LocalTime departureTime, String line, String destination,
+                 int trainNumber, int track, LocalTime delay) {
+    int departureMinute = toMinutes(departureTime);
+    if (departureMinute == 0) {
+      throw new NullPointerException("Departure time cannot be null");
+    }
+    int delayMinute = toMinutes(delay);
+    if (destination == null) {
+      throw new NullPointerException("Destination cannot be null");
+    }
+    if (line.isEmpty()) {
+      throw new NullPointerException("Line cannot be empty");
+    }
+    if (trainNumber <= 0) {
+      throw new IllegalArgumentException("Train number cannot be less than or equal to 0");
+    }
+    int row = rowOf(trainNumber);
+    if (row < 0) {
+      ensureCapacity(size + 1);
+      row = size++;
+      putRow(trainNumber, row);
+    }
+    trainNumbers[row] = trainNumber;
+    departureMinutes[row] = (short) departureMinute;
+    delayMinutes[row] = (short) delayMinute;
+    tracks[row] = track <= 0 ? NO_TRACK : track;
+    lineIds[row] = stringId(line);
+    destinationIds[row] = stringId(destination);
+    return row;
+  }
+
+  /**
+   * Method that adds a stream of TrainDeparture objects to the store.
+   *
+   * @param departures the departures to be added.
+   */
+  public void addAll(Stream<TrainDeparture> departures) {
+    departures.forEach(trainDeparture -> add(trainDeparture.getDepartureTime(),
+        trainDeparture.getLine(), trainDeparture.getDestination(),
+        trainDeparture.getTrainNumber(), trainDeparture.getTrack(), trainDeparture.getDelay()));
+  }
+
+  /**
+   * Method that finds the row of a train number.
+   *
+   * @param trainNumber the train number to be found.
+   * @return the row, or -1 if the train number is not in the store.
+   */
+  public int rowOf(int trainNumber) {
+    int mask = hashKeys.length - 1;
+    for (int slot = hash(trainNumber) & mask; hashKeys[slot] != 0; slot = (slot + 1) & mask) {
+      if (hashKeys[slot] == trainNumber) {
+        return hashRows[slot];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Method that sets the track of a departure.
+   *
+   * @param trainNumber the train number of the departure.
+   * @param track the track, 0 to remove the track.
+   * @throws IllegalArgumentException if the track is less than 0,
+   *         or if the train number is not in the store.
+   */
+  public void assignTrack(int trainNumber, int track) {
+    if (track < 0) {
+      throw new IllegalArgumentException("Track cannot be less than 0");
+    }
+    tracks[existingRow(trainNumber)] = track == 0 ? NO_TRACK : track;
+  }
+
+  /**
+   * Method that sets the delay of a departure.
+   *
+   * @param trainNumber the train number of the departure.
+   * @param delay the delay in HH:mm.
+   * @throws DateTimeException if the delay is 00:00.
+   * @throws IllegalArgumentException if the train number is not in the store.
+   */
+  public void addDelay(int trainNumber, LocalTime delay) {
+    int delayMinute = toMinutes(delay);
+    if (delayMinute == 0) {
+      throw new DateTimeException("Cannot update delay to 00:00");
+    }
+    delayMinutes[existingRow(trainNumber)] = (short) delayMinute;
+  }
+
+  /**
+   * Method that removes a departure. The last row is moved into the removed row.
+   *
+   * @param trainNumber the train number of the departure to be removed.
+   * @return {@code true} if the departure was removed.
+   */
+  public boolean remove(int trainNumber) {
+    int row = rowOf(trainNumber);
+    if (row < 0) {
+      return false;
+    }
+    removeKey(trainNumber);
+    int last = --size;
+    if (row != last) {
+      trainNumbers[row] = trainNumbers[last];
+      departureMinutes[row] = departureMinutes[last];
+      delayMinutes[row] = delayMinutes[last];
+      tracks[row] = tracks[last];
+      lineIds[row] = lineIds[last];
+      destinationIds[row] = destinationIds[last];
+      putRow(trainNumbers[row], row);
+    }
+    return true;
+  }
+
+  /**
+   * Method that removes all departures where departure time + delay is before the given time.
+   *
+   * @param currentTime the current time.
+   * @return the number of removed departures.
+   */
+  public int removeDeparted(LocalTime currentTime) {
+    int currentMinute = currentTime.getHour() * 60 + currentTime.getMinute();
+    boolean hasSeconds = currentTime.getSecond() != 0 || currentTime.getNano() != 0;
+    int removed = 0;
+    int row = 0;
+    while (row < size) {
+      int minute = (departureMinutes[row] + delayMinutes[row]) % MINUTES_PER_DAY;
+      if (minute < currentMinute || (hasSeconds && minute == currentMinute)) {
+        remove(trainNumbers[row]);
+        removed++;
+      } else {
+        row++;
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Method that returns all rows sorted by departure time and train number.
+   *
+   *<p>The departure time and train number of each row are packed into one {@code long},
+   * so the rows are sorted with a primitive sort, and then looked up by train number.
+   *
+   * @return the rows in departure order.
+   */
+  public int[] rowsByDepartureTime() {
+    long[] keys = new long[size];
+    for (int row = 0; row < size; row++) {
+      keys[row] = ((long) departureMinutes[row] << 32) | trainNumbers[row];
+    }
+    Arrays.sort(keys);
+    int[] rows = new int[size];
+    for (int i = 0; i < size; i++) {
+      rows[i] = rowOf((int) keys[i]);
+    }
+    return rows;
+  }
+
+  private int existingRow(int trainNumber) {
+    int row = rowOf(trainNumber);
+    if (row < 0) {
+      throw new IllegalArgumentException("Train number not found");
+    }
+    return row;
+  }
+
+  private int stringId(String text) {
+    Integer id = stringIds.get(text);
+    if (id == null) {
+      id = strings.size();
+      strings.add(text);
+      stringIds.put(text, id);
+    }
+    return id;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > trainNumbers.length) {
+      int newCapacity = Math.max(capacity, trainNumbers.length * 2);
+      trainNumbers = Arrays.copyOf(trainNumbers, newCapacity);
+      departureMinutes = Arrays.copyOf(departureMinutes, newCapacity);
+      delayMinutes = Arrays.copyOf(delayMinutes, newCapacity);
+      tracks = Arrays.copyOf(tracks, newCapacity);
+      lineIds = Arrays.copyOf(lineIds, newCapacity);
+      destinationIds = Arrays.copyOf(destinationIds, newCapacity);
+    }
+    if (capacity * 2 > hashKeys.length) {
+      int[] oldKeys = hashKeys;
+      int[] oldRows = hashRows;
+      hashKeys = new int[oldKeys.length * 2];
+      hashRows = new int[oldKeys.length * 2];
+      for (int slot = 0; slot < oldKeys.length; slot++) {
+        if (oldKeys[slot] != 0) {
+          putRow(oldKeys[slot], oldRows[slot]);
+        }
+      }
+    }
+  }
+
+  private void putRow(int trainNumber, int row) {
+    int mask = hashKeys.length - 1;
+    int slot = hash(trainNumber) & mask;
+    while (hashKeys[slot] != 0 && hashKeys[slot] != trainNumber) {
+      slot = (slot + 1) & mask;
+    }
+    hashKeys[slot] = trainNumber;
+    hashRows[slot] = row;
+  }
+
+  /**
+   * Removes a train number from the hash table, moving later entries of the same probe
+   * sequence back so that no entry becomes unreachable.
+   */
+  private void removeKey(int trainNumber) {
+    int mask = hashKeys.length - 1;
+    int slot = hash(trainNumber) & mask;
+    while (hashKeys[slot] != trainNumber) {
+      slot = (slot + 1) & mask;
+    }
+    int next = (slot + 1) & mask;
+    while (hashKeys[next] != 0) {
+      int home = hash(hashKeys[next]) & mask;
+      if (((next - home) & mask) >= ((next - slot) & mask)) {
+        hashKeys[slot] = hashKeys[next];
+        hashRows[slot] = hashRows[next];
+        slot = next;
+      }
+      next = (next + 1) & mask;
+    }
+    hashKeys[slot] = 0;
+  }
+
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int toMinutes(LocalTime time) {
+    if (time.getSecond() != 0 || time.getNano() != 0) {
+      throw new DateTimeException("Time must be in the format HH:mm");
+    }
+    return time.getHour() * 60 + time.getMinute();
+  }
+
+  private static LocalTime toTime(int minutes) {
+    return LocalTime.of(minutes / 60, minutes % 60);
+  }
+}
@@ -0,0 +1,220 @@
+package edu.ntnu.stud;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that loads a large timetable file using all cores.
+ *
+ *<p>The file has the same format as the file read by
+ * {@link TrainRegistry#loadDepartures(Path)}, and is loaded in four steps:
+ * <ol>
+ *     <li>The file is split into chunks of about {@code chunkSize} bytes. Every chunk
+ *     boundary is moved forward to just after the next line break,
+ *     so no line is split between two chunks.</li>
+ *     <li>Each chunk is memory-mapped and its bytes are parsed with a
+ *     {@link DepartureParser} in a {@link ForkJoinPool}.</li>
+ *     <li>The parsed chunks are put together in file order.</li>
+ *     <li>All departures are added with
+ *     {@link DepartureRegistry#loadDepartures(java.util.stream.Stream)},
+ *     so the indexes are built once.</li>
+ * </ol>
+ * Since the departures are added in file order, a train number that appears more than once
+ * gets its last row in the file, exactly as when the file is read on one thread.
+ *
+ * @see TrainRegistry#loadDeparturesParallel(Path)
+ */
+public final class ParallelTimetableLoader {
+  static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+  private ParallelTimetableLoader() {
+  }
+
+  /**
+   * Method that loads a timetable file into a registry in the common fork-join pool.
+   *
+   * @param trainRegistry the registry the departures are added to.
+   * @param filePath the path of the timetable file.
+   * @throws IOException if the file cannot be read.
+   */
+  public static void load(DepartureRegistry trainRegistry, Path filePath) throws IOException {
+    load(trainRegistry, filePath, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Method that loads a timetable file into a registry.
+   *
+   * @param trainRegistry the registry the departures are added to.
+   * @param filePath the path of the timetable file.
+   * @param pool the pool the chunks are parsed in.
+   * @param chunkSize the size of a chunk in bytes, before it is moved to a line break.
+   * @throws IOException if the file cannot be read.
+   * @throws IllegalArgumentException if the chunk size is less than 1.
+   */
+  public static void load(DepartureRegistry trainRegistry, Path filePath, ForkJoinPool pool,
+                          int chunkSize) throws IOException {
+    List<List<TrainDeparture>> chunks = parse(filePath, pool, chunkSize);
+    trainRegistry.loadDepartures(chunks.stream().flatMap(List::stream));
+  }
+
+  /**
+   * Method that parses a timetable file in chunks.
+   *
+   * @param filePath the path of the timetable file.
+   * @param pool the pool the chunks are parsed in.
+   * @param chunkSize the size of a chunk in bytes, before it is moved to a line break.
+   * @return the departures of each chunk, with the chunks and the departures in file order.
+   * @throws IOException if the file cannot be read.
+   * @throws IllegalArgumentException if the chunk size is less than 1.
+   */
+  static List<List<TrainDeparture>> parse(Path filePath, ForkJoinPool pool, int chunkSize)
+      throws IOException {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size cannot be less than 1");
+    }
+    try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+      long[] boundaries = chunkBoundaries(channel, chunkSize);
+      List<List<TrainDeparture>> results =
+          new ArrayList<>(Collections.nCopies(boundaries.length - 1, null));
+      try {
+        pool.invoke(new ChunkTask(channel, boundaries, results, 0, results.size()));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      return results;
+    }
+  }
+
+  /**
+   * Method that finds where each chunk starts. Every boundary after the first is just after
+   * a line break, or at the end of the file.
+   *
+   * @param channel the timetable file.
+   * @param chunkSize the size of a chunk before it is moved to a line break.
+   * @return the start of every chunk, followed by the size of the file.
+   */
+  static long[] chunkBoundaries(FileChannel channel, int chunkSize) throws IOException {
+    long size = channel.size();
+    List<Long> boundaries = new ArrayList<>();
+    boundaries.add(0L);
+    ByteBuffer window = ByteBuffer.allocate(4096);
+    long position = chunkSize;
+    while (position < size) {
+      long lineStart = -1;
+      long searched = position;
+      while (lineStart < 0 && searched < size) {
+        window.clear();
+        int read = channel.read(window, searched);
+        if (read <= 0) {
+          break;
+        }
+        for (int i = 0; i < read; i++) {
+          if (window.get(i) == '\n') {
+            lineStart = searched + i + 1;
+            break;
+          }
+        }
+        searched += read;
+      }
+      if (lineStart < 0 || lineStart >= size) {
+        break;
+      }
+      boundaries.add(lineStart);
+      position = lineStart + chunkSize;
+    }
+    boundaries.add(size);
+    return boundaries.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * Method that parses the lines of one chunk. The first line of the file,
+   * which contains the column names, and blank lines are skipped.
+   *
+   * @param chunk the mapped chunk.
+   * @param firstChunk {@code true} if the chunk is at the start of the file.
+   * @return the departures of the chunk, in file order.
+   */
+  static List<TrainDeparture> parseChunk(ByteBuffer chunk, boolean firstChunk) {
+    List<TrainDeparture> departures = new ArrayList<>(chunk.limit() / 48 + 1);
+    byte[] line = new byte[256];
+    DepartureParser parser = new DepartureParser();
+    boolean skipLine = firstChunk;
+    int lineStart = 0;
+    int limit = chunk.limit();
+    for (int i = 0; i <= limit; i++) {
+      if (i < limit && chunk.get(i) != '\n') {
+        continue;
+      }
+      int length = i - lineStart;
+      if (skipLine) {
+        skipLine = false;
+      } else if (length > 0) {
+        if (line.length < length) {
+          line = new byte[Math.max(length, line.length * 2)];
+        }
+        chunk.get(lineStart, line, 0, length);
+        if (!DepartureParser.isBlank(line, 0, length)) {
+          departures.add(parser.parse(line, 0, length));
+        }
+      }
+      lineStart = i + 1;
+    }
+    return departures;
+  }
+
+  /**
+   * Task that maps and parses a range of chunks, splitting the range in halves
+   * until one chunk is left.
+   */
+  private static final class ChunkTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final FileChannel channel;
+    private final long[] boundaries;
+    private final List<List<TrainDeparture>> results;
+    private final int from;
+    private final int to;
+
+    ChunkTask(FileChannel channel, long[] boundaries, List<List<TrainDeparture>> results,
+              int from, int to) {
+      this.channel = channel;
+      this.boundaries = boundaries;
+      this.results = results;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new ChunkTask(channel, boundaries, results, from, middle),
+            new ChunkTask(channel, boundaries, results, middle, to));
+        return;
+      }
+      if (to == from) {
+        return;
+      }
+      long start = boundaries[from];
+      long length = boundaries[from + 1] - start;
+      try {
+        if (length > Integer.MAX_VALUE) {
+          throw new IOException("Line is too long at position " + start);
+        }
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        results.set(from, parseChunk(chunk, from == 0));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,304 @@
+package edu.ntnu.stud;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Class that collects the number of operations and their latencies for a registry
+ * and the user interface.
+ *
+ *<p>An operation is measured by taking {@link #start()} before it and calling
+ * {@link #record(Operation, long)} after it. Each {@link Operation} has a
+ * {@link LatencyHistogram}, so recording never locks and never allocates.
+ *
+ *<p>The metrics can be read in three ways:
+ * <ul>
+ *     <li>With {@link #get(Operation)} in code.</li>
+ *     <li>Through JMX, after {@link #registerMBeans()}, as one {@link OperationMetricsMXBean}
+ *     per operation, for example in JConsole or VisualVM.</li>
+ *     <li>As a text table written every interval by {@link #startDump(Duration, Consumer)}.</li>
+ * </ul>
+ *
+ * @see TrainRegistry#setMetrics(RegistryMetrics)
+ */
+public class RegistryMetrics implements Closeable {
+
+  /**
+   * The operations that are measured.
+   */
+  public enum Operation {
+    ADD, LOOKUP, DELAY, TRACK, REMOVE_DEPARTED, LOAD, BOARD_PRINT;
+
+    private String displayName() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private static final Operation[] OPERATIONS = Operation.values();
+  /** The window that {@link OperationMetricsMXBean#getRatePerSecond()} is measured over. */
+  static final Duration RATE_WINDOW = Duration.ofSeconds(10);
+
+  private final String name;
+  private final OperationMetrics[] metrics = new OperationMetrics[OPERATIONS.length];
+  private final List<ObjectName> registeredNames = new ArrayList<>();
+  private final long[] dumpCounts = new long[OPERATIONS.length];
+  private long dumpNanos = System.nanoTime();
+  private ScheduledExecutorService dumpExecutor = null;
+  private ScheduledExecutorService rateSampler = null;
+
+  /**
+   * Creates metrics with the name "default".
+   */
+  public RegistryMetrics() {
+    this("default");
+  }
+
+  /**
+   * Creates metrics with a name, which is used in the JMX object names.
+   *
+   * @param name the name of the metrics, such as the name of the station.
+   */
+  public RegistryMetrics(String name) {
+    this.name = name;
+    for (Operation operation : OPERATIONS) {
+      metrics[operation.ordinal()] = new OperationMetrics();
+    }
+  }
+
+  /**
+   * Method that returns the start time of an operation.
+   *
+   * @return the current value of {@link System#nanoTime()}.
+   */
+  public long start() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Method that records an operation that has finished.
+   *
+   * @param operation the operation.
+   * @param startNanos the time returned by {@link #start()} before the operation.
+   */
+  public void record(Operation operation, long startNanos) {
+    metrics[operation.ordinal()].histogram.record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Method that returns the metrics of one operation.
+   *
+   * @param operation the operation.
+   * @return the metrics of the operation.
+   */
+  public OperationMetricsMXBean get(Operation operation) {
+    return metrics[operation.ordinal()];
+  }
+
+  /**
+   * Method that registers one {@link OperationMetricsMXBean} per operation in the
+   * platform MBean server, named
+   * {@code edu.ntnu.stud:type=RegistryMetrics,name=<name>,operation=<operation>}.
+   *
+   *<p>Also starts sampling the count of every operation each {@link #RATE_WINDOW} on a
+   * background thread, so the rate read by every JMX client is the rate of the last
+   * window, whoever reads it and however often.
+   *
+   * @throws JMException if the MBeans cannot be registered,
+   *         for example if metrics with the same name are already registered.
+   */
+  public synchronized void registerMBeans() throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (Operation operation : OPERATIONS) {
+      ObjectName objectName = new ObjectName("edu.ntnu.stud:type=RegistryMetrics,name="
+          + ObjectName.quote(name) + ",operation=" + operation.displayName());
+      server.registerMBean(metrics[operation.ordinal()], objectName);
+      registeredNames.add(objectName);
+    }
+    if (rateSampler == null) {
+      rateSampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metrics-rate");
+        thread.setDaemon(true);
+        return thread;
+      });
+      long nanos = RATE_WINDOW.toNanos();
+      rateSampler.scheduleAtFixedRate(this::sampleRates, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Method that ends the current rate window of every operation and starts a new one.
+   * Called every {@link #RATE_WINDOW} once the MBeans are registered.
+   */
+  void sampleRates() {
+    long now = System.nanoTime();
+    for (OperationMetrics operationMetrics : metrics) {
+      operationMetrics.sample(now);
+    }
+  }
+
+  /**
+   * Method that removes the MBeans registered by {@link #registerMBeans()},
+   * and stops sampling the rates.
+   *
+   * @throws JMException if an MBean cannot be removed.
+   */
+  public synchronized void unregisterMBeans() throws JMException {
+    if (rateSampler != null) {
+      rateSampler.shutdownNow();
+      rateSampler = null;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    while (!registeredNames.isEmpty()) {
+      ObjectName objectName = registeredNames.remove(registeredNames.size() - 1);
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    }
+  }
+
+  /**
+   * Method that starts writing {@link #dump()} to an output every interval,
+   * on a background thread. A dump that was already started is stopped first.
+   *
+   * @param interval the time between two dumps.
+   * @param output receives the text of each dump, such as {@code System.err::print}.
+   */
+  public synchronized void startDump(Duration interval, Consumer<String> output) {
+    stopDump();
+    dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "metrics-dump");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long nanos = interval.toNanos();
+    dumpExecutor.scheduleAtFixedRate(() -> output.accept(dump()), nanos, nanos,
+        TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Method that stops the dump started by {@link #startDump(Duration, Consumer)}.
+   */
+  public synchronized void stopDump() {
+    if (dumpExecutor != null) {
+      dumpExecutor.shutdownNow();
+      dumpExecutor = null;
+    }
+  }
+
+  /**
+   * Method that returns a text table with the metrics of every operation that has been done.
+   * The rate is the number of operations per second since the previous dump.
+   *
+   * @return the table.
+   */
+  public synchronized String dump() {
+    long now = System.nanoTime();
+    double seconds = Math.max(now - dumpNanos, 1) / 1e9;
+    StringBuilder table = new StringBuilder();
+    table.append(String.format(Locale.ROOT, "Registry metrics %s (last %.1f s)%n", name, seconds));
+    table.append(String.format(Locale.ROOT, "%-16s %10s %10s %10s %10s %10s %10s%n",
+        "operation", "count", "rate/s", "mean us", "p50 us", "p99 us", "max us"));
+    for (Operation operation : OPERATIONS) {
+      OperationMetrics operationMetrics = metrics[operation.ordinal()];
+      long count = operationMetrics.getCount();
+      if (count == 0) {
+        continue;
+      }
+      long previousCount = dumpCounts[operation.ordinal()];
+      long newCount = count >= previousCount ? count - previousCount : count;
+      table.append(String.format(Locale.ROOT,
+          "%-16s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+          operation.displayName(), count, newCount / seconds,
+          operationMetrics.getMeanMicros(), operationMetrics.getP50Micros(),
+          operationMetrics.getP99Micros(), operationMetrics.getMaxMicros()));
+      dumpCounts[operation.ordinal()] = count;
+    }
+    dumpNanos = now;
+    return table.toString();
+  }
+
+  /**
+   * Method that stops the dump and removes the MBeans.
+   */
+  @Override
+  public void close() {
+    stopDump();
+    try {
+      unregisterMBeans();
+    } catch (JMException e) {
+      // the MBean server is shutting down, nothing left to clean up
+    }
+  }
+
+  /**
+   * The metrics of one operation.
+   */
+  private static final class OperationMetrics implements OperationMetricsMXBean {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long resetNanos = System.nanoTime();
+    private long sampleCount = 0;
+    private long sampleNanos = resetNanos;
+    /** The rate of the last whole window, or -1 if no window has ended since the reset. */
+    private double windowRate = -1;
+
+    @Override
+    public long getCount() {
+      return histogram.getCount();
+    }
+
+    @Override
+    public synchronized double getRatePerSecond() {
+      if (windowRate >= 0) {
+        return windowRate;
+      }
+      return histogram.getCount() / (Math.max(System.nanoTime() - resetNanos, 1) / 1e9);
+    }
+
+    synchronized void sample(long now) {
+      long count = histogram.getCount();
+      windowRate = Math.max(count - sampleCount, 0) / (Math.max(now - sampleNanos, 1) / 1e9);
+      sampleCount = count;
+      sampleNanos = now;
+    }
+
+    @Override
+    public double getMeanMicros() {
+      return histogram.getMean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+      return histogram.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+      return histogram.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+      return histogram.getMax() / 1e3;
+    }
+
+    @Override
+    public synchronized void reset() {
+      histogram.reset();
+      resetNanos = System.nanoTime();
+      sampleCount = 0;
+      sampleNanos = resetNanos;
+      windowRate = -1;
+    }
+  }
+}
@@ -0,0 +1,348 @@
+package edu.ntnu.stud;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Class that represents an immutable, versioned view of a {@link TrainRegistry}.
+ *
+ *<p>A snapshot is published by the registry after every change, and read with
+ * {@link TrainRegistry#snapshot()}, which is one volatile read. A reader can therefore
+ * render a board or look up departures from another thread, without locking and without
+ * seeing half of an update, while the registry keeps changing.
+ *
+ *<p>The departures of a snapshot are read-only copies made with
+ * {@link TrainDeparture#copy()}, so their setters throw. They are stored in chunks of
+ * {@code CHUNK_SIZE / 2} to {@code 2 * CHUNK_SIZE} departures, once in departure order and
+ * once in train number order. A chunk that grows too large is split, and a chunk that
+ * shrinks too small is merged with its neighbour, so only a snapshot with a single chunk
+ * can have a smaller one. A chunk is never changed after it is published: a change copies
+ * the chunks it touches, and the new snapshot shares every other chunk with the previous
+ * one. Publishing a change therefore costs a few chunk copies and one copy of the array
+ * of chunks, not a copy of the registry.
+ *
+ * @see TrainRegistry#snapshot()
+ */
+public final class RegistrySnapshot {
+  static final int CHUNK_SIZE = 128;
+
+  private static final Comparator<TrainDeparture> NUMBER_ORDER =
+      Comparator.comparingInt(TrainDeparture::getTrainNumber);
+
+  private final long version;
+  private final Chunks byDepartureTime;
+  private final Chunks byTrainNumber;
+
+  private RegistrySnapshot(long version, Chunks byDepartureTime, Chunks byTrainNumber) {
+    this.version = version;
+    this.byDepartureTime = byDepartureTime;
+    this.byTrainNumber = byTrainNumber;
+  }
+
+  /**
+   * Method that returns the version of the snapshot. Every snapshot published by a registry
+   * has a higher version than the one before it.
+   *
+   * @return the version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Method that returns the number of departures in the snapshot.
+   *
+   * @return the number of departures.
+   */
+  public int size() {
+    return byDepartureTime.size;
+  }
+
+  /**
+   * Method that returns all departures, sorted by departure time and train number.
+   *
+   * @return a read-only list, which never changes.
+   */
+  public List<TrainDeparture> getTrainDepartures() {
+    return byDepartureTime;
+  }
+
+  /**
+   * Method that finds a departure using the train number.
+   *
+   * @param trainNumber the train number of the departure to be found.
+   * @return the departure, or {@code null} if it is not in the snapshot.
+   */
+  public TrainDeparture departureFromNumber(int trainNumber) {
+    Chunks chunks = byTrainNumber;
+    int low = 0;
+    int high = chunks.chunks.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      TrainDeparture[] chunk = chunks.chunks[middle];
+      if (chunk[chunk.length - 1].getTrainNumber() < trainNumber) {
+        low = middle + 1;
+      } else if (chunk[0].getTrainNumber() > trainNumber) {
+        high = middle - 1;
+      } else {
+        int i = binarySearchNumber(chunk, trainNumber);
+        return i >= 0 ? chunk[i] : null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Method that returns the number of departures in each chunk, in departure order and in
+   * train number order. Used to check that chunks are split and merged.
+   *
+   * @return the chunk sizes of the two orders.
+   */
+  int[][] chunkSizes() {
+    return new int[][] {byDepartureTime.chunkSizes(), byTrainNumber.chunkSizes()};
+  }
+
+  private static int binarySearchNumber(TrainDeparture[] chunk, int trainNumber) {
+    int low = 0;
+    int high = chunk.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int number = chunk[middle].getTrainNumber();
+      if (number < trainNumber) {
+        low = middle + 1;
+      } else if (number > trainNumber) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Sorted departures stored in chunks that are never changed.
+   */
+  private static final class Chunks extends AbstractList<TrainDeparture>
+      implements RandomAccess {
+    private final TrainDeparture[][] chunks;
+    /** The index of the first departure of each chunk. */
+    private final int[] offsets;
+    private final int size;
+
+    Chunks(TrainDeparture[][] chunks) {
+      this.chunks = chunks;
+      this.offsets = new int[chunks.length];
+      int total = 0;
+      for (int i = 0; i < chunks.length; i++) {
+        offsets[i] = total;
+        total += chunks[i].length;
+      }
+      this.size = total;
+    }
+
+    @Override
+    public TrainDeparture get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      int chunk = Arrays.binarySearch(offsets, index);
+      if (chunk < 0) {
+        chunk = -chunk - 2;
+      }
+      return chunks[chunk][index - offsets[chunk]];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    int[] chunkSizes() {
+      int[] sizes = new int[chunks.length];
+      for (int i = 0; i < chunks.length; i++) {
+        sizes[i] = chunks[i].length;
+      }
+      return sizes;
+    }
+  }
+
+  /**
+   * Class that keeps the chunks of the next snapshot up to date while the registry changes.
+   * Only used by the registry, while holding its lock.
+   */
+  static final class Builder {
+    private final ChunkList byDepartureTime = new ChunkList(TrainRegistry.DEPARTURE_ORDER);
+    private final ChunkList byTrainNumber = new ChunkList(NUMBER_ORDER);
+
+    /**
+     * Method that replaces all departures.
+     *
+     * @param departures the departures, sorted by departure time and train number.
+     */
+    void reset(List<TrainDeparture> departures) {
+      List<TrainDeparture> copies = new ArrayList<>(departures.size());
+      for (TrainDeparture trainDeparture : departures) {
+        copies.add(trainDeparture.copy());
+      }
+      byDepartureTime.reset(copies);
+      copies.sort(NUMBER_ORDER);
+      byTrainNumber.reset(copies);
+    }
+
+    /**
+     * Method that adds a copy of a departure, or replaces the copy with the same
+     * departure time and train number.
+     *
+     * @param trainDeparture the departure in the registry.
+     */
+    void put(TrainDeparture trainDeparture) {
+      TrainDeparture copy = trainDeparture.copy();
+      byDepartureTime.put(copy);
+      byTrainNumber.put(copy);
+    }
+
+    /**
+     * Method that removes the copy of a departure.
+     *
+     * @param trainDeparture the departure that was in the registry.
+     */
+    void remove(TrainDeparture trainDeparture) {
+      byDepartureTime.remove(trainDeparture);
+      byTrainNumber.remove(trainDeparture);
+    }
+
+    /**
+     * Method that creates a snapshot of the current chunks. Later changes to the builder
+     * do not change the snapshot.
+     *
+     * @param version the version of the snapshot.
+     * @return the snapshot.
+     */
+    RegistrySnapshot build(long version) {
+      return new RegistrySnapshot(version, byDepartureTime.freeze(), byTrainNumber.freeze());
+    }
+  }
+
+  /**
+   * The chunks of one order in the builder. A chunk that is changed is replaced by a copy,
+   * so the arrays that earlier snapshots share are never written to.
+   */
+  private static final class ChunkList {
+    private final Comparator<TrainDeparture> order;
+    private final ArrayList<TrainDeparture[]> chunks = new ArrayList<>();
+
+    ChunkList(Comparator<TrainDeparture> order) {
+      this.order = order;
+    }
+
+    void reset(List<TrainDeparture> departures) {
+      chunks.clear();
+      int from = 0;
+      while (from < departures.size()) {
+        int to = Math.min(from + CHUNK_SIZE, departures.size());
+        if (departures.size() - to < CHUNK_SIZE / 2) {
+          to = departures.size();
+        }
+        chunks.add(departures.subList(from, to).toArray(new TrainDeparture[0]));
+        from = to;
+      }
+    }
+
+    void put(TrainDeparture trainDeparture) {
+      if (chunks.isEmpty()) {
+        chunks.add(new TrainDeparture[] {trainDeparture});
+        return;
+      }
+      int c = chunkFor(trainDeparture);
+      TrainDeparture[] chunk = chunks.get(c);
+      int i = Arrays.binarySearch(chunk, trainDeparture, order);
+      if (i >= 0) {
+        TrainDeparture[] replaced = chunk.clone();
+        replaced[i] = trainDeparture;
+        chunks.set(c, replaced);
+        return;
+      }
+      i = -i - 1;
+      TrainDeparture[] inserted = new TrainDeparture[chunk.length + 1];
+      System.arraycopy(chunk, 0, inserted, 0, i);
+      inserted[i] = trainDeparture;
+      System.arraycopy(chunk, i, inserted, i + 1, chunk.length - i);
+      if (inserted.length > 2 * CHUNK_SIZE) {
+        chunks.set(c, Arrays.copyOfRange(inserted, 0, CHUNK_SIZE));
+        chunks.add(c + 1, Arrays.copyOfRange(inserted, CHUNK_SIZE, inserted.length));
+      } else {
+        chunks.set(c, inserted);
+      }
+    }
+
+    void remove(TrainDeparture trainDeparture) {
+      if (chunks.isEmpty()) {
+        return;
+      }
+      int c = chunkFor(trainDeparture);
+      TrainDeparture[] chunk = chunks.get(c);
+      int i = Arrays.binarySearch(chunk, trainDeparture, order);
+      if (i < 0) {
+        return;
+      }
+      if (chunk.length == 1) {
+        chunks.remove(c);
+        return;
+      }
+      TrainDeparture[] removed = new TrainDeparture[chunk.length - 1];
+      System.arraycopy(chunk, 0, removed, 0, i);
+      System.arraycopy(chunk, i + 1, removed, i, chunk.length - i - 1);
+      chunks.set(c, removed);
+      if (removed.length < CHUNK_SIZE / 2 && chunks.size() > 1) {
+        merge(c < chunks.size() - 1 ? c : c - 1);
+      }
+    }
+
+    /**
+     * Method that merges a chunk with the chunk after it. If the merged chunk would be
+     * larger than {@code 2 * CHUNK_SIZE}, it is split into two halves instead,
+     * which are both at least {@code CHUNK_SIZE / 2} since one of the chunks was.
+     */
+    private void merge(int c) {
+      TrainDeparture[] first = chunks.get(c);
+      TrainDeparture[] second = chunks.get(c + 1);
+      TrainDeparture[] merged = Arrays.copyOf(first, first.length + second.length);
+      System.arraycopy(second, 0, merged, first.length, second.length);
+      if (merged.length > 2 * CHUNK_SIZE) {
+        int half = merged.length / 2;
+        chunks.set(c, Arrays.copyOfRange(merged, 0, half));
+        chunks.set(c + 1, Arrays.copyOfRange(merged, half, merged.length));
+      } else {
+        chunks.set(c, merged);
+        chunks.remove(c + 1);
+      }
+    }
+
+    /**
+     * Method that finds the chunk a departure belongs in: the first chunk whose last
+     * departure is not before it, or the last chunk.
+     */
+    private int chunkFor(TrainDeparture trainDeparture) {
+      int low = 0;
+      int high = chunks.size() - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        TrainDeparture[] chunk = chunks.get(middle);
+        if (order.compare(chunk[chunk.length - 1], trainDeparture) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    Chunks freeze() {
+      return new Chunks(chunks.toArray(new TrainDeparture[0][]));
+    }
+  }
+}
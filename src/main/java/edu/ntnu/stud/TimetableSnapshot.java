@@ -0,0 +1,204 @@
+package edu.ntnu.stud;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Class that saves and loads the departures of a registry in a compact binary file.
+ *
+ *<p>A snapshot is much faster to load than the text timetable, since no text has to be
+ * split or parsed. The file has three parts, all numbers big-endian:
+ * <ol>
+ *     <li>A header: the magic number {@link #MAGIC}, the format {@link #VERSION},
+ *     the number of strings and the number of departures.</li>
+ *     <li>A string table with every distinct line and destination once,
+ *     each as a length and UTF-8 bytes.</li>
+ *     <li>One fixed-width record of {@link #RECORD_SIZE} bytes per departure:
+ *     train number, departure minute, delay minute, track,
+ *     and the positions of the line and destination in the string table.</li>
+ * </ol>
+ *
+ *<p>The whole file is read with one bulk read, and the departures are added to the
+ * registry with {@link DepartureRegistry#loadDepartures(java.util.stream.Stream)},
+ * so the indexes are built once.
+ *
+ * @see TrainRegistry#saveSnapshot(Path)
+ * @see TrainRegistry#loadSnapshot(Path)
+ */
+public final class TimetableSnapshot {
+  static final int MAGIC = 0x54445331; // "TDS1"
+  static final int VERSION = 1;
+  static final int RECORD_SIZE = 20;
+
+  private TimetableSnapshot() {
+  }
+
+  /**
+   * Method that writes all departures of a registry to a snapshot file.
+   * An existing file is replaced.
+   *
+   *<p>The snapshot is first written to a temporary file in the same directory and forced to
+   * disk, and then moved over the old file in one atomic step. After a crash the file is
+   * therefore either the old snapshot or the complete new one, never a partly written one.
+   *
+   * @param trainRegistry the registry to be saved.
+   * @param filePath the path of the snapshot file.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void save(DepartureRegistry trainRegistry, Path filePath) throws IOException {
+    List<TrainDeparture> departures = trainRegistry.getTrainDepartures();
+    List<String> strings = new ArrayList<>();
+    HashMap<String, Integer> stringIds = new HashMap<>();
+    int[] lineIds = new int[departures.size()];
+    int[] destinationIds = new int[departures.size()];
+    for (int i = 0; i < departures.size(); i++) {
+      lineIds[i] = stringId(departures.get(i).getLine(), strings, stringIds);
+      destinationIds[i] = stringId(departures.get(i).getDestination(), strings, stringIds);
+    }
+
+    Path directory = filePath.toAbsolutePath().getParent();
+    Path tempFile = Files.createTempFile(directory, filePath.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+        DataOutputStream output = new DataOutputStream(
+            new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(strings.size());
+        output.writeInt(departures.size());
+        for (String text : strings) {
+          byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+          output.writeInt(bytes.length);
+          output.write(bytes);
+        }
+        for (int i = 0; i < departures.size(); i++) {
+          TrainDeparture trainDeparture = departures.get(i);
+          output.writeInt(trainDeparture.getTrainNumber());
+          output.writeShort(toMinutes(trainDeparture.getDepartureTime()));
+          output.writeShort(toMinutes(trainDeparture.getDelay()));
+          output.writeInt(trainDeparture.getTrack());
+          output.writeInt(lineIds[i]);
+          output.writeInt(destinationIds[i]);
+        }
+        output.flush();
+        channel.force(true);
+      }
+      Files.move(tempFile, filePath, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+    syncDirectory(directory);
+  }
+
+  /**
+   * Method that forces a directory to disk, so a file moved into it survives a crash.
+   * Not every platform can open a directory, so failing to do so is ignored.
+   *
+   * @param directory the directory.
+   */
+  private static void syncDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // the move is still atomic, it is only not known to be on disk yet
+    }
+  }
+
+  /**
+   * Method that reads a snapshot file and adds its departures to a registry.
+   *
+   * @param trainRegistry the registry the departures are added to.
+   * @param filePath the path of the snapshot file.
+   * @throws IOException if the file cannot be read, is not a snapshot, has an unsupported
+   *         version, or is truncated or corrupt, such as a record with an invalid time
+   *         or train number.
+   */
+  public static void load(DepartureRegistry trainRegistry, Path filePath) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      if (fileSize > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot is too large: " + filePath);
+      }
+      buffer = ByteBuffer.allocate((int) fileSize);
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // read until the buffer is full
+      }
+      buffer.flip();
+    }
+
+    TrainDeparture[] departures;
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a timetable snapshot: " + filePath);
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported snapshot version " + version + ": " + filePath);
+      }
+      int stringCount = buffer.getInt();
+      int departureCount = buffer.getInt();
+      if (stringCount < 0 || departureCount < 0
+          || (long) departureCount * RECORD_SIZE > buffer.remaining()) {
+        throw new IOException("Snapshot is truncated or corrupt: " + filePath);
+      }
+      String[] strings = new String[stringCount];
+      departures = new TrainDeparture[departureCount];
+      for (int i = 0; i < strings.length; i++) {
+        int length = buffer.getInt();
+        strings[i] = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+      }
+      for (int i = 0; i < departures.length; i++) {
+        int trainNumber = buffer.getInt();
+        LocalTime departureTime = toTime(buffer.getShort());
+        LocalTime delay = toTime(buffer.getShort());
+        int track = buffer.getInt();
+        departures[i] = new TrainDeparture(departureTime, strings[buffer.getInt()],
+            strings[buffer.getInt()], trainNumber, track, delay);
+      }
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | DateTimeException
+             | IllegalArgumentException | NullPointerException e) {
+      // a corrupt record can hold an invalid time, string id, or departure
+      throw new IOException("Snapshot is truncated or corrupt: " + filePath, e);
+    }
+    trainRegistry.loadDepartures(Arrays.stream(departures));
+  }
+
+  private static int stringId(String text, List<String> strings,
+                              HashMap<String, Integer> stringIds) {
+    Integer id = stringIds.get(text);
+    if (id == null) {
+      id = strings.size();
+      strings.add(text);
+      stringIds.put(text, id);
+    }
+    return id;
+  }
+
+  private static int toMinutes(LocalTime time) {
+    return time.getHour() * 60 + time.getMinute();
+  }
+
+  private static LocalTime toTime(int minutes) {
+    return LocalTime.of(minutes / 60, minutes % 60);
+  }
+}
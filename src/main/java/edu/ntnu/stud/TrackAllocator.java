@@ -0,0 +1,221 @@
+package edu.ntnu.stud;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Class that assigns tracks to the departures of a registry that have no track.
+ *
+ *<p>A departure occupies its track for the dwell time before its departure time with delay,
+ * the same model as {@link TrackConflicts}. Since every occupancy has the same length,
+ * the departures are planned in one sweep in order of departure time with delay:
+ * <ul>
+ *     <li>Tracks that are occupied wait in a {@link PriorityQueue} ordered by the time
+ *     they are released, and are moved to the free tracks when the sweep reaches it.</li>
+ *     <li>A departure that already had a track when the plan started keeps it, and
+ *     reserves its track.</li>
+ *     <li>A departure without a track gets the free track whose next reservation is the
+ *     earliest one that still leaves room for it, so tracks without reservations are kept
+ *     for later departures. If no free track has room, the departure is left without
+ *     a track.</li>
+ * </ul>
+ * The sweep costs O(n log n) for n departures.
+ *
+ *<p>Tracks that were assigned by the allocator are planned again every time
+ * {@link #allocate()} is called, so calling it after delays re-plans them. A track that was
+ * assigned by hand after that is kept like any other existing track.
+ *
+ * @see TrackConflicts
+ */
+public class TrackAllocator {
+
+  /**
+   * The result of a plan.
+   *
+   * @param changed the number of departures that got a new track.
+   * @param unallocated the train numbers of the departures that could not get a track,
+   *                    in departure order.
+   */
+  public record Result(int changed, List<Integer> unallocated) {
+  }
+
+  private static final long NO_RESERVATION = Integer.MAX_VALUE;
+
+  private final TrainRegistry trainRegistry;
+  private final int dwellSeconds;
+  private final int trackCount;
+  /** The tracks assigned by the last plan, by train number. */
+  private final HashMap<Integer, Integer> allocated = new HashMap<>();
+
+  /**
+   * Creates an allocator for a registry.
+   *
+   * @param trainRegistry the registry.
+   * @param dwellTime how long a departure occupies its track before it departs.
+   * @param trackCount the number of tracks of the station, numbered from 1. Tracks with a
+   *                   higher number that are already used by a departure are also used.
+   * @throws IllegalArgumentException if the dwell time is not between 0 and 24 hours,
+   *                                  or the track count is less than 1.
+   */
+  public TrackAllocator(TrainRegistry trainRegistry, Duration dwellTime, int trackCount) {
+    if (dwellTime.isNegative() || dwellTime.isZero() || dwellTime.toHours() >= 24) {
+      throw new IllegalArgumentException("Dwell time must be between 0 and 24 hours");
+    }
+    if (trackCount < 1) {
+      throw new IllegalArgumentException("Track count cannot be less than 1");
+    }
+    this.trainRegistry = trainRegistry;
+    this.dwellSeconds = (int) dwellTime.toSeconds();
+    this.trackCount = trackCount;
+  }
+
+  /**
+   * Method that plans the tracks of every departure without a track, and of every departure
+   * whose track was assigned by this allocator, and applies the plan to the registry as
+   * one {@link DepartureBatch} while holding the lock of the registry.
+   *
+   * @return the number of changed departures and the departures left without a track.
+   */
+  public Result allocate() {
+    synchronized (trainRegistry) {
+      List<TrainDeparture> departures = trainRegistry.getTrainDepartures();
+      int[] plan = plan(departures);
+      DepartureBatch batch = new DepartureBatch();
+      List<Integer> unallocated = new ArrayList<>();
+      HashMap<Integer, Integer> planned = new HashMap<>();
+      for (int i = 0; i < departures.size(); i++) {
+        TrainDeparture trainDeparture = departures.get(i);
+        if (plan[i] == 0) {
+          continue;
+        }
+        int trainNumber = trainDeparture.getTrainNumber();
+        int track = Math.max(plan[i], 0);
+        if (plan[i] < 0) {
+          unallocated.add(trainNumber);
+        } else {
+          planned.put(trainNumber, track);
+        }
+        if (track != Math.max(trainDeparture.getTrack(), 0)) {
+          batch.assignTrack(trainNumber, track);
+        }
+      }
+      int changed = batch.size() > 0 ? trainRegistry.applyBatch(batch).applied() : 0;
+      allocated.clear();
+      allocated.putAll(planned);
+      return new Result(changed, List.copyOf(unallocated));
+    }
+  }
+
+  /**
+   * Method that plans the tracks of a list of departures.
+   *
+   * @param departures the departures, sorted by departure time and train number.
+   * @return for each departure, 0 if it keeps its track, the planned track,
+   *         or -1 if it could not get a track.
+   */
+  int[] plan(List<TrainDeparture> departures) {
+    int n = departures.size();
+    int[] times = new int[n];
+    boolean[] free = new boolean[n];
+    HashMap<Integer, Integer> trackIndexes = new HashMap<>();
+    List<Integer> trackNumbers = new ArrayList<>();
+    for (int track = 1; track <= trackCount; track++) {
+      trackIndexes.put(track, trackNumbers.size());
+      trackNumbers.add(track);
+    }
+    for (int i = 0; i < n; i++) {
+      TrainDeparture trainDeparture = departures.get(i);
+      times[i] = trainDeparture.getDepartureTimeWithDelay().toSecondOfDay();
+      int track = trainDeparture.getTrack();
+      Integer allocatedTrack = allocated.get(trainDeparture.getTrainNumber());
+      free[i] = track < 0 || (allocatedTrack != null && allocatedTrack == track);
+      if (!free[i] && !trackIndexes.containsKey(track)) {
+        trackIndexes.put(track, trackNumbers.size());
+        trackNumbers.add(track);
+      }
+    }
+
+    // sweep order: time with delay, reserved departures before free ones, then list order
+    long[] sortKeys = new long[n];
+    for (int i = 0; i < n; i++) {
+      sortKeys[i] = (long) times[i] << 32 | (free[i] ? 1L << 31 : 0) | i;
+    }
+    Arrays.sort(sortKeys);
+    int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = (int) (sortKeys[i] & Integer.MAX_VALUE);
+    }
+
+    int tracks = trackNumbers.size();
+    int[][] reservations = new int[tracks][];
+    int[] reservationCounts = new int[tracks];
+    for (int i = 0; i < n; i++) {
+      if (!free[i]) {
+        reservationCounts[trackIndexes.get(departures.get(i).getTrack())]++;
+      }
+    }
+    for (int t = 0; t < tracks; t++) {
+      reservations[t] = new int[reservationCounts[t]];
+      reservationCounts[t] = 0;
+    }
+    for (int i : order) {
+      if (!free[i]) {
+        int t = trackIndexes.get(departures.get(i).getTrack());
+        reservations[t][reservationCounts[t]++] = times[i];
+      }
+    }
+
+    int[] nextReservation = new int[tracks];
+    long[] releaseAt = new long[tracks];
+    long[] idleKey = new long[tracks];
+    PriorityQueue<Long> busy = new PriorityQueue<>();
+    TreeSet<Long> idle = new TreeSet<>();
+    for (int t = 0; t < tracks; t++) {
+      idleKey[t] = idleKey(reservations[t], nextReservation[t], t);
+      idle.add(idleKey[t]);
+    }
+
+    int[] plan = new int[n];
+    for (int i : order) {
+      long time = times[i];
+      while (!busy.isEmpty() && busy.peek() >>> 32 <= time) {
+        long released = busy.poll();
+        int t = (int) released;
+        if (released >>> 32 == releaseAt[t] && idleKey[t] < 0) {
+          idleKey[t] = idleKey(reservations[t], nextReservation[t], t);
+          idle.add(idleKey[t]);
+        }
+      }
+      int t;
+      if (free[i]) {
+        Long key = idle.ceiling((time + dwellSeconds) << 32);
+        if (key == null) {
+          plan[i] = -1;
+          continue;
+        }
+        t = (int) (long) key;
+        plan[i] = trackNumbers.get(t);
+      } else {
+        t = trackIndexes.get(departures.get(i).getTrack());
+        nextReservation[t]++;
+      }
+      if (idleKey[t] >= 0) {
+        idle.remove(idleKey[t]);
+        idleKey[t] = -1;
+      }
+      releaseAt[t] = Math.max(releaseAt[t], time + dwellSeconds);
+      busy.add(releaseAt[t] << 32 | t);
+    }
+    return plan;
+  }
+
+  private static long idleKey(int[] reservations, int next, int track) {
+    long reservation = next < reservations.length ? reservations[next] : NO_RESERVATION;
+    return reservation << 32 | track;
+  }
+}
@@ -0,0 +1,212 @@
+package edu.ntnu.stud;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Class that finds departures that occupy the same track at the same time.
+ *
+ *<p>A departure occupies its track for the dwell time before its departure time with delay,
+ * so two departures on the same track are in conflict when their departure times with delay
+ * are less than the dwell time apart. Departures without a track are never in conflict.
+ * Times are compared within one day, so a departure just after midnight is not compared
+ * with one just before it.
+ *
+ *<p>The occupancies of each track are kept in a {@link TreeMap} keyed by
+ * {@link DepartureIndex#orderKey(java.time.LocalTime, int)} of the departure time with delay.
+ * Since every occupancy has the same length, the occupancies that overlap a departure are
+ * exactly the ones whose departure time is within the dwell time of it, which is one range
+ * of the map. An update therefore costs O(log n), plus the number of conflicts found.
+ *
+ *<p>The conflicts are kept up to date by listening to the {@link DepartureEvent}s of the
+ * registry. Every time a departure is added, delayed or moved to another track, its new
+ * conflicts are sent to the conflict listener. A conflict the departure already had on the
+ * same track before the change is not sent again.
+ *
+ * @see TrainRegistry#subscribe(Consumer)
+ */
+public class TrackConflicts implements Consumer<DepartureEvent> {
+
+  /**
+   * Two departures that occupy the same track at the same time.
+   *
+   * @param track the track.
+   * @param departure the departure that was changed, or the earlier of the two.
+   * @param other the departure it is in conflict with.
+   */
+  public record Conflict(int track, TrainDeparture departure, TrainDeparture other) {
+  }
+
+  private final TrainRegistry trainRegistry;
+  private final int dwellSeconds;
+  private final Consumer<Conflict> conflictListener;
+  private final HashMap<Integer, TreeMap<Long, TrainDeparture>> tracks = new HashMap<>();
+  private final HashMap<Integer, TrainDeparture> departures = new HashMap<>();
+
+  private TrackConflicts(TrainRegistry trainRegistry, Duration dwellTime,
+                         Consumer<Conflict> conflictListener) {
+    if (dwellTime.isNegative() || dwellTime.isZero() || dwellTime.toHours() >= 24) {
+      throw new IllegalArgumentException("Dwell time must be between 0 and 24 hours");
+    }
+    this.trainRegistry = trainRegistry;
+    this.dwellSeconds = (int) dwellTime.toSeconds();
+    this.conflictListener = conflictListener;
+  }
+
+  /**
+   * Method that starts finding the conflicts of a registry.
+   *
+   *<p>The current departures of the registry are added and the TrackConflicts is subscribed
+   * to the registry while holding its lock, so no change is missed. The conflicts that
+   * already exist are not sent to the listener, they can be read with {@link #conflicts()}.
+   *
+   * @param trainRegistry the registry.
+   * @param dwellTime how long a departure occupies its track before it departs.
+   * @param conflictListener receives every new conflict, on the thread that changes the
+   *                         registry. It must return quickly and must not throw.
+   * @return the TrackConflicts.
+   * @throws IllegalArgumentException if the dwell time is not between 0 and 24 hours.
+   */
+  public static TrackConflicts attach(TrainRegistry trainRegistry, Duration dwellTime,
+                                      Consumer<Conflict> conflictListener) {
+    TrackConflicts trackConflicts = new TrackConflicts(trainRegistry, dwellTime,
+        conflictListener);
+    synchronized (trainRegistry) {
+      trackConflicts.reload();
+      trainRegistry.subscribe(trackConflicts);
+    }
+    return trackConflicts;
+  }
+
+  /**
+   * Method that stops finding the conflicts of the registry.
+   */
+  public void detach() {
+    trainRegistry.unsubscribe(this);
+  }
+
+  /**
+   * Method that updates the occupancy of the departure in an event,
+   * and sends its new conflicts to the conflict listener.
+   * The conflicts it had on the same track before the event are not sent again.
+   *
+   * @param event the change to the registry.
+   */
+  @Override
+  public synchronized void accept(DepartureEvent event) {
+    if (event.type() == DepartureEvent.Type.RELOADED) {
+      reload();
+      return;
+    }
+    TrainDeparture trainDeparture = event.departure();
+    TrainDeparture previous = departures.get(trainDeparture.getTrainNumber());
+    HashSet<Integer> previousOthers = new HashSet<>();
+    if (previous != null && previous.getTrack() == trainDeparture.getTrack()) {
+      for (TrainDeparture other : overlapping(previous)) {
+        previousOthers.add(other.getTrainNumber());
+      }
+    }
+    remove(trainDeparture.getTrainNumber());
+    if (event.isRemoval() || trainDeparture.getTrack() < 0) {
+      return;
+    }
+    for (TrainDeparture other : overlapping(trainDeparture)) {
+      if (!previousOthers.contains(other.getTrainNumber())) {
+        conflictListener.accept(new Conflict(trainDeparture.getTrack(), trainDeparture, other));
+      }
+    }
+    add(trainDeparture);
+  }
+
+  /**
+   * Method that returns the conflicts of one departure.
+   *
+   * @param trainNumber the train number of the departure.
+   * @return the conflicts, sorted by the departure time with delay of the other departure,
+   *         or an empty list if the departure has no track or is not in the registry.
+   */
+  public synchronized List<Conflict> conflictsOf(int trainNumber) {
+    TrainDeparture trainDeparture = departures.get(trainNumber);
+    List<Conflict> conflicts = new ArrayList<>();
+    if (trainDeparture != null) {
+      for (TrainDeparture other : overlapping(trainDeparture)) {
+        conflicts.add(new Conflict(trainDeparture.getTrack(), trainDeparture, other));
+      }
+    }
+    return conflicts;
+  }
+
+  /**
+   * Method that returns every conflict in the registry, once for each pair of departures.
+   *
+   * @return the conflicts, with the earlier departure first in each conflict.
+   */
+  public synchronized List<Conflict> conflicts() {
+    List<Conflict> conflicts = new ArrayList<>();
+    for (Map.Entry<Integer, TreeMap<Long, TrainDeparture>> track : tracks.entrySet()) {
+      for (Map.Entry<Long, TrainDeparture> entry : track.getValue().entrySet()) {
+        long to = (((entry.getKey() >>> 32) + dwellSeconds) << 32);
+        for (TrainDeparture other
+            : track.getValue().subMap(entry.getKey(), false, to, false).values()) {
+          conflicts.add(new Conflict(track.getKey(), entry.getValue(), other));
+        }
+      }
+    }
+    return conflicts;
+  }
+
+  private List<TrainDeparture> overlapping(TrainDeparture trainDeparture) {
+    TreeMap<Long, TrainDeparture> occupancies = tracks.get(trainDeparture.getTrack());
+    if (occupancies == null) {
+      return List.of();
+    }
+    long time = trainDeparture.getDepartureTimeWithDelay().toSecondOfDay();
+    long from = Math.max(time - dwellSeconds + 1, 0) << 32;
+    long to = (time + dwellSeconds) << 32;
+    List<TrainDeparture> overlapping = new ArrayList<>();
+    for (TrainDeparture other : occupancies.subMap(from, true, to, false).values()) {
+      if (other.getTrainNumber() != trainDeparture.getTrainNumber()) {
+        overlapping.add(other);
+      }
+    }
+    return overlapping;
+  }
+
+  private void add(TrainDeparture trainDeparture) {
+    departures.put(trainDeparture.getTrainNumber(), trainDeparture);
+    tracks.computeIfAbsent(trainDeparture.getTrack(), track -> new TreeMap<>())
+        .put(key(trainDeparture), trainDeparture);
+  }
+
+  private void remove(int trainNumber) {
+    TrainDeparture removed = departures.remove(trainNumber);
+    if (removed != null) {
+      TreeMap<Long, TrainDeparture> occupancies = tracks.get(removed.getTrack());
+      occupancies.remove(key(removed));
+      if (occupancies.isEmpty()) {
+        tracks.remove(removed.getTrack());
+      }
+    }
+  }
+
+  private void reload() {
+    tracks.clear();
+    departures.clear();
+    for (TrainDeparture trainDeparture : trainRegistry.snapshot().getTrainDepartures()) {
+      if (trainDeparture.getTrack() >= 0) {
+        add(trainDeparture);
+      }
+    }
+  }
+
+  private static long key(TrainDeparture trainDeparture) {
+    return DepartureIndex.orderKey(trainDeparture.getDepartureTimeWithDelay(),
+        trainDeparture.getTrainNumber());
+  }
+}
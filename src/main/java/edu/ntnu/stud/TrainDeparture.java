@@ -2,7 +2,6 @@ package edu.ntnu.stud;
 
 import java.time.DateTimeException;
 import java.time.LocalTime;
-import java.util.regex.Pattern;
 
 /**
  * Represents a train departure with specific details such as departure time, line, destination,
@@ -14,9 +13,14 @@ public class TrainDeparture {
   private final String line;
   private final String destination;
   private final int trainNumber;
-  private int track;
-  private LocalTime delay;
-  private static final Pattern timePattern = Pattern.compile("([01]?[0-9]|2[0-3]):[0-5][0-9]");
+  // volatile, so that threads that read a departure without a lock see its latest values
+  private volatile int track;
+  private volatile LocalTime delay;
+  private volatile LocalTime departureTimeWithDelay;
+  private volatile RenderedRow row;
+  // true for the copies in snapshots and events, which are shared between readers
+  private final boolean readOnly;
+  private static final int ROW_LENGTH = 112;
 
 
 
@@ -35,7 +39,7 @@ public class TrainDeparture {
    */
   TrainDeparture(LocalTime departureTime, String line, String destination,
           int trainNumber, int track, LocalTime delay) {
-    if (!timePattern.matcher(departureTime.toString()).matches()) {
+    if (!isHoursAndMinutes(departureTime)) {
       throw new
               DateTimeException("Departure time cannot be empty, and must be in the format HH:mm");
     } else if(departureTime.equals(LocalTime.of(0, 0))) {
@@ -43,10 +47,11 @@ public class TrainDeparture {
     } else {
       this.departureTime = departureTime;
     }
-    if (delay == null || !timePattern.matcher(delay.toString()).matches()) {
+    if (delay == null || !isHoursAndMinutes(delay)) {
       throw new DateTimeException("Delay cannot be empty, and must be in the format HH:mm");
     } else {
       this.delay = delay;
+      this.departureTimeWithDelay = addDelay(departureTime, delay);
     }
     if (destination == null) {
       throw new NullPointerException("Destination cannot be null");
@@ -68,6 +73,7 @@ public class TrainDeparture {
     } else {
       this.trainNumber = trainNumber;
     }
+    this.readOnly = false;
   }
 
 
@@ -88,6 +94,79 @@ public class TrainDeparture {
     this(departureTime, line, destination, trainNumber, -1, delay);
   }
 
+  /**
+   * Constructs a copy of a TrainDeparture, including its rendered row.
+   * The values have already been validated, so they are copied as they are.
+   *
+   * @param other The departure to copy.
+   */
+  private TrainDeparture(TrainDeparture other) {
+    this(other, other.track, other.delay, true);
+  }
+
+  /**
+   * Constructs a copy of a TrainDeparture with a track and a delay that have already been
+   * validated. The rendered row is kept if the track and delay are unchanged.
+   *
+   * @param other The departure to copy.
+   * @param track The track of the copy, -1 if unknown.
+   * @param delay The delay of the copy.
+   * @param readOnly If the track and delay of the copy cannot be changed.
+   */
+  private TrainDeparture(TrainDeparture other, int track, LocalTime delay, boolean readOnly) {
+    this.departureTime = other.departureTime;
+    this.line = other.line;
+    this.destination = other.destination;
+    this.trainNumber = other.trainNumber;
+    this.track = track;
+    this.delay = delay;
+    this.departureTimeWithDelay = delay.equals(other.delay)
+        ? other.departureTimeWithDelay : addDelay(departureTime, delay);
+    this.row = track == other.track && delay.equals(other.delay) ? other.row : null;
+    this.readOnly = readOnly;
+  }
+
+  /**
+   * Returns a read-only copy of the departure, which is not changed when this departure is
+   * changed. Used by {@link RegistrySnapshot} to keep the values a departure had when the
+   * snapshot was published. Since the copy is shared by every reader of the snapshot,
+   * {@link #setTrack(int)} and {@link #setDelay(LocalTime)} throw on it.
+   *
+   * @return A new read-only TrainDeparture with the same values.
+   */
+  TrainDeparture copy() {
+    return new TrainDeparture(this);
+  }
+
+  /**
+   * Returns a copy of the departure with another track, checked like
+   * {@link #setTrack(int)}. Used by {@link ConcurrentTrainRegistry}, which replaces a
+   * departure instead of changing it, so a reader never sees a departure while it changes.
+   *
+   * @param track The track number, 0 if unknown.
+   * @return A new TrainDeparture with the track.
+   * @throws IllegalArgumentException If the track number is less than 0.
+   */
+  TrainDeparture withTrack(int track) {
+    checkTrack(track);
+    return new TrainDeparture(this, track == 0 ? -1 : track, delay, false);
+  }
+
+  /**
+   * Returns a copy of the departure with another delay, checked like
+   * {@link #setDelay(LocalTime)}. Used by {@link ConcurrentTrainRegistry} like
+   * {@link #withTrack(int)}.
+   *
+   * @param delay The delay time in HH:mm.
+   * @return A new TrainDeparture with the delay.
+   * @throws NullPointerException If the delay is null.
+   * @throws DateTimeException If the delay is 00:00.
+   */
+  TrainDeparture withDelay(LocalTime delay) {
+    checkDelay(delay);
+    return new TrainDeparture(this, track, delay, false);
+  }
+
 
   /**
    * Gets the departure time of the train.
@@ -133,31 +212,74 @@ public class TrainDeparture {
    *
    * @param track The track number from which the train departs.
    * @throws IllegalArgumentException If the track number is less than or equal to 0.
+   * @throws UnsupportedOperationException If the departure is read-only.
    */
   public void setTrack(int track) {
-    if (track < 0) {
-      throw new IllegalArgumentException("Track cannot be less than 0");
-    } else if (track == 0){
+    checkWritable();
+    checkTrack(track);
+    if (track == 0){
       this.track = -1;
     }
     else {
       this.track = track;
     }
+    row = null;
   }
 
   /**
-   * Sets the delay time for the train. Throws a DateTimeException if the delay time format is
-   * invalid. Checks whether the time format is valid
-   * by using a regular expression. ("timePattern").
+   * Sets the delay time for the train. Throws a DateTimeException if the delay is 00:00.
    *
    * @param delay The delay time in HH:mm.
    * @throws DateTimeException If the delay time format is invalid.
+   * @throws UnsupportedOperationException If the departure is read-only.
    */
   public void setDelay(LocalTime delay) {
-    if (delay == LocalTime.of(0, 0)) {
+    checkWritable();
+    checkDelay(delay);
+    this.departureTimeWithDelay = addDelay(departureTime, delay);
+    this.delay = delay;
+    row = null;
+  }
+
+  /**
+   * Checks if the departure is a read-only copy from a snapshot or an event.
+   *
+   * @return {@code true} if the track and delay cannot be changed.
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  private void checkWritable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException("Departure is read-only");
+    }
+  }
+
+  /**
+   * Checks that a track can be given to {@link #setTrack(int)}.
+   *
+   * @param track The track number.
+   * @throws IllegalArgumentException If the track number is less than 0.
+   */
+  static void checkTrack(int track) {
+    if (track < 0) {
+      throw new IllegalArgumentException("Track cannot be less than 0");
+    }
+  }
+
+  /**
+   * Checks that a delay can be given to {@link #setDelay(LocalTime)}.
+   *
+   * @param delay The delay time in HH:mm.
+   * @throws NullPointerException If the delay is null.
+   * @throws DateTimeException If the delay is 00:00.
+   */
+  static void checkDelay(LocalTime delay) {
+    if (delay == null) {
+      throw new NullPointerException("Delay cannot be null");
+    } else if (delay.equals(LocalTime.of(0, 0))) {
       throw new DateTimeException("Cannot update delay to 00:00");
-    } else {
-      this.delay = delay;
     }
   }
 
@@ -181,50 +303,122 @@ public class TrainDeparture {
 
   /**
    * Gets the departure time of the train considering the delay.
+   * The value is calculated when the delay is set, so no new objects are created.
    *
    * @return The departure time with delay taken into account.
    */
   public LocalTime getDepartureTimeWithDelay() {
+    return departureTimeWithDelay;
+  }
+
+  /**
+   * Adds a delay to a departure time.
+   *
+   * @param departureTime The scheduled departure time.
+   * @param delay The delay in HH:mm.
+   * @return The departure time with the delay added.
+   */
+  private static LocalTime addDelay(LocalTime departureTime, LocalTime delay) {
     return departureTime.plusHours(delay.getHour()).plusMinutes(delay.getMinute());
   }
 
+  /**
+   * Checks if a time is in the format HH:mm, which is the case when it has no seconds
+   * and no fractions of a second. The hour and minute of a LocalTime are always valid,
+   * so the time does not have to be formatted and matched against a pattern.
+   *
+   * @param time The time to check.
+   * @return {@code true} if the time only has hours and minutes.
+   */
+  private static boolean isHoursAndMinutes(LocalTime time) {
+    return time.getSecond() == 0 && time.getNano() == 0;
+  }
+
   /**
    * Returns a formatted string representation of the TrainDeparture object.
    * The string contains departure time, destination, track number, line, train number,
    * and delay, separated by vertical bars ('|') and padded for alignment.
    *
+   *<p>The row is rendered with {@link #appendRow(StringBuilder)} the first time it is needed,
+   * and then reused until the delay or track is changed.
+   *
    * @return A formatted string representing the TrainDeparture object's details.
    */
   public String toString() {
-    StringBuilder info = new StringBuilder();
-    final int destinationLength = destination.length();
-    if (delay != LocalTime.of(0, 0)) {
-      info.append("| ").append(departureTime).append("(+")
-        .append(delay).append(")").append(String.format("%" + 4 + "s", " | "));
+    RenderedRow rendered = row;
+    LocalTime currentDelay = delay;
+    int currentTrack = track;
+    if (rendered == null || rendered.delay != currentDelay || rendered.track != currentTrack) {
+      StringBuilder info = new StringBuilder(ROW_LENGTH);
+      appendRow(info, currentDelay, currentTrack);
+      rendered = new RenderedRow(currentDelay, currentTrack, info.toString());
+      row = rendered;
+    }
+    return rendered.text;
+  }
+
+  /**
+   * Writes the row of this departure, as returned by {@link #toString()}, to a builder.
+   * No strings are created, so the same builder can be reused for a whole board.
+   *
+   * @param info the builder the row is appended to.
+   */
+  void appendRow(StringBuilder info) {
+    appendRow(info, delay, track);
+  }
+
+  private void appendRow(StringBuilder info, LocalTime delay, int track) {
+    final boolean delayed = !delay.equals(LocalTime.of(0, 0));
+    if (delayed) {
+      info.append("| ");
+      appendTime(info, departureTime);
+      info.append("(+");
+      appendTime(info, delay);
+      info.append(")  | ");
     } else {
-      info.append("| ").append(String.format("%" + 4 + "s", " "))
-        .append(departureTime).append(String.format("%" + 8 + "s", " | "));
-    }
-    info.append(String.format("%" + 3 + "s", " "))
-            .append(line).append(String.format("%" + 6 + "s", " | "));
-    info.append(String.format("%" + 8 + "s", " "))
-            .append(trainNumber).append(String.format("%" + 13 + "s", " | "));
-    info.append(destination)
-            .append(String.format("%" + (18 - destinationLength) + "s", " | "));
-    if (delay.equals(LocalTime.of(0, 0))) {
-      info.append(String.format("%" + 13 + "s", " | "));
+      info.append("|     ");
+      appendTime(info, departureTime);
+      info.append("      | ");
+    }
+    info.append("   ").append(line).append("    | ");
+    info.append("        ").append(trainNumber).append("           | ");
+    info.append(destination);
+    appendSpaces(info, 15 - destination.length());
+    info.append(" | ");
+    if (delayed) {
+      appendTime(info, delay);
+      info.append("      |");
     } else {
-      info.append(delay).append(String.format("%" + 7 + "s", "|"));
+      info.append("           | ");
     }
     if (track == -1) {
-      info.append(" ").append(String.format("%" + 12 + "s", " | ")).append("\n");
-    } else if (delay.equals(LocalTime.of(0, 0))) {
-      info.append(String.format("%" + 5 + "s", " "))
-        .append(track).append(String.format("%" + 7 + "s", " | ")).append("\n");
+      info.append("           | \n");
     } else {
-      info.append(String.format("%" + 6 + "s", " "))
-        .append(track).append(String.format("%" + 7 + "s", " | ")).append("\n");
+      appendSpaces(info, delayed ? 6 : 5);
+      info.append(track).append("     | \n");
     }
-    return info.toString();
+  }
+
+  private static void appendTime(StringBuilder info, LocalTime time) {
+    if (time.getSecond() != 0 || time.getNano() != 0) {
+      info.append(time);
+      return;
+    }
+    int hour = time.getHour();
+    int minute = time.getMinute();
+    info.append((char) ('0' + hour / 10)).append((char) ('0' + hour % 10)).append(':')
+        .append((char) ('0' + minute / 10)).append((char) ('0' + minute % 10));
+  }
+
+  private static void appendSpaces(StringBuilder info, int count) {
+    for (int i = 0; i < count; i++) {
+      info.append(' ');
+    }
+  }
+
+  /**
+   * A rendered row, with the delay and track it was rendered with.
+   */
+  private record RenderedRow(LocalTime delay, int track, String text) {
   }
 }
@@ -1,12 +1,13 @@
 package edu.ntnu.stud;
 
+import java.time.Duration;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Scanner;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import javax.management.JMException;
 
 /**
  * TrainDepartureUserInterface lets users interact with the application.
@@ -34,9 +35,15 @@ public class TrainDepartureUserInterface {
   private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
   private static final Pattern digits = Pattern.compile("\\D+");
   private static final String ASK_FOR_TIME = "Enter departure time (HH:mm): ";
-  private static final String TABLE_LINE = "+----------------+----------+---------------------"
+  static final String TABLE_LINE = "+----------------+----------+---------------------"
           + "+-----------------+------------+------------+";
   private static final String NUMBER_NOT_FOUND = "Train number not found";
+  private final BoardWriter boardWriter = new BoardWriter(TABLE_LINE);
+  private final RegistryMetrics metrics = new RegistryMetrics();
+  private static final Duration DWELL_TIME = Duration.ofMinutes(3);
+  private static final int TRACK_COUNT = 8;
+  private final TrackAllocator trackAllocator =
+      new TrackAllocator(trainRegistry, DWELL_TIME, TRACK_COUNT);
 
 
   /**
@@ -46,9 +53,19 @@ public class TrainDepartureUserInterface {
    *     <li>Populates {@link #options} with the different options for the user.</li>
    *     <li>Calls {@link TrainRegistry#fillTrainDepartureListFromFile()}
    *     in order to populate the registry with train departures.</li>
+   *     <li>Records the latencies of the registry and the board in {@link #metrics},
+   *     and makes them available through JMX.</li>
+   *     <li>Attaches {@link TrackConflicts}, which prints a warning when a departure is
+   *     changed so that it occupies its track at the same time as another departure.</li>
    * </ul>
    */
   public void init() {
+    trainRegistry.setMetrics(metrics);
+    try {
+      metrics.registerMBeans();
+    } catch (JMException e) {
+      System.out.println("Could not register metrics");
+    }
     setCurrentTime();
     System.out.println(trainRegistry.getCurrentTime());
     options.put(1, this::printDepartureOverview);
@@ -60,7 +77,12 @@ public class TrainDepartureUserInterface {
     options.put(7, this::updateCurrentTime);
     options.put(8, trainRegistry::fillTrainDepartureListFromFile);
     options.put(9, trainRegistry::sortByDepartureTime);
+    options.put(10, this::allocateTracks);
     trainRegistry.fillTrainDepartureListFromFile();
+    TrackConflicts.attach(trainRegistry, DWELL_TIME, conflict ->
+        System.out.println("Warning: train " + conflict.departure().getTrainNumber()
+            + " and train " + conflict.other().getTrainNumber()
+            + " occupy track " + conflict.track() + " at the same time"));
   }
 
   /**
@@ -87,6 +109,7 @@ public class TrainDepartureUserInterface {
       System.out.println("7. Update Current Time");
       System.out.println("8. Fill train departure list with data");
       System.out.println("9. Sort train departure list by ascending departure time");
+      System.out.println("10. Allocate tracks to departures without a track");
       System.out.println("0. Exit");
 
       System.out.print("Enter your choice: ");
@@ -124,10 +147,10 @@ public class TrainDepartureUserInterface {
     final String line = lineInput();
     System.out.println("Enter track (0 if not set): ");
     final int track = trackFromInput();
-    if (!trainRegistry.departureTimesFromLine(line).isEmpty()) {
+    if (!trainRegistry.departuresFromLine(line).isEmpty()) {
       System.out.println(ASK_FOR_TIME);
       departureTime = departureTimeExistingLine(line);
-    } else if (track != 0 && !trainRegistry.departureTimesFromTrack(track).isEmpty()) {
+    } else if (track != 0 && !trainRegistry.departuresFromTrack(track).isEmpty()) {
       System.out.println(ASK_FOR_TIME);
       departureTime = departureTimeExistingTrack(track);
     } else {
@@ -150,7 +173,17 @@ public class TrainDepartureUserInterface {
    * @return A string containing the table header.
    */
   public String tableHeader() {
-    String info = "Current Time: " + trainRegistry.getCurrentTime() + "\n";
+    return tableHeader(trainRegistry.getCurrentTime());
+  }
+
+  /**
+   * Method that returns the table header for a given current time.
+   *
+   * @param currentTime the current time shown above the table.
+   * @return A string containing the table header.
+   */
+  static String tableHeader(LocalTime currentTime) {
+    String info = "Current Time: " + currentTime + "\n";
     info += (TABLE_LINE + "\n");
     info += ("| Departure Time |    Line  |     Train Number    "
             + "|   Destination   |    Delay   |    Track   |\n");
@@ -168,46 +201,72 @@ public class TrainDepartureUserInterface {
    * this is done to prevent the user from seeing departures that have already departed.
    *
    * <p>Prints the table header first using {@link #tableHeader()}.
-   * Uses a stream to print the String representation of each TrainDeparture object.
+   * Prints the cached String representation of each TrainDeparture object in the latest
+   * {@link TrainRegistry#snapshot()} using {@link #printRows(List)},
+   * so the board is consistent even if updates are applied from another thread.
    */
   public void printDepartureOverview() {
     trainRegistry.removeDeparted();
+    long start = metrics.start();
     System.out.println(tableHeader());
-
-    System.out.println(trainRegistry.getTrainDepartures().stream()
-        .map(trainDeparture -> trainDeparture.toString()
-          + TABLE_LINE)
-        .collect(Collectors.joining("\n")));
+    printRows(trainRegistry.snapshot().getTrainDepartures());
+    metrics.record(RegistryMetrics.Operation.BOARD_PRINT, start);
   }
 
   /**
    * Method used to print any list of TrainDeparture objects.
    *
    *<p>First prints the table header using {@link #tableHeader()}.
-   * Then uses a stream to print the String representation of each TrainDeparture object.
+   * Then prints the String representation of each TrainDeparture object
+   * using {@link #printRows(List)}.
    *
    * @param departureList the list of departures to be printed.
    */
   public void printAnyDepartures(List<TrainDeparture> departureList) {
+    long start = metrics.start();
     System.out.println(tableHeader());
-    System.out.println(departureList.stream()
-            .map(trainDeparture -> trainDeparture.toString()
-                    + "+----------------+----------+---------------------"
-                    + "+-----------------+------------+------------+")
-            .collect(Collectors.joining("\n")));
+    printRows(departureList);
+    metrics.record(RegistryMetrics.Operation.BOARD_PRINT, start);
+  }
+
+  /**
+   * Method that prints the rows of a list of departures with {@link BoardWriter},
+   * which writes them to {@link System#out} one page at a time instead of one row at a time.
+   * The rows are encoded by {@link System#out} itself, like {@code println} does.
+   * An empty list prints one blank line, as the board has always done.
+   *
+   * @param departureList the departures to be printed.
+   */
+  private void printRows(List<TrainDeparture> departureList) {
+    if (departureList.isEmpty()) {
+      System.out.println();
+      return;
+    }
+    boardWriter.write(departureList, System.out);
+    System.out.flush();
+  }
+
+  /**
+   * Method that returns the metrics of the registry and the board.
+   *
+   * @return the metrics.
+   */
+  public RegistryMetrics getMetrics() {
+    return metrics;
   }
 
   /**
    * Method used to print a single TrainDeparture object.
    *
    * <p>First prints the table header using {@link #tableHeader()}.
-   * Then prints the String representation of the TrainDeparture object.
+   * Then prints the String representation of the TrainDeparture object
+   * using {@link #printRows(List)}.
    *
    * @param departure the departure to be printed.
    */
   public void printSingleDeparture(TrainDeparture departure) {
     System.out.println(tableHeader());
-    System.out.println(departure);
+    printRows(List.of(departure));
   }
 
   /**
@@ -354,6 +413,20 @@ public class TrainDepartureUserInterface {
     }
   }
 
+  /**
+   * Method that assigns tracks to every departure without a track with
+   * {@link TrackAllocator#allocate()}, and prints the departures that could not get one.
+   * Tracks assigned earlier by the allocator are planned again, so this can be used
+   * after delays.
+   */
+  public void allocateTracks() {
+    TrackAllocator.Result result = trackAllocator.allocate();
+    System.out.println(result.changed() + " departures got a new track");
+    if (!result.unallocated().isEmpty()) {
+      System.out.println("No free track for train numbers " + result.unallocated());
+    }
+  }
+
   /**
    * Method that collects user input for adding delay to a train departure.
    * <ol>
@@ -494,12 +567,11 @@ public class TrainDepartureUserInterface {
    */
   public LocalTime departureTimeExistingLine(String line) {
     LocalTime departureTime = timeInput();
-    if (trainRegistry.checkDepartureTimeExistsLine(line, departureTime)) {
+    while (trainRegistry.checkDepartureTimeExistsLine(line, departureTime)) {
       System.out.println("Departure time on this line already exists\nTry Again: ");
-      departureTime = departureTimeExistingLine(line);
-    } else {
-      System.out.println("Departure time added");
+      departureTime = timeInput();
     }
+    System.out.println("Departure time added");
     return departureTime;
   }
 
@@ -523,12 +595,11 @@ public class TrainDepartureUserInterface {
    */
   public LocalTime departureTimeExistingTrack(int track) {
     LocalTime departureTime = timeInput();
-    if (trainRegistry.checkDepartureTimeExistsTrack(track, departureTime)) {
+    while (trainRegistry.checkDepartureTimeExistsTrack(track, departureTime)) {
       System.out.println("Departure time on this track already exists\nTry Again: ");
-      departureTime = departureTimeExistingTrack(track);
-    } else {
-      System.out.println("Departure time added");
+      departureTime = timeInput();
     }
+    System.out.println("Departure time added");
     return departureTime;
   }
 
@@ -1,5 +1,14 @@
 package edu.ntnu.stud;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 
 /**
  * TrainDispatchApp is the main class of the application.
@@ -12,13 +21,68 @@ public class TrainDispatchApp {
    * The main method of the application.
    * creates a new user interface object, initializes it and starts it.
    *
+   *<p>If the system property {@code metrics.interval} is set to a number of seconds,
+   * the metrics of the application are written to standard error at that interval.
+   *
+   *<p>With the arguments {@code --script <file>}, the commands in the file are run with
+   * {@link CommandScript} against an empty registry instead, and the program exits.
+   * The file {@code -} reads the commands from standard input.
+   *
    * @param args command line arguments
+   * @throws IOException if the script cannot be read.
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
+    if (args.length == 2 && args[0].equals("--script")) {
+      runScript(args[1]);
+      return;
+    }
     TrainDepartureUserInterface userInterface = new TrainDepartureUserInterface();
     System.out.println("Initializing...");
     userInterface.init();
+    Long metricsInterval = Long.getLong("metrics.interval");
+    if (metricsInterval != null && metricsInterval > 0) {
+      userInterface.getMetrics().startDump(Duration.ofSeconds(metricsInterval), System.err::print);
+    }
     System.out.println("Starting...");
     userInterface.start();
   }
+
+  /**
+   * Method that runs a command script and writes a summary to standard error.
+   * The output of the script is encoded by {@link System#out} itself, like the board of
+   * the user interface, so it matches the encoding of the console.
+   *
+   * @param script the path of the script, or {@code -} for standard input.
+   * @throws IOException if the script cannot be read or the output cannot be written.
+   */
+  private static void runScript(String script) throws IOException {
+    long start = System.nanoTime();
+    Writer output = new Writer() {
+      @Override
+      public void write(char[] chars, int offset, int length) {
+        System.out.append(CharBuffer.wrap(chars, offset, length));
+      }
+
+      @Override
+      public void flush() throws IOException {
+        System.out.flush();
+        if (System.out.checkError()) {
+          throw new IOException("Could not write to standard output");
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        flush();
+      }
+    };
+    CommandScript.Summary summary;
+    try (Reader reader = script.equals("-")
+        ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+        : Files.newBufferedReader(Path.of(script))) {
+      summary = new CommandScript(new TrainRegistry()).run(reader, output);
+    }
+    System.err.printf("%d commands, %d failed, %d ms%n", summary.commands(), summary.failed(),
+        Duration.ofNanos(System.nanoTime() - start).toMillis());
+  }
 }
@@ -2,16 +2,25 @@ package edu.ntnu.stud;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 
 /**
@@ -27,21 +36,62 @@ import java.util.Map;
  *
  * @see TrainDeparture
  * @see TrainDepartureUserInterface
+ * @see DepartureRegistry
  */
-public class TrainRegistry {
+public class TrainRegistry implements DepartureRegistry {
+  /**
+   * Order of {@link #trainDepartureList}, departure time first and train number second.
+   * Both fields are final in {@link TrainDeparture}, so the position of a departure
+   * never changes while it is in the registry.
+   */
+  static final Comparator<TrainDeparture> DEPARTURE_ORDER =
+      Comparator.comparing(TrainDeparture::getDepartureTime)
+          .thenComparingInt(TrainDeparture::getTrainNumber);
+
   private final HashMap<Integer, TrainDeparture> numberToDepartureMap = new HashMap<>();
-  private final ArrayList<TrainDeparture> trainDepartureList
-      = new ArrayList<>(numberToDepartureMap.values());
-  private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
+  private final ArrayList<TrainDeparture> trainDepartureList = new ArrayList<>();
+  private final List<TrainDeparture> trainDepartureView =
+      Collections.unmodifiableList(trainDepartureList);
+  private final DepartureIndex<Integer> trackIndex = new DepartureIndex<>();
+  private final DepartureIndex<String> lineIndex = new DepartureIndex<>();
+  private final DepartureIndex<String> destinationIndex = new DepartureIndex<>();
+  /**
+   * Departures ordered by departure time with delay first and train number second,
+   * keyed by {@link DepartureIndex#orderKey(LocalTime, int)}. The delay can change,
+   * so a departure has to be taken out of the queue before its delay is changed,
+   * and put back afterwards.
+   */
+  private final TreeMap<Long, TrainDeparture> departureQueue = new TreeMap<>();
   private LocalTime currentTime = null;
+  private MutationJournal journal = null;
+  private RegistryMetrics metrics = null;
+  /**
+   * Keeps the chunks of the next {@link RegistrySnapshot}, {@code null} until the first call
+   * to {@link #snapshot()}. Departures that were changed since the last snapshot are kept in
+   * {@link #snapshotChanges}, and are copied into the builder by {@link #publishSnapshot()}.
+   */
+  private RegistrySnapshot.Builder snapshotBuilder = null;
+  private final HashSet<TrainDeparture> snapshotChanges = new HashSet<>();
+  private boolean snapshotRebuild = false;
+  private long snapshotVersion = 0;
+  private volatile RegistrySnapshot snapshot = null;
+  private final CopyOnWriteArrayList<Consumer<DepartureEvent>> listeners =
+      new CopyOnWriteArrayList<>();
+  private long eventSequence = 0;
 
   /**
    * Method that returns the TrainDepartureList.
    *
-   * @return trainDepartureList ArrayList with TrainDeparture objects.
+   * <p>The list is a read-only view of the registry's ordered index,
+   * it is always sorted by departure time and train number, and is not copied.
+   * Threads that read while another thread changes the registry should use
+   * {@link #snapshot()} instead.
+   *
+   * @return trainDepartureList List with TrainDeparture objects.
    */
+  @Override
   public List<TrainDeparture> getTrainDepartures() {
-    return trainDepartureList;
+    return trainDepartureView;
   }
 
   /**
@@ -58,8 +108,7 @@ public class TrainRegistry {
    * Method that adds a new TrainDeparture object to the system.
    *
    *<p>Creates a new trainDeparture using the given parameters,
-   * and adds it to the numberToDepartureMap.
-   * also calls{@link #updateTrainDepartureList()}
+   * and adds it to the registry with {@link #putDeparture(TrainDeparture)}.
    *
    * <p>Receives parameters from
    * {@link TrainDepartureUserInterface#addTrainDeparture()}
@@ -78,8 +127,10 @@ public class TrainRegistry {
    * @param track the track number of the train
    * @param delay the delay of the train
    */
+  @Override
   public void addDeparture(LocalTime departureTime, String line,
                            String destination, int trainNumber, int track, LocalTime delay) {
+    long start = metrics != null ? metrics.start() : 0;
     TrainDeparture trainDeparture;
     if (track == 0) {
       trainDeparture = new TrainDeparture(departureTime, line, destination, trainNumber, delay);
@@ -87,25 +138,49 @@ public class TrainRegistry {
       trainDeparture = new TrainDeparture(departureTime, line,
               destination, trainNumber, track, delay);
     }
-    numberToDepartureMap.put(trainNumber, trainDeparture);
-    updateTrainDepartureList();
+    if (journal != null) {
+      writeJournal(() -> journal.recordAdd(trainDeparture));
+    }
+    putDeparture(trainDeparture);
+    publishSnapshot();
+    emit(DepartureEvent.Type.ADDED, trainDeparture);
+    if (metrics != null) {
+      metrics.record(RegistryMetrics.Operation.ADD, start);
+    }
   }
 
   /**
    * Method that sets the track of a specific TrainDeparture.
    *
    *<p>Receives parameters from,
-   * {@link TrainDepartureUserInterface#addDelay()}
+   * {@link TrainDepartureUserInterface#assignTrack()}
    * <ul>
-   *   <li>Selects TrainDeparture using {@link #departureFromNumber(int)}
+   *   <li>Selects TrainDeparture from {@link #numberToDepartureMap}
    *   and sets the track of the TrainDeparture to the given track</li>
+   *   <li>Moves the TrainDeparture from its old track to the new one in {@link #trackIndex}</li>
    * </ul>
    *
-   * @param trainNumber the train number of the train departure to be assigned a delay.
-   * @param track the delay to be assigned to the train departure.
+   * @param trainNumber the train number of the train departure to be assigned a track.
+   * @param track the track to be assigned to the train departure.
    */
+  @Override
   public void assignTrack(int trainNumber, int track) {
-    departureFromNumber(trainNumber).setTrack(track);
+    long start = metrics != null ? metrics.start() : 0;
+    TrainDeparture trainDeparture = numberToDepartureMap.get(trainNumber);
+    int oldTrack = trainDeparture.getTrack();
+    TrainDeparture.checkTrack(track);
+    if (journal != null) {
+      writeJournal(() -> journal.recordTrack(trainNumber, track));
+    }
+    trainDeparture.setTrack(track);
+    trackIndex.remove(oldTrack, trainDeparture);
+    trackIndex.add(trainDeparture.getTrack(), trainDeparture);
+    snapshotChanged(trainDeparture);
+    publishSnapshot();
+    emit(DepartureEvent.Type.TRACK_CHANGED, trainDeparture);
+    if (metrics != null) {
+      metrics.record(RegistryMetrics.Operation.TRACK, start);
+    }
   }
 
   /**
@@ -114,15 +189,188 @@ public class TrainRegistry {
    *<p>Receives parameters from,
    * {@link TrainDepartureUserInterface#addDelay()}
    * <ul>
-   *   <li>Selects TrainDeparture using {@link #departureFromNumber(int)}
+   *   <li>Selects TrainDeparture from {@link #numberToDepartureMap}
    *   and sets the delay of the TrainDeparture to the given delay</li>
+   *   <li>Moves the TrainDeparture to its new position in {@link #departureQueue}</li>
    * </ul>
    *
    * @param trainNumber the train number of the train departure to be assigned a delay.
    * @param delay       the delay to be assigned to the train departure.
    */
+  @Override
   public void addDelay(int trainNumber, LocalTime delay) {
-    departureFromNumber(trainNumber).setDelay(delay);
+    long start = metrics != null ? metrics.start() : 0;
+    TrainDeparture trainDeparture = numberToDepartureMap.get(trainNumber);
+    long oldKey = delayedKey(trainDeparture);
+    TrainDeparture.checkDelay(delay);
+    if (journal != null) {
+      writeJournal(() -> journal.recordDelay(trainNumber, delay));
+    }
+    departureQueue.remove(oldKey);
+    trainDeparture.setDelay(delay);
+    departureQueue.put(delayedKey(trainDeparture), trainDeparture);
+    snapshotChanged(trainDeparture);
+    publishSnapshot();
+    emit(DepartureEvent.Type.DELAYED, trainDeparture);
+    if (metrics != null) {
+      metrics.record(RegistryMetrics.Operation.DELAY, start);
+    }
+  }
+
+  /**
+   * Method that cancels a departure, removing it from the registry.
+   *
+   * @param trainNumber the train number of the departure to be cancelled.
+   * @return {@code true} if the departure was found and removed.
+   */
+  @Override
+  public boolean cancelDeparture(int trainNumber) {
+    if (!numberToDepartureMap.containsKey(trainNumber)) {
+      return false;
+    }
+    if (journal != null) {
+      writeJournal(() -> journal.recordCancel(trainNumber));
+    }
+    TrainDeparture removed = removeDeparture(trainNumber);
+    publishSnapshot();
+    emit(DepartureEvent.Type.CANCELLED, removed);
+    return true;
+  }
+
+  /**
+   * Method that applies a batch of changes to the registry.
+   *
+   *<p>First every change is validated, in batch order, against the registry as it will be
+   * after the earlier changes in the batch. Changes that would fail are left out and
+   * reported in the result. The valid changes are then written to the journal, if there is
+   * one, before any of them is applied. Since nothing can fail after that, either all valid
+   * changes are applied or none are.
+   *
+   *<p>Each change only updates the indexes it affects: a delay moves the departure in
+   * {@link #departureQueue}, a track moves it in {@link #trackIndex}, and only new and
+   * cancelled departures are inserted into or removed from every index. If the batch changes
+   * more than a quarter of the registry, all indexes are rebuilt once with
+   * {@link #rebuildIndexes()} instead.
+   *
+   * @param batch the changes to be applied.
+   * @return the number of applied changes, and the changes that failed.
+   */
+  public DepartureBatch.Result applyBatch(DepartureBatch batch) {
+    List<DepartureBatch.Failure> failures = new ArrayList<>();
+    List<DepartureBatch.Mutation> valid = new ArrayList<>();
+    List<TrainDeparture> added = new ArrayList<>();
+    HashMap<Integer, Boolean> existsAfterBatch = new HashMap<>();
+    List<DepartureBatch.Mutation> mutations = batch.mutations();
+    for (int i = 0; i < mutations.size(); i++) {
+      DepartureBatch.Mutation mutation = mutations.get(i);
+      int trainNumber = mutation.trainNumber();
+      boolean exists = existsAfterBatch.getOrDefault(trainNumber,
+          numberToDepartureMap.containsKey(trainNumber));
+      String failure = null;
+      if (mutation instanceof DepartureBatch.Add add) {
+        try {
+          added.add(new TrainDeparture(add.departureTime(), add.line(), add.destination(),
+              add.trainNumber(), add.track(), add.delay()));
+          existsAfterBatch.put(trainNumber, true);
+        } catch (RuntimeException e) {
+          failure = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+      } else if (!exists) {
+        failure = "Train number not found";
+      } else if (mutation instanceof DepartureBatch.Delay delay) {
+        if (delay.delay() == null) {
+          failure = "Delay cannot be null";
+        } else if (delay.delay().equals(LocalTime.of(0, 0))) {
+          failure = "Cannot update delay to 00:00";
+        }
+      } else if (mutation instanceof DepartureBatch.Track track) {
+        if (track.track() < 0) {
+          failure = "Track cannot be less than 0";
+        }
+      } else {
+        existsAfterBatch.put(trainNumber, false);
+      }
+      if (failure == null) {
+        valid.add(mutation);
+      } else {
+        failures.add(new DepartureBatch.Failure(i, trainNumber, failure));
+      }
+    }
+
+    if (journal != null) {
+      Iterator<TrainDeparture> journalDepartures = added.iterator();
+      for (DepartureBatch.Mutation mutation : valid) {
+        if (mutation instanceof DepartureBatch.Add) {
+          TrainDeparture trainDeparture = journalDepartures.next();
+          writeJournal(() -> journal.recordAdd(trainDeparture));
+        } else if (mutation instanceof DepartureBatch.Delay delay) {
+          writeJournal(() -> journal.recordDelay(delay.trainNumber(), delay.delay()));
+        } else if (mutation instanceof DepartureBatch.Track track) {
+          writeJournal(() -> journal.recordTrack(track.trainNumber(), track.track()));
+        } else {
+          writeJournal(() -> journal.recordCancel(mutation.trainNumber()));
+        }
+      }
+    }
+
+    boolean rebuild = valid.size() > numberToDepartureMap.size() / 4;
+    List<DepartureEvent> events = listeners.isEmpty() ? null : new ArrayList<>();
+    Iterator<TrainDeparture> addedDepartures = added.iterator();
+    for (DepartureBatch.Mutation mutation : valid) {
+      int trainNumber = mutation.trainNumber();
+      TrainDeparture trainDeparture;
+      DepartureEvent.Type type;
+      if (mutation instanceof DepartureBatch.Add) {
+        trainDeparture = addedDepartures.next();
+        TrainDeparture replaced = numberToDepartureMap.put(trainNumber, trainDeparture);
+        if (!rebuild) {
+          if (replaced != null) {
+            unindexDeparture(replaced);
+          }
+          indexDeparture(trainDeparture);
+        }
+        type = DepartureEvent.Type.ADDED;
+      } else if (mutation instanceof DepartureBatch.Delay delay) {
+        trainDeparture = numberToDepartureMap.get(trainNumber);
+        if (!rebuild) {
+          departureQueue.remove(delayedKey(trainDeparture));
+        }
+        trainDeparture.setDelay(delay.delay());
+        if (!rebuild) {
+          departureQueue.put(delayedKey(trainDeparture), trainDeparture);
+          snapshotChanged(trainDeparture);
+        }
+        type = DepartureEvent.Type.DELAYED;
+      } else if (mutation instanceof DepartureBatch.Track track) {
+        trainDeparture = numberToDepartureMap.get(trainNumber);
+        int oldTrack = trainDeparture.getTrack();
+        trainDeparture.setTrack(track.track());
+        if (!rebuild) {
+          trackIndex.remove(oldTrack, trainDeparture);
+          trackIndex.add(trainDeparture.getTrack(), trainDeparture);
+          snapshotChanged(trainDeparture);
+        }
+        type = DepartureEvent.Type.TRACK_CHANGED;
+      } else {
+        trainDeparture = numberToDepartureMap.remove(trainNumber);
+        if (!rebuild) {
+          unindexDeparture(trainDeparture);
+        }
+        type = DepartureEvent.Type.CANCELLED;
+      }
+      if (events != null) {
+        events.add(newEvent(type, trainDeparture));
+      }
+    }
+    if (rebuild) {
+      rebuildIndexes();
+    }
+    publishSnapshot();
+
+    if (events != null) {
+      events.forEach(this::emit);
+    }
+    return new DepartureBatch.Result(valid.size(), Collections.unmodifiableList(failures));
   }
 
   /**
@@ -140,12 +388,14 @@ public class TrainRegistry {
    * @return a TrainDeparture object with the given train number.
    *         or {@code null} if the key/value pair is not found.
    */
+  @Override
   public TrainDeparture departureFromNumber(int trainNumber) {
-    try {
-      return numberToDepartureMap.get(trainNumber);
-    } catch (Exception e) {
-      return null;
+    long start = metrics != null ? metrics.start() : 0;
+    TrainDeparture trainDeparture = numberToDepartureMap.get(trainNumber);
+    if (metrics != null) {
+      metrics.record(RegistryMetrics.Operation.LOOKUP, start);
     }
+    return trainDeparture;
   }
 
   /**
@@ -153,19 +403,23 @@ public class TrainRegistry {
    *
    *<p>Receives a destination parameter from
    * {@link TrainDepartureUserInterface#departureFromDestination()}
-   * filters {@link #trainDepartureList} by destination
+   * and looks up the destination in {@link #destinationIndex}
    *
-   *<p>Ignores case sensitivity, creates a list of all found departures
+   *<p>Ignores case sensitivity. The returned list is a read-only view of the index,
+   * so it is not copied, and it follows later changes to the registry.
    *
    * @param destination the destination of the train departure to be found.
-   * @return a list with TrainDeparture objects that have the specified destination.
+   * @return a list with TrainDeparture objects that have the specified destination,
+   *         sorted by departure time and train number.
    *         returns {@code null} if the list is empty.
    */
+  @Override
   public List<TrainDeparture> departureFromDestination(String destination) {
-    List<TrainDeparture> foundDepartures = trainDepartureList.stream()
-            .filter(trainDeparture -> trainDeparture.getDestination().equalsIgnoreCase(destination))
-            .toList();
-
+    long start = metrics != null ? metrics.start() : 0;
+    List<TrainDeparture> foundDepartures = destinationIndex.departures(foldCase(destination));
+    if (metrics != null) {
+      metrics.record(RegistryMetrics.Operation.LOOKUP, start);
+    }
     return foundDepartures.isEmpty() ? null : foundDepartures;
   }
 
@@ -178,6 +432,7 @@ public class TrainRegistry {
    *
    * @param time the time to be set as current time.
    */
+  @Override
   public void setCurrentTime(LocalTime time) {
     currentTime = time;
   }
@@ -187,6 +442,7 @@ public class TrainRegistry {
    *
    * @return currentTime
    */
+  @Override
   public LocalTime getCurrentTime() {
     return currentTime;
   }
@@ -194,33 +450,47 @@ public class TrainRegistry {
   /**
    * Method that removes all departures that have departed.
    *
-   *<p>This method uses a stream to check if any train departures have departed.
+   *<p>This method uses {@link #departureQueue}, which is sorted by departure time + delay,
+   * so only the departures that have actually departed are looked at.
    * <ul>
-   *   <li>Identifies departures where departure time + delay is less then the current time</li>
-   *   <li>Adds these departures to a List "toRemove"</li>
-   *   <li>Removes all departures in "toRemove" from {@link #numberToDepartureMap}</li>
-   *   and {@link #trainDepartureList}</li>
+   *   <li>Takes the first departure in the queue while its
+   *   departure time + delay is less then the current time</li>
+   *   <li>Removes it from the registry with {@link #removeDeparture(int)}</li>
    * </ul>
    */
+  @Override
   public void removeDeparted() {
-    List<Integer> toRemove = numberToDepartureMap.keySet().stream()
-            .filter(key -> numberToDepartureMap.get(key).getDepartureTimeWithDelay()
-              .isBefore(currentTime))
-            .toList();
-    toRemove.forEach(numberToDepartureMap::remove);
-
-    updateTrainDepartureList();
+    long start = metrics != null ? metrics.start() : 0;
+    if (journal != null && !departureQueue.isEmpty()
+        && departureQueue.firstEntry().getValue().getDepartureTimeWithDelay()
+            .isBefore(currentTime)) {
+      writeJournal(() -> journal.recordRemoveDeparted(currentTime));
+    }
+    List<TrainDeparture> departed = new ArrayList<>();
+    while (!departureQueue.isEmpty()
+        && departureQueue.firstEntry().getValue().getDepartureTimeWithDelay()
+            .isBefore(currentTime)) {
+      departed.add(removeDeparture(departureQueue.firstEntry().getValue().getTrainNumber()));
+    }
+    publishSnapshot();
+    for (TrainDeparture trainDeparture : departed) {
+      emit(DepartureEvent.Type.DEPARTED, trainDeparture);
+    }
+    if (metrics != null) {
+      metrics.record(RegistryMetrics.Operation.REMOVE_DEPARTED, start);
+    }
   }
 
   /**
    * Method that sorts {@link #trainDepartureList} by departure time.
    *
-   *<p>this method uses  class to sort the list.
+   *<p>The list is kept in order by {@link #putDeparture(TrainDeparture)} and
+   * {@link #removeDeparture(int)}, so this only re-checks an already sorted list.
    * note that the {@link #numberToDepartureMap} is not sorted, as it is not used in the
    * user interface.
    */
   public void sortByDepartureTime() {
-    trainDepartureList.sort(Comparator.comparing(TrainDeparture::getDepartureTime));
+    trainDepartureList.sort(DEPARTURE_ORDER);
   }
 
   /**
@@ -228,19 +498,30 @@ public class TrainRegistry {
    *
    *<ul>
    *   <li>Receives a line parameter from {@link TrainDepartureUserInterface}</li>
-   *   <li>Filters {@link #trainDepartureList} by line</li>
+   *   <li>Looks up the departures of the line in {@link #lineIndex},
+   *   ignoring case sensitivity</li>
    *   <li>Collects all LocalTime values to a list,
    *   the list is later returned</li>
    *</ul>
    *
    * @param line the line of which departure times are to be found.
-   * @return a list of departure times for departures on the given line.
+   * @return a list of departure times for departures on the given line, in ascending order.
    */
+  @Override
   public List<LocalTime> departureTimesFromLine(String line) {
-    return trainDepartureList.stream()
-            .filter(trainDeparture -> trainDeparture.getLine().equalsIgnoreCase(line))
-            .map(TrainDeparture::getDepartureTime)
-            .toList();
+    return lineIndex.departureTimes(foldCase(line));
+  }
+
+  /**
+   * Method that returns all departures on a specific line, ignoring case sensitivity.
+   *
+   * @param line the line of which departures are to be found.
+   * @return a read-only list of the departures on the given line,
+   *         sorted by departure time and train number.
+   */
+  @Override
+  public List<TrainDeparture> departuresFromLine(String line) {
+    return lineIndex.departures(foldCase(line));
   }
 
   /**
@@ -248,109 +529,601 @@ public class TrainRegistry {
    *
    *<p><ul>
    *   <li>Receives a track parameter from {@link TrainDepartureUserInterface}</li>
-   *   <li>Filters {@link #trainDepartureList} by track</li>
+   *   <li>Looks up the departures of the track in {@link #trackIndex}</li>
    *   <li>Collects all LocalTime values to a list,
    *   the list is later returned.</li>
    *   </ul>
    *
    * @param track the track of which departure times are to be found.
-   * @return a list of departure times for departures on the given track.
+   * @return a list of departure times for departures on the given track, in ascending order.
    */
+  @Override
   public List<LocalTime> departureTimesFromTrack(int track) {
-    return trainDepartureList.stream()
-      .filter(trainDeparture -> trainDeparture.getTrack() == track)
-      .map(TrainDeparture::getDepartureTime)
-      .toList();
+    return trackIndex.departureTimes(track);
+  }
+
+  /**
+   * Method that returns all departures on a specific track.
+   *
+   * @param track the track of which departures are to be found.
+   * @return a read-only list of the departures on the given track,
+   *         sorted by departure time and train number.
+   */
+  @Override
+  public List<TrainDeparture> departuresFromTrack(int track) {
+    return trackIndex.departures(track);
+  }
+
+  /**
+   * Method that returns the next departures at or after a time, by scheduled departure time.
+   *
+   *<p>The first departure is found with a binary search in {@link #trainDepartureList},
+   * and the result is a read-only view of the following part of the list, so nothing is
+   * copied. The view must not be used after the registry has been changed.
+   *
+   * @param time the earliest departure time.
+   * @param count the largest number of departures to be returned.
+   * @return up to {@code count} departures, sorted by departure time and train number.
+   * @throws IllegalArgumentException if the count is less than 0.
+   */
+  @Override
+  public List<TrainDeparture> nextDepartures(LocalTime time, int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be less than 0");
+    }
+    int from = DepartureIndex.firstAtOrAfter(trainDepartureList, time);
+    int to = from + Math.min(count, trainDepartureList.size() - from);
+    return trainDepartureView.subList(from, to);
+  }
+
+  /**
+   * Method that returns all departures with a scheduled departure time in a time window.
+   *
+   *<p>Both ends of the window are found with a binary search in {@link #trainDepartureList},
+   * and the result is a read-only view of that part of the list, so nothing is copied.
+   * The view must not be used after the registry has been changed.
+   *
+   * @param from the start of the window, included.
+   * @param to the end of the window, not included.
+   * @return the departures in the window, sorted by departure time and train number.
+   */
+  @Override
+  public List<TrainDeparture> departuresBetween(LocalTime from, LocalTime to) {
+    int fromIndex = DepartureIndex.firstAtOrAfter(trainDepartureList, from);
+    int toIndex = DepartureIndex.firstAtOrAfter(trainDepartureList, to);
+    return trainDepartureView.subList(fromIndex, Math.max(fromIndex, toIndex));
+  }
+
+  /**
+   * Method that returns the next departures at or after a time, by departure time + delay.
+   *
+   *<p>The first departure is found in {@link #departureQueue}, and only the returned
+   * departures are visited.
+   *
+   * @param time the earliest departure time with delay.
+   * @param count the largest number of departures to be returned.
+   * @return up to {@code count} departures, sorted by departure time with delay
+   *         and train number.
+   * @throws IllegalArgumentException if the count is less than 0.
+   */
+  @Override
+  public List<TrainDeparture> nextDeparturesWithDelay(LocalTime time, int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be less than 0");
+    }
+    List<TrainDeparture> foundDepartures = new ArrayList<>(Math.min(count, 64));
+    Iterator<TrainDeparture> departures =
+        departureQueue.tailMap(DepartureIndex.orderKey(time, 0)).values().iterator();
+    while (foundDepartures.size() < count && departures.hasNext()) {
+      foundDepartures.add(departures.next());
+    }
+    return Collections.unmodifiableList(foundDepartures);
+  }
+
+  /**
+   * Method that returns all departures with a departure time + delay in a time window,
+   * using a range of {@link #departureQueue}.
+   *
+   * @param from the start of the window, included.
+   * @param to the end of the window, not included.
+   * @return the departures in the window, sorted by departure time with delay
+   *         and train number.
+   */
+  @Override
+  public List<TrainDeparture> departuresWithDelayBetween(LocalTime from, LocalTime to) {
+    if (!from.isBefore(to)) {
+      return List.of();
+    }
+    return List.copyOf(departureQueue.subMap(DepartureIndex.orderKey(from, 0),
+        DepartureIndex.orderKey(to, 0)).values());
   }
 
   /**
    * Method that checks if a given departure time exists on a given track.
    *
-   * <p>Retrieves a list from {@link #departureTimesFromTrack(int)} and checks if the list
-   * contains the given departure time.
+   * <p>Uses a binary search in the departures of the track in {@link #trackIndex}.
    *
    * @param track the line to be checked for.
    * @param time the departure time to be checked for.
    * @return {@code true} if the departure time exists on the given track,
    *         {@code false} otherwise.
    */
+  @Override
   public boolean checkDepartureTimeExistsTrack(int track, LocalTime time) {
-    return departureTimesFromTrack(track).contains(time);
+    return trackIndex.containsTime(track, time);
   }
 
   /**
    * Method that checks if a given departure time exists on a given line.
    *
-   * <p>Retrieves a list from {@link #departureTimesFromLine(String)} and checks if the list
-   * contains the given departure time.
+   * <p>Uses a binary search in the departures of the line in {@link #lineIndex},
+   * ignoring case sensitivity.
    *
    * @param line the line to be checked for.
    * @param time the departure time to be checked for.
    * @return {@code true} if the departure time exists on the given line,
    *         {@code false} otherwise.
    */
+  @Override
   public boolean checkDepartureTimeExistsLine(String line, LocalTime time) {
-    return departureTimesFromLine(line).contains(time);
+    return lineIndex.containsTime(foldCase(line), time);
   }
 
   /**
-   * Method that updates {@link #trainDepartureList}. So that it reflects the values in
-   * {@link #numberToDepartureMap}.
+   * Method that returns the key a line or destination is stored under
+   * in {@link #lineIndex} and {@link #destinationIndex}.
    *
-   *<p><ul>
-   *   <li>Clears the trainDepartureList</li>
-   *   <li>Adds all values from {@link #numberToDepartureMap} to the ArrayList</li>
-   *   <li>Sorts the {@link #trainDepartureList} using {@link #sortByDepartureTime()}</li>
-   *</ul>
-   * This method ensures that the {@link #trainDepartureList} correctly reflects
-   * the values in {@link #numberToDepartureMap}
+   *<p>Lines and destinations are compared without case sensitivity, and
+   * {@link TrainDepartureUserInterface#lineInput()} already uses upper case,
+   * so the text is converted to upper case.
+   *
+   * @param text the line or destination to be normalized.
+   * @return the text in upper case.
    */
-  private void updateTrainDepartureList() {
-    trainDepartureList.clear();
-    trainDepartureList.addAll(numberToDepartureMap.values());
-    sortByDepartureTime();
+  private static String foldCase(String text) {
+    return text.toUpperCase(Locale.ROOT);
   }
 
   /**
-   * Method that reads a file and creates {@link TrainDeparture} objects from the data.
+   * Method that returns the key of a TrainDeparture in {@link #departureQueue}.
    *
-   *<p>Reads "TrainDepartureData.txt" from the current working directory.
-   * The first line of the file is skipped, as it contains the column names.
-   * Each line is split into an array of strings, and variables are created
-   * from the array values. A new {@link TrainDeparture} object is created
+   * @param trainDeparture the departure.
+   * @return the key, from the departure time with delay and the train number.
+   */
+  private static long delayedKey(TrainDeparture trainDeparture) {
+    return DepartureIndex.orderKey(trainDeparture.getDepartureTimeWithDelay(),
+        trainDeparture.getTrainNumber());
+  }
+
+  /**
+   * Method that adds a TrainDeparture to {@link #numberToDepartureMap}
+   * and inserts it at its sorted position in {@link #trainDepartureList}.
    *
-   * <p><ul>
-   *   <li>Creates a new {@link TrainDeparture} object</li>
-   *   <li>Adds this object to {@link #numberToDepartureMap}</li>
-   *   <li>Calls {@link #updateTrainDepartureList()}</li>
-   *   <li>Calls {@link #sortByDepartureTime()}</li>
-   * </ul>
+   *<p>If a departure with the same train number is already registered,
+   * it is replaced and removed from the list first.
+   * The position is found with a binary search using {@link #DEPARTURE_ORDER},
+   * so the list never has to be rebuilt or re-sorted.
+   *
+   * @param trainDeparture the departure to be added.
+   */
+  private void putDeparture(TrainDeparture trainDeparture) {
+    TrainDeparture replaced = numberToDepartureMap.put(trainDeparture.getTrainNumber(),
+        trainDeparture);
+    if (replaced != null) {
+      unindexDeparture(replaced);
+    }
+    indexDeparture(trainDeparture);
+  }
+
+  /**
+   * Method that removes the TrainDeparture with the given train number from
+   * {@link #numberToDepartureMap} and {@link #trainDepartureList}.
+   *
+   * @param trainNumber the train number of the departure to be removed.
+   * @return the removed TrainDeparture, or {@code null} if it was not registered.
+   */
+  private TrainDeparture removeDeparture(int trainNumber) {
+    TrainDeparture removed = numberToDepartureMap.remove(trainNumber);
+    if (removed != null) {
+      unindexDeparture(removed);
+    }
+    return removed;
+  }
+
+  /**
+   * Method that inserts a TrainDeparture at its sorted position in {@link #trainDepartureList}
+   * and adds it to {@link #trackIndex}, {@link #lineIndex}, {@link #destinationIndex}
+   * and {@link #departureQueue}.
+   *
+   * @param trainDeparture the departure to be indexed.
+   */
+  private void indexDeparture(TrainDeparture trainDeparture) {
+    DepartureIndex.insertSorted(trainDepartureList, trainDeparture);
+    trackIndex.add(trainDeparture.getTrack(), trainDeparture);
+    lineIndex.add(foldCase(trainDeparture.getLine()), trainDeparture);
+    destinationIndex.add(foldCase(trainDeparture.getDestination()), trainDeparture);
+    departureQueue.put(delayedKey(trainDeparture), trainDeparture);
+    snapshotChanged(trainDeparture);
+  }
+
+  /**
+   * Method that removes a TrainDeparture from {@link #trainDepartureList}, {@link #trackIndex},
+   * {@link #lineIndex}, {@link #destinationIndex} and {@link #departureQueue},
+   * using a binary search to find its position.
+   *
+   * @param trainDeparture the departure to be removed from the index.
+   */
+  private void unindexDeparture(TrainDeparture trainDeparture) {
+    DepartureIndex.removeSorted(trainDepartureList, trainDeparture);
+    trackIndex.remove(trainDeparture.getTrack(), trainDeparture);
+    lineIndex.remove(foldCase(trainDeparture.getLine()), trainDeparture);
+    destinationIndex.remove(foldCase(trainDeparture.getDestination()), trainDeparture);
+    departureQueue.remove(delayedKey(trainDeparture));
+    snapshotChanged(trainDeparture);
+  }
+
+  /**
+   * Method that reads a file and creates {@link TrainDeparture} objects from the data.
+   *
+   *<p>Reads "TrainDepartureData.txt" from the current working directory,
+   * using {@link #loadDepartures(Path)}.
+   * If the file cannot be read, an error message is printed.
    */
   public void fillTrainDepartureListFromFile() {
     Path filePath = Paths.get("src/main/resources/TrainDepartureData.txt");
+    try {
+      loadDepartures(filePath);
+    } catch (IOException e) {
+      System.out.println("Error reading file");
+    }
+  }
+
+  /**
+   * Method that bulk loads departures from a timetable file.
+   *
+   * @param filePath the path of the timetable file.
+   * @throws IOException if the file cannot be read.
+   * @see #loadDepartures(Reader)
+   */
+  public void loadDepartures(Path filePath) throws IOException {
+    long start = metrics != null ? metrics.start() : 0;
     try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-      reader.readLine(); // skip first line
-
-      String line = reader.readLine().trim();
-      while (line != null) {
-        String[] data = line.split(",");
-        LocalTime departureTime = LocalTime.parse(data[0], formatter);
-        String lineName = data[1].trim();
-        String destination = data[2].trim();
-        int trainNumber = Integer.parseInt(data[3].trim());
-        int track = Integer.parseInt(data[4].trim());
-        LocalTime delay = LocalTime.parse(data[5].trim(), formatter);
-        line = reader.readLine();
-        TrainDeparture trainDeparture = new TrainDeparture(departureTime, lineName, destination,
-            trainNumber, track, delay);
-        numberToDepartureMap.put(trainNumber, trainDeparture);
-        updateTrainDepartureList();
-        sortByDepartureTime();
+      loadDepartures(reader);
+    }
+    if (metrics != null) {
+      metrics.record(RegistryMetrics.Operation.LOAD, start);
+    }
+  }
+
+  /**
+   * Method that bulk loads departures from a large timetable file, parsing it
+   * on all cores with {@link ParallelTimetableLoader#load(DepartureRegistry, Path)}.
+   *
+   *<p>The result is the same as with {@link #loadDepartures(Path)},
+   * a train number that appears more than once gets its last row in the file.
+   *
+   * @param filePath the path of the timetable file.
+   * @throws IOException if the file cannot be read.
+   */
+  public void loadDeparturesParallel(Path filePath) throws IOException {
+    long start = metrics != null ? metrics.start() : 0;
+    ParallelTimetableLoader.load(this, filePath);
+    if (metrics != null) {
+      metrics.record(RegistryMetrics.Operation.LOAD, start);
+    }
+  }
+
+  /**
+   * Method that bulk loads departures from a reader with timetable data.
+   *
+   *<p>The first line is skipped, as it contains the column names.
+   * Each of the following lines is parsed with {@link #parseDeparture(String)},
+   * blank lines are ignored. The reader is not closed.
+   *
+   * @param reader the reader with the timetable data.
+   * @throws IOException if the reader cannot be read.
+   * @see #loadDepartures(Stream)
+   */
+  public void loadDepartures(Reader reader) throws IOException {
+    BufferedReader bufferedReader = reader instanceof BufferedReader buffered
+        ? buffered : new BufferedReader(reader);
+    bufferedReader.readLine(); // skip first line
+
+    List<TrainDeparture> departures = new ArrayList<>();
+    DepartureParser parser = new DepartureParser();
+    String line = bufferedReader.readLine();
+    while (line != null) {
+      if (!line.isBlank()) {
+        departures.add(parser.parse(line));
       }
+      line = bufferedReader.readLine();
+    }
+    loadDepartures(departures.stream());
+  }
+
+  /**
+   * Method that bulk loads a stream of TrainDeparture objects into the registry.
+   *
+   *<p>All departures are put in {@link #numberToDepartureMap} first,
+   * a later departure with the same train number replaces an earlier one.
+   * The indexes are then built once with {@link #rebuildIndexes()},
+   * so the list is sorted exactly once no matter how many departures are loaded.
+   *
+   * @param departures the departures to be added.
+   */
+  @Override
+  public void loadDepartures(Stream<TrainDeparture> departures) {
+    departures.forEach(trainDeparture ->
+        numberToDepartureMap.put(trainDeparture.getTrainNumber(), trainDeparture));
+    rebuildIndexes();
+    publishSnapshot();
+    emit(DepartureEvent.Type.RELOADED, null);
+  }
+
+  /**
+   * Method that sets the journal that changes to the registry are written to.
+   *
+   *<p>After this, every call to
+   * {@link #addDeparture(LocalTime, String, String, int, int, LocalTime)},
+   * {@link #assignTrack(int, int)}, {@link #addDelay(int, LocalTime)},
+   * {@link #cancelDeparture(int)}, {@link #applyBatch(DepartureBatch)}
+   * and {@link #removeDeparted()} that changes the registry is recorded in the journal.
+   * The change is checked and recorded before it is applied, so if the journal cannot be
+   * written, an {@link UncheckedIOException} is thrown and the registry is not changed.
+   * Bulk loads are not recorded, since they are loaded again from their file on startup.
+   *
+   * @param journal the journal, or {@code null} to stop recording changes.
+   * @see MutationJournal
+   */
+  public void setJournal(MutationJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Method that sets the metrics that operations on the registry are recorded in.
+   *
+   *<p>After this, the latency of every call to
+   * {@link #addDeparture(LocalTime, String, String, int, int, LocalTime)},
+   * {@link #departureFromNumber(int)}, {@link #departureFromDestination(String)},
+   * {@link #assignTrack(int, int)}, {@link #addDelay(int, LocalTime)},
+   * {@link #removeDeparted()}, {@link #loadDepartures(Path)},
+   * {@link #loadDeparturesParallel(Path)} and {@link #loadSnapshot(Path)}
+   * that does not throw is recorded.
+   *
+   * @param metrics the metrics, or {@code null} to stop recording.
+   * @see RegistryMetrics
+   */
+  public void setMetrics(RegistryMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Method that adds a listener that receives a {@link DepartureEvent} for every change
+   * to the registry.
+   *
+   *<p>The events are sent on the thread that changes the registry, while it holds the lock
+   * of the registry, after the change has been published to {@link #snapshot()}.
+   * A listener should therefore only record the event and return quickly, and must not
+   * throw. A bulk load sends one {@link DepartureEvent.Type#RELOADED} event instead of
+   * one event per departure.
+   *
+   * @param listener the listener.
+   * @see BoardDiff
+   */
+  public void subscribe(Consumer<DepartureEvent> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Method that removes a listener added with {@link #subscribe(Consumer)}.
+   *
+   * @param listener the listener.
+   * @return {@code true} if the listener was found and removed.
+   */
+  public boolean unsubscribe(Consumer<DepartureEvent> listener) {
+    return listeners.remove(listener);
+  }
+
+  /**
+   * Method that returns the sequence number of the last event that was sent.
+   *
+   * @return the sequence number, or 0 if no event has been sent.
+   */
+  public long getEventSequence() {
+    return eventSequence;
+  }
+
+  /**
+   * Method that creates the next event, with a copy of the departure as it is now.
+   *
+   * @param type the kind of change.
+   * @param trainDeparture the departure, or {@code null} for a reload.
+   * @return the event.
+   */
+  private DepartureEvent newEvent(DepartureEvent.Type type, TrainDeparture trainDeparture) {
+    return new DepartureEvent(++eventSequence, type,
+        trainDeparture == null ? null : trainDeparture.copy());
+  }
+
+  /**
+   * Method that sends an event to every listener, if there are any.
+   *
+   * @param type the kind of change.
+   * @param trainDeparture the departure after the change, or {@code null} for a reload.
+   */
+  private void emit(DepartureEvent.Type type, TrainDeparture trainDeparture) {
+    if (!listeners.isEmpty()) {
+      emit(newEvent(type, trainDeparture));
+    }
+  }
+
+  private void emit(DepartureEvent event) {
+    for (Consumer<DepartureEvent> listener : listeners) {
+      listener.accept(event);
+    }
+  }
+
+  /**
+   * A write to the {@link #journal}.
+   */
+  private interface JournalWrite {
+    void write() throws IOException;
+  }
+
+  /**
+   * Method that writes a change to the {@link #journal}.
+   *
+   * @param journalWrite the write to be done.
+   * @throws UncheckedIOException if the journal cannot be written.
+   */
+  private void writeJournal(JournalWrite journalWrite) {
+    try {
+      journalWrite.write();
     } catch (IOException e) {
-        System.out.println("Error reading file");
+      throw new UncheckedIOException("Could not write to the journal", e);
     }
   }
 
-}
+  /**
+   * Method that saves all departures to a binary snapshot file,
+   * using {@link TimetableSnapshot#save(DepartureRegistry, Path)}.
+   *
+   * @param filePath the path of the snapshot file.
+   * @throws IOException if the file cannot be written.
+   */
+  public void saveSnapshot(Path filePath) throws IOException {
+    TimetableSnapshot.save(this, filePath);
+  }
 
+  /**
+   * Method that bulk loads departures from a binary snapshot file,
+   * using {@link TimetableSnapshot#load(DepartureRegistry, Path)}.
+   *
+   * @param filePath the path of the snapshot file.
+   * @throws IOException if the file cannot be read or is not a valid snapshot.
+   */
+  public void loadSnapshot(Path filePath) throws IOException {
+    long start = metrics != null ? metrics.start() : 0;
+    TimetableSnapshot.load(this, filePath);
+    if (metrics != null) {
+      metrics.record(RegistryMetrics.Operation.LOAD, start);
+    }
+  }
+
+  /**
+   * Method that creates a TrainDeparture from one line of timetable data.
+   *
+   *<p>The values are read in the order
+   * departure time, line, destination, train number, track and delay,
+   * see {@link DepartureParser}.
+   *
+   * @param row a comma separated line from the timetable file.
+   * @return a new TrainDeparture with the values from the line.
+   */
+  static TrainDeparture parseDeparture(String row) {
+    return new DepartureParser().parse(row);
+  }
+
+  /**
+   * Method that rebuilds every index from {@link #numberToDepartureMap}.
+   *
+   *<p>Only used after a bulk load, single changes update the indexes in place
+   * with {@link #indexDeparture(TrainDeparture)} and
+   * {@link #unindexDeparture(TrainDeparture)}.
+   */
+  private void rebuildIndexes() {
+    trainDepartureList.clear();
+    trainDepartureList.addAll(numberToDepartureMap.values());
+    sortByDepartureTime();
+    trackIndex.clear();
+    lineIndex.clear();
+    destinationIndex.clear();
+    departureQueue.clear();
+    trainDepartureList.forEach(trainDeparture -> {
+      departureQueue.put(delayedKey(trainDeparture), trainDeparture);
+      trackIndex.add(trainDeparture.getTrack(), trainDeparture);
+      lineIndex.add(foldCase(trainDeparture.getLine()), trainDeparture);
+      destinationIndex.add(foldCase(trainDeparture.getDestination()), trainDeparture);
+    });
+    if (snapshotBuilder != null) {
+      snapshotChanges.clear();
+      snapshotRebuild = true;
+    }
+  }
+
+  /**
+   * Method that returns the latest published snapshot of the registry.
+   *
+   *<p>The snapshot never changes, so it can be read from any thread without locking,
+   * while other threads change the registry. A new snapshot is published at the end of
+   * every change, batch or bulk load, so a reader never sees half of a change.
+   * <ul>
+   *   <li>The first call builds a snapshot of the whole registry while holding the lock of
+   *   the registry, and from then on the registry publishes a snapshot after every change.
+   *   </li>
+   *   <li>After that, this method is a single volatile read.</li>
+   * </ul>
+   * As with every other method, threads that change the registry must synchronize on it.
+   *
+   * @return the latest snapshot.
+   * @see RegistrySnapshot
+   */
+  public RegistrySnapshot snapshot() {
+    RegistrySnapshot current = snapshot;
+    if (current != null) {
+      return current;
+    }
+    synchronized (this) {
+      if (snapshot == null) {
+        snapshotBuilder = new RegistrySnapshot.Builder();
+        snapshotRebuild = true;
+        publishSnapshot();
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Method that marks a departure as changed since the last snapshot,
+   * if snapshots are published.
+   *
+   * @param trainDeparture the departure that was added, changed or removed.
+   */
+  private void snapshotChanged(TrainDeparture trainDeparture) {
+    if (snapshotBuilder != null && !snapshotRebuild) {
+      snapshotChanges.add(trainDeparture);
+    }
+  }
+
+  /**
+   * Method that publishes a new {@link RegistrySnapshot} if anything has changed since the
+   * last one.
+   *
+   *<p>Departures that are no longer in {@link #numberToDepartureMap} are removed from the
+   * snapshot first, then the departures that are still registered are copied into it,
+   * so a departure that replaced another one with the same train number is kept.
+   */
+  private void publishSnapshot() {
+    if (snapshotBuilder == null || (!snapshotRebuild && snapshotChanges.isEmpty())) {
+      return;
+    }
+    if (snapshotRebuild) {
+      snapshotBuilder.reset(trainDepartureList);
+    } else {
+      for (TrainDeparture trainDeparture : snapshotChanges) {
+        if (numberToDepartureMap.get(trainDeparture.getTrainNumber()) != trainDeparture) {
+          snapshotBuilder.remove(trainDeparture);
+        }
+      }
+      for (TrainDeparture trainDeparture : snapshotChanges) {
+        if (numberToDepartureMap.get(trainDeparture.getTrainNumber()) == trainDeparture) {
+          snapshotBuilder.put(trainDeparture);
+        }
+      }
+    }
+    snapshotChanges.clear();
+    snapshotRebuild = false;
+    snapshot = snapshotBuilder.build(++snapshotVersion);
+  }
+
+}
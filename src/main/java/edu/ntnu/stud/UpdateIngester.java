@@ -0,0 +1,393 @@
+package edu.ntnu.stud;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that reads a continuous stream of departure updates and applies them to a
+ * {@link TrainRegistry} in batches.
+ *
+ *<p>Each update is one line of text, with the fields separated by commas:
+ * <ul>
+ *     <li>{@code DELAY,trainNumber,HH:mm}</li>
+ *     <li>{@code TRACK,trainNumber,track}</li>
+ *     <li>{@code CANCEL,trainNumber}</li>
+ *     <li>{@code ADD,} followed by a row in the timetable file format,
+ *     see {@link TrainRegistry#parseDeparture(String)}</li>
+ * </ul>
+ * Blank lines and lines starting with {@code #} are ignored,
+ * lines that cannot be parsed are counted and skipped.
+ *
+ *<p>Every source, such as a pipe, a socket stream or a file that is followed with
+ * {@link #tail(Path, Duration)}, is read and parsed on its own thread. The parsed updates
+ * are put in one bounded queue. When the queue is full, the source threads wait,
+ * so a fast source is slowed down to the speed the registry can take.
+ *
+ *<p>One thread takes all waiting updates from the queue, up to {@code maxBatchSize},
+ * and applies them with {@link TrainRegistry#applyBatch(DepartureBatch)}. Before that,
+ * updates for the same train number are coalesced: only the last delay and the last track
+ * are kept, and a new departure or a cancellation replaces every earlier update.
+ * The batch is applied while holding the lock of the registry, so other threads can
+ * read the registry safely by synchronizing on it.
+ *
+ * @see DepartureBatch
+ */
+public class UpdateIngester implements Closeable {
+  private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
+  private static final DepartureBatch.Mutation END = new DepartureBatch.Cancel(0);
+
+  private final TrainRegistry trainRegistry;
+  private final int maxBatchSize;
+  private final BlockingQueue<DepartureBatch.Mutation> updateQueue;
+  private final List<Thread> sourceThreads = new ArrayList<>();
+  private final Thread applyThread;
+  private final AtomicLong appliedUpdates = new AtomicLong();
+  private final AtomicLong rejectedUpdates = new AtomicLong();
+  private final AtomicLong malformedUpdates = new AtomicLong();
+  private final AtomicLong appliedBatches = new AtomicLong();
+  private volatile boolean closed = false;
+  private volatile Exception failure = null;
+
+  /**
+   * Creates an ingester with room for 8192 waiting updates and batches of at most 1024.
+   *
+   * @param trainRegistry the registry the updates are applied to.
+   */
+  public UpdateIngester(TrainRegistry trainRegistry) {
+    this(trainRegistry, 8192, 1024);
+  }
+
+  /**
+   * Creates an ingester and starts the thread that applies the updates.
+   *
+   * @param trainRegistry the registry the updates are applied to.
+   * @param queueCapacity the number of parsed updates that can wait to be applied.
+   * @param maxBatchSize the largest number of updates applied in one batch.
+   * @throws IllegalArgumentException if the capacity or batch size is less than 1.
+   */
+  public UpdateIngester(TrainRegistry trainRegistry, int queueCapacity, int maxBatchSize) {
+    if (queueCapacity < 1 || maxBatchSize < 1) {
+      throw new IllegalArgumentException("Queue capacity and batch size cannot be less than 1");
+    }
+    this.trainRegistry = trainRegistry;
+    this.maxBatchSize = maxBatchSize;
+    this.updateQueue = new ArrayBlockingQueue<>(queueCapacity);
+    this.applyThread = new Thread(this::applyUpdates, "update-apply");
+    applyThread.setDaemon(true);
+    applyThread.start();
+  }
+
+  /**
+   * Method that starts reading updates from a source, such as a pipe or a socket stream.
+   * The source is read until it ends, and is then closed.
+   * The last line of the source does not need a line break.
+   *
+   * @param source the source of the updates.
+   * @throws IllegalStateException if the ingester is closed.
+   */
+  public void addSource(Reader source) {
+    startSource(source, null);
+  }
+
+  /**
+   * Method that starts following a file, like {@code tail -f}.
+   *
+   *<p>The file is read from the start. When the end is reached, the file is checked
+   * again after {@code pollInterval}, until the ingester is closed.
+   * A line is only parsed once its line break has been written. A last line without a
+   * line break when the ingester is closed may be partly written, so it is ignored.
+   *
+   * @param filePath the path of the file to follow.
+   * @param pollInterval the time to wait at the end of the file.
+   * @throws IOException if the file cannot be opened.
+   * @throws IllegalStateException if the ingester is closed.
+   */
+  public void tail(Path filePath, Duration pollInterval) throws IOException {
+    startSource(Files.newBufferedReader(filePath), pollInterval);
+  }
+
+  /**
+   * Method that returns the number of updates that have been applied to the registry.
+   * Coalesced updates are not counted.
+   *
+   * @return the number of applied updates.
+   */
+  public long getAppliedUpdates() {
+    return appliedUpdates.get();
+  }
+
+  /**
+   * Method that returns the number of updates the registry did not accept,
+   * such as a delay for a train number that is not registered.
+   *
+   * @return the number of rejected updates.
+   */
+  public long getRejectedUpdates() {
+    return rejectedUpdates.get();
+  }
+
+  /**
+   * Method that returns the number of lines that could not be parsed.
+   *
+   * @return the number of malformed lines.
+   */
+  public long getMalformedUpdates() {
+    return malformedUpdates.get();
+  }
+
+  /**
+   * Method that returns the number of batches applied to the registry.
+   *
+   * @return the number of applied batches.
+   */
+  public long getAppliedBatches() {
+    return appliedBatches.get();
+  }
+
+  /**
+   * Method that stops the ingester.
+   *
+   *<p>Followed files are read to their current end and then closed. Other sources are
+   * read until they end, so a socket source has to be closed by its other side first.
+   * All updates that were read are applied before this method returns.
+   *
+   * @throws IOException if a source could not be read.
+   * @throws IllegalStateException if a batch could not be applied.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (sourceThreads) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    try {
+      for (Thread sourceThread : sourceThreads) {
+        sourceThread.join();
+      }
+      updateQueue.put(END);
+      applyThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while closing the ingester", e);
+    }
+    if (failure instanceof IOException ioException) {
+      throw ioException;
+    } else if (failure != null) {
+      throw new IllegalStateException("Could not apply updates", failure);
+    }
+  }
+
+  /**
+   * Method that creates a change from one line of update text.
+   *
+   *<p>A delay of 00:00 and a negative track are rejected here, like
+   * {@link TrainRegistry#applyBatch(DepartureBatch)} does, so that {@link #coalesce(List)}
+   * never lets an invalid change replace a valid one for the same train.
+   *
+   * @param text one line from an update source.
+   * @return the change, or {@code null} if the line is blank or a comment.
+   * @throws IllegalArgumentException if the line cannot be parsed.
+   */
+  static DepartureBatch.Mutation parseUpdate(String text) {
+    String row = text.trim();
+    if (row.isEmpty() || row.startsWith("#")) {
+      return null;
+    }
+    int comma = row.indexOf(',');
+    if (comma < 0) {
+      throw new IllegalArgumentException("Update has no train number: " + row);
+    }
+    String type = row.substring(0, comma).trim();
+    String fields = row.substring(comma + 1);
+    DepartureBatch.Mutation update;
+    try {
+      if (type.equalsIgnoreCase("ADD")) {
+        TrainDeparture trainDeparture = TrainRegistry.parseDeparture(fields);
+        return new DepartureBatch.Add(trainDeparture.getDepartureTime(),
+            trainDeparture.getLine(), trainDeparture.getDestination(),
+            trainDeparture.getTrainNumber(), trainDeparture.getTrack(),
+            trainDeparture.getDelay());
+      }
+      String[] data = fields.split(",");
+      int trainNumber = Integer.parseInt(data[0].trim());
+      if (type.equalsIgnoreCase("DELAY")) {
+        update = new DepartureBatch.Delay(trainNumber, LocalTime.parse(data[1].trim(), formatter));
+      } else if (type.equalsIgnoreCase("TRACK")) {
+        update = new DepartureBatch.Track(trainNumber, Integer.parseInt(data[1].trim()));
+      } else if (type.equalsIgnoreCase("CANCEL")) {
+        return new DepartureBatch.Cancel(trainNumber);
+      } else {
+        update = null;
+      }
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Malformed update: " + row, e);
+    }
+    if (update == null) {
+      throw new IllegalArgumentException("Unknown update type: " + type);
+    } else if (update instanceof DepartureBatch.Delay delay
+        && delay.delay().equals(LocalTime.of(0, 0))) {
+      throw new IllegalArgumentException("Cannot update delay to 00:00: " + row);
+    } else if (update instanceof DepartureBatch.Track track && track.track() < 0) {
+      throw new IllegalArgumentException("Track cannot be less than 0: " + row);
+    }
+    return update;
+  }
+
+  /**
+   * Method that coalesces the updates for each train number, keeping their effect.
+   *
+   *<p>For each train number the result has at most a new departure or a cancellation,
+   * then a track, then a delay, in that order. Train numbers keep the order of
+   * their first update.
+   *
+   * @param updates the updates in the order they were read.
+   * @return a batch with the coalesced updates.
+   */
+  static DepartureBatch coalesce(List<DepartureBatch.Mutation> updates) {
+    LinkedHashMap<Integer, DepartureBatch.Mutation[]> byTrainNumber = new LinkedHashMap<>();
+    for (DepartureBatch.Mutation update : updates) {
+      DepartureBatch.Mutation[] pending =
+          byTrainNumber.computeIfAbsent(update.trainNumber(), k -> new DepartureBatch.Mutation[3]);
+      if (update instanceof DepartureBatch.Track) {
+        pending[1] = update;
+      } else if (update instanceof DepartureBatch.Delay) {
+        pending[2] = update;
+      } else {
+        pending[0] = update;
+        pending[1] = null;
+        pending[2] = null;
+      }
+    }
+    DepartureBatch batch = new DepartureBatch();
+    for (DepartureBatch.Mutation[] pending : byTrainNumber.values()) {
+      for (DepartureBatch.Mutation update : pending) {
+        if (update != null) {
+          batch.add(update);
+        }
+      }
+    }
+    return batch;
+  }
+
+  private void startSource(Reader source, Duration pollInterval) {
+    synchronized (sourceThreads) {
+      if (closed) {
+        throw new IllegalStateException("The ingester is closed");
+      }
+      Thread sourceThread = new Thread(() -> readUpdates(source, pollInterval),
+          "update-source-" + sourceThreads.size());
+      sourceThread.setDaemon(true);
+      sourceThreads.add(sourceThread);
+      sourceThread.start();
+    }
+  }
+
+  /**
+   * Reads lines from a source and puts the parsed updates in {@link #updateQueue}.
+   *
+   * @param source the source of the updates.
+   * @param pollInterval the time to wait at the end of a followed file,
+   *        or {@code null} to stop at the end of the source.
+   */
+  private void readUpdates(Reader source, Duration pollInterval) {
+    char[] buffer = new char[8192];
+    StringBuilder line = new StringBuilder();
+    try (source) {
+      while (true) {
+        int read = source.read(buffer);
+        if (read < 0) {
+          if (pollInterval == null || closed) {
+            break;
+          }
+          Thread.sleep(pollInterval.toMillis());
+          continue;
+        }
+        int start = 0;
+        for (int i = 0; i < read; i++) {
+          if (buffer[i] == '\n') {
+            line.append(buffer, start, i - start);
+            queueUpdate(line.toString());
+            line.setLength(0);
+            start = i + 1;
+          }
+        }
+        line.append(buffer, start, read - start);
+      }
+      if (line.length() > 0 && pollInterval == null) {
+        queueUpdate(line.toString());
+      }
+    } catch (IOException e) {
+      failure = e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void queueUpdate(String line) throws InterruptedException {
+    DepartureBatch.Mutation update;
+    try {
+      update = parseUpdate(line);
+    } catch (IllegalArgumentException e) {
+      malformedUpdates.incrementAndGet();
+      return;
+    }
+    if (update != null) {
+      updateQueue.put(update);
+    }
+  }
+
+  /**
+   * Takes updates from {@link #updateQueue} and applies them in batches, until
+   * {@link #END} is taken. Waits for the first update of each batch, and then takes
+   * the updates that are already waiting, so a batch is never held back for more updates.
+   */
+  private void applyUpdates() {
+    List<DepartureBatch.Mutation> updates = new ArrayList<>(maxBatchSize);
+    boolean running = true;
+    while (running) {
+      try {
+        updates.add(updateQueue.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      updateQueue.drainTo(updates, maxBatchSize - 1);
+      if (updates.get(updates.size() - 1) == END) {
+        updates.remove(updates.size() - 1);
+        running = false;
+      }
+      if (!updates.isEmpty()) {
+        applyBatch(coalesce(updates));
+      }
+      updates.clear();
+    }
+  }
+
+  private void applyBatch(DepartureBatch batch) {
+    try {
+      DepartureBatch.Result result;
+      synchronized (trainRegistry) {
+        result = trainRegistry.applyBatch(batch);
+      }
+      appliedUpdates.addAndGet(result.applied());
+      rejectedUpdates.addAndGet(result.failures().size());
+      appliedBatches.incrementAndGet();
+    } catch (RuntimeException e) {
+      failure = e;
+      rejectedUpdates.addAndGet(batch.size());
+    }
+  }
+}
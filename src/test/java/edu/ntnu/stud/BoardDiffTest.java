@@ -0,0 +1,91 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardDiffTest {
+    private TrainRegistry trainRegistry;
+    private BoardDiff boardDiff;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new TrainRegistry();
+        trainRegistry.addDeparture(LocalTime.of(12, 0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(10, 0), "L2", "Stavanger", 2, 2, LocalTime.of(0, 0));
+        boardDiff = new BoardDiff(trainRegistry);
+        trainRegistry.subscribe(boardDiff);
+    }
+
+    private String row(int trainNumber) {
+        String row = trainRegistry.departureFromNumber(trainNumber).toString();
+        return row.substring(0, row.length() - 1);
+    }
+
+    private static List<String> lines(CharSequence diff) {
+        return diff.isEmpty() ? List.of() : List.of(diff.toString().split("\n"));
+    }
+
+    @Test
+    void testFirstRenderIsWholeBoard() {
+        List<String> lines = lines(boardDiff.render());
+        assertEquals(List.of("=",
+                "+ 2 " + row(2),
+                "+ 1 " + row(1)), lines);
+        assertEquals(List.of(), lines(boardDiff.render()));
+    }
+
+    @Test
+    void testOnlyLatestChangeIsRendered() {
+        boardDiff.render();
+        trainRegistry.addDelay(1, LocalTime.of(0, 5));
+        trainRegistry.addDelay(1, LocalTime.of(0, 10));
+        trainRegistry.assignTrack(2, 4);
+        assertEquals(2, boardDiff.pendingChanges());
+
+        List<String> lines = lines(boardDiff.render());
+        assertEquals(List.of("+ 1 " + row(1),
+                "+ 2 " + row(2)), lines);
+        assertTrue(lines.get(0).contains("00:10"));
+        assertEquals(trainRegistry.getEventSequence(), boardDiff.getRenderedSequence());
+    }
+
+    @Test
+    void testRemovedDepartures() {
+        boardDiff.render();
+        TrainDeparture cancelled = trainRegistry.departureFromNumber(2);
+        String row = cancelled.toString().substring(0, cancelled.toString().length() - 1);
+        trainRegistry.cancelDeparture(2);
+        trainRegistry.setCurrentTime(LocalTime.of(13, 0));
+        trainRegistry.removeDeparted();
+
+        List<String> lines = lines(boardDiff.render());
+        assertEquals(2, lines.size());
+        assertEquals("- 2 " + row, lines.get(0));
+        assertTrue(lines.get(1).startsWith("- 1 "));
+    }
+
+    @Test
+    void testBulkLoadRendersWholeBoard() {
+        boardDiff.render();
+        trainRegistry.loadDepartures(Stream.of(
+                new TrainDeparture(LocalTime.of(9, 0), "L3", "Bergen", 3, 1, LocalTime.of(0, 0))));
+        trainRegistry.addDelay(3, LocalTime.of(0, 2));
+
+        List<String> lines = lines(boardDiff.render());
+        assertEquals("=", lines.get(0));
+        assertEquals(4, lines.size());
+        assertEquals("+ 3 " + row(3), lines.get(1));
+    }
+
+    @Test
+    void testUnsubscribedDiffIsNotChanged() {
+        boardDiff.render();
+        assertTrue(trainRegistry.unsubscribe(boardDiff));
+        trainRegistry.addDelay(1, LocalTime.of(0, 5));
+        assertEquals(0, boardDiff.pendingChanges());
+    }
+}
@@ -0,0 +1,21 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardRendererTest {
+
+    @Test
+    void testRender() {
+        TrainDeparture first = new TrainDeparture(LocalTime.of(10, 0), "L1", "Oslo", 1, 2, LocalTime.of(0, 0));
+        TrainDeparture second = new TrainDeparture(LocalTime.of(11, 0), "L2", "Bergen", 2, LocalTime.of(0, 5));
+        BoardRenderer boardRenderer = new BoardRenderer("+---+");
+
+        assertEquals(first + "+---+\n" + second + "+---+",
+                boardRenderer.render(List.of(first, second)).toString());
+        assertEquals(second + "+---+", boardRenderer.render(List.of(second)).toString());
+        assertEquals("", boardRenderer.render(List.of()).toString());
+    }
+}
@@ -0,0 +1,104 @@
+package edu.ntnu.stud;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardWriterTest {
+
+    private static List<TrainDeparture> departures(int count) {
+        List<TrainDeparture> departures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalTime departureTime = LocalTime.of(0, 1).plusMinutes(i % 1439);
+            departures.add(new TrainDeparture(departureTime, "L" + i, "Trøndelag", i + 1, i % 5,
+                    LocalTime.of(0, 0)));
+        }
+        return departures;
+    }
+
+    private static String rows(List<TrainDeparture> departures) {
+        return new BoardRenderer("+---+").render(departures) + "\n";
+    }
+
+    @Test
+    void testWriteMatchesRenderer() throws IOException {
+        List<TrainDeparture> departures = departures(10);
+        BoardWriter boardWriter = new BoardWriter("+---+", 3, StandardCharsets.UTF_8);
+        StringWriter writer = new StringWriter();
+        boardWriter.write(departures, writer);
+        assertEquals(rows(departures), writer.toString());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        boardWriter.write(departures, stream);
+        assertEquals(rows(departures), stream.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream channelBytes = new ByteArrayOutputStream();
+        boardWriter.write(departures, Channels.newChannel(channelBytes));
+        assertEquals(rows(departures), channelBytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWritePage() throws IOException {
+        List<TrainDeparture> departures = departures(7);
+        BoardWriter boardWriter = new BoardWriter("+---+", 3, StandardCharsets.UTF_8);
+        assertEquals(3, boardWriter.pageCount(departures));
+        assertEquals(0, boardWriter.pageCount(List.of()));
+
+        StringWriter writer = new StringWriter();
+        assertEquals(3, boardWriter.writePage(departures, 1, writer));
+        assertEquals(rows(departures.subList(3, 6)), writer.toString());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        assertEquals(1, boardWriter.writePage(departures, 2, stream));
+        assertEquals(rows(departures.subList(6, 7)), stream.toString(StandardCharsets.UTF_8));
+
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> boardWriter.writePage(departures, 3, writer));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> boardWriter.writePage(departures, -1, writer));
+    }
+
+    @Test
+    void testWriteLargeBoard() throws IOException {
+        List<TrainDeparture> departures = departures(5000);
+        BoardWriter boardWriter = new BoardWriter("+---+", BoardWriter.DEFAULT_PAGE_SIZE,
+                StandardCharsets.UTF_8);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        boardWriter.write(departures, stream);
+        assertEquals(rows(departures), stream.toString(StandardCharsets.UTF_8));
+        assertEquals(5, boardWriter.pageCount(departures));
+        assertEquals(BoardWriter.DEFAULT_PAGE_SIZE, new BoardWriter("+---+").getPageSize());
+    }
+
+    @Test
+    void testPrintStreamUsesItsOwnCharset() {
+        List<TrainDeparture> departures = departures(3);
+        BoardWriter boardWriter = new BoardWriter("+---+", 2, StandardCharsets.US_ASCII);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        boardWriter.write(departures, stream);
+        assertEquals(rows(departures), bytes.toString(StandardCharsets.UTF_8));
+        assertTrue(bytes.toString(StandardCharsets.UTF_8).contains("Trøndelag"));
+    }
+
+    @Test
+    void testWriteEmptyBoard() throws IOException {
+        StringWriter writer = new StringWriter();
+        new BoardWriter("+---+").write(List.of(), writer);
+        assertEquals("", writer.toString());
+    }
+
+    @Test
+    void testInvalidPageSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new BoardWriter("+---+", 0, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,106 @@
+package edu.ntnu.stud;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandScriptTest {
+    private TrainRegistry trainRegistry;
+    private CommandScript commandScript;
+    private StringWriter output;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new TrainRegistry();
+        commandScript = new CommandScript(trainRegistry);
+        output = new StringWriter();
+    }
+
+    private CommandScript.Summary run(String script) throws IOException {
+        return commandScript.run(new StringReader(script), output);
+    }
+
+    @Test
+    void testRunsChanges() throws IOException {
+        CommandScript.Summary summary = run("""
+                # morning
+                ADD,12:00, L1, Trondheim, 1, 0, 00:00
+                ADD,13:00, L2, Bergen, 2, 3, 00:00
+
+                DELAY,1,00:15
+                TRACK,1,4
+                CANCEL,2
+                """);
+
+        assertEquals(5, summary.commands());
+        assertEquals(0, summary.failed());
+        assertEquals("", output.toString());
+        assertEquals(LocalTime.of(0, 15), trainRegistry.departureFromNumber(1).getDelay());
+        assertEquals(4, trainRegistry.departureFromNumber(1).getTrack());
+        assertNull(trainRegistry.departureFromNumber(2));
+    }
+
+    @Test
+    void testClockRemovesDepartedAndPrintWritesBoard() throws IOException {
+        run("""
+                ADD,12:00, L1, Trondheim, 1, 0, 00:00
+                ADD,13:00, L2, Bergen, 2, 3, 00:00
+                CLOCK,12:30
+                PRINT
+                """);
+
+        assertEquals(LocalTime.of(12, 30), trainRegistry.getCurrentTime());
+        assertNull(trainRegistry.departureFromNumber(1));
+        String board = output.toString();
+        assertTrue(board.startsWith("Current Time: 12:30\n" + TrainDepartureUserInterface.TABLE_LINE));
+        assertTrue(board.contains(trainRegistry.departureFromNumber(2).toString()));
+        assertFalse(board.contains("Trondheim"));
+    }
+
+    @Test
+    void testFailedCommandsAreReportedAndSkipped() throws IOException {
+        CommandScript.Summary summary = run("""
+                ADD,12:00, L1, Trondheim, 1, 0, 00:00
+                DELAY,9,00:10
+                JUMP,1
+                CLOCK,11:00
+                CLOCK,10:00
+                CLOCK,25:00
+                TRACK,1,2
+                """);
+
+        assertEquals(7, summary.commands());
+        assertEquals(4, summary.failed());
+        String[] lines = output.toString().split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("Line 2: Train number not found", lines[0]);
+        assertTrue(lines[1].startsWith("Line 3: Unknown update type"));
+        assertEquals("Line 5: Cannot set time before current time", lines[2]);
+        assertTrue(lines[3].startsWith("Line 6: "));
+        assertEquals(2, trainRegistry.departureFromNumber(1).getTrack());
+    }
+
+    @Test
+    void testLongScriptIsAppliedInBatches() throws IOException {
+        StringBuilder script = new StringBuilder();
+        int count = CommandScript.MAX_BATCH_SIZE * 2 + 10;
+        for (int i = 1; i <= count; i++) {
+            script.append("ADD,").append(String.format("%02d:%02d", 1 + i % 23, i % 60))
+                    .append(", L1, Oslo, ").append(i).append(", 1, 00:00\n");
+        }
+        for (int i = 1; i <= count; i += 2) {
+            script.append("DELAY,").append(i).append(",00:05\n");
+        }
+
+        CommandScript.Summary summary = run(script.toString());
+
+        assertEquals(0, summary.failed());
+        assertEquals(count, trainRegistry.getTrainDepartures().size());
+        assertEquals(LocalTime.of(0, 5), trainRegistry.departureFromNumber(count - 1).getDelay());
+        assertEquals(LocalTime.of(0, 0), trainRegistry.departureFromNumber(count).getDelay());
+    }
+}
@@ -0,0 +1,162 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTrainRegistryTest {
+    private ConcurrentTrainRegistry trainRegistry;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new ConcurrentTrainRegistry();
+
+        trainRegistry.addDeparture(LocalTime.of(12,0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(10,0), "L2", "Stavanger", 2, 2, LocalTime.of(0, 0));
+    }
+
+    @Test
+    void testAddDeparture() {
+        assertEquals(2, trainRegistry.getTrainDepartures().size());
+        assertEquals(2, trainRegistry.getTrainDepartures().get(0).getTrainNumber());
+    }
+
+    @Test
+    void testAssignTrack() {
+        trainRegistry.assignTrack(1, 2);
+        assertEquals(2, trainRegistry.departureFromNumber(1).getTrack());
+        assertFalse(trainRegistry.checkDepartureTimeExistsTrack(1, LocalTime.of(12, 0)));
+        assertTrue(trainRegistry.checkDepartureTimeExistsTrack(2, LocalTime.of(12, 0)));
+    }
+
+    @Test
+    void testCheckDepartureTimeExistsLine() {
+        assertTrue(trainRegistry.checkDepartureTimeExistsLine("l1", LocalTime.of(12, 0)));
+        assertFalse(trainRegistry.checkDepartureTimeExistsLine("L1", LocalTime.of(12, 1)));
+    }
+
+    @Test
+    void testDepartureFromDestination() {
+        assertEquals(1, trainRegistry.departureFromDestination("trondheim").size());
+        assertNull(trainRegistry.departureFromDestination("Bergen"));
+    }
+
+    @Test
+    void testRemoveDepartedUsesDelay() {
+        trainRegistry.addDelay(2, LocalTime.of(3, 0));
+        trainRegistry.setCurrentTime(LocalTime.of(12, 30));
+        trainRegistry.removeDeparted();
+        assertNull(trainRegistry.departureFromNumber(1));
+        assertEquals(List.of(LocalTime.of(10, 0)), trainRegistry.departureTimesFromLine("L2"));
+        assertTrue(trainRegistry.departuresFromTrack(1).isEmpty());
+    }
+
+    @Test
+    void testChangesReplaceDeparture() {
+        TrainDeparture before = trainRegistry.departureFromNumber(1);
+        trainRegistry.addDelay(1, LocalTime.of(0, 30));
+        trainRegistry.assignTrack(1, 3);
+        assertEquals(LocalTime.of(0, 0), before.getDelay());
+        assertEquals(1, before.getTrack());
+
+        TrainDeparture after = trainRegistry.departureFromNumber(1);
+        assertEquals(LocalTime.of(12, 30), after.getDepartureTimeWithDelay());
+        assertEquals(3, after.getTrack());
+        assertSame(after, trainRegistry.departuresFromTrack(3).get(0));
+        assertSame(after, trainRegistry.nextDeparturesWithDelay(LocalTime.of(12, 0), 1).get(0));
+        assertSame(after, trainRegistry.departuresFromLine("L1").get(0));
+    }
+
+    @Test
+    void testReadersSeeConsistentDepartures() throws Exception {
+        for (int i = 3; i <= 200; i++) {
+            trainRegistry.addDeparture(LocalTime.of(6, 0), "L1", "Oslo", i, 0, LocalTime.of(0, 0));
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> writer = executor.submit(() -> {
+            for (int round = 0; round < 200; round++) {
+                for (int i = 3; i <= 200; i++) {
+                    trainRegistry.addDelay(i, LocalTime.of(round % 2 == 0 ? 2 : 3, 0));
+                }
+            }
+        });
+        while (!writer.isDone()) {
+            for (TrainDeparture trainDeparture
+                    : trainRegistry.departuresWithDelayBetween(LocalTime.of(8, 0), LocalTime.of(9, 0))) {
+                assertEquals(LocalTime.of(8, 0), trainDeparture.getDepartureTimeWithDelay());
+                assertEquals(LocalTime.of(2, 0), trainDeparture.getDelay());
+            }
+        }
+        writer.get();
+        executor.shutdown();
+    }
+
+    @Test
+    void testParallelDelaysAndTracks() throws Exception {
+        for (int i = 3; i <= 1000; i++) {
+            trainRegistry.addDeparture(LocalTime.of(1 + i % 23, i % 60), "L" + (i % 7), "Oslo", i, 0, LocalTime.of(0, 0));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            final int offset = thread;
+            futures.add(executor.submit(() -> {
+                for (int i = 3 + offset; i <= 1000; i += 4) {
+                    trainRegistry.addDelay(i, LocalTime.of(0, 5));
+                    trainRegistry.assignTrack(i, offset + 1);
+                    trainRegistry.departureFromDestination("Oslo");
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        int onTracks = 0;
+        for (int track = 1; track <= 4; track++) {
+            onTracks += trainRegistry.departuresFromTrack(track).size();
+        }
+        assertEquals(1000, onTracks);
+        assertEquals(LocalTime.of(0, 5), trainRegistry.departureFromNumber(500).getDelay());
+    }
+
+    @Test
+    void testNextDepartures() {
+        trainRegistry.addDeparture(LocalTime.of(11,0), "L3", "Bergen", 3, 0, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(11,0), "L3", "Bergen", 4, 0, LocalTime.of(0, 0));
+
+        assertEquals(List.of(3, 4), trainNumbers(trainRegistry.nextDepartures(LocalTime.of(10, 30), 2)));
+        assertEquals(List.of(2, 3, 4, 1), trainNumbers(trainRegistry.nextDepartures(LocalTime.of(10, 0), 10)));
+        assertTrue(trainRegistry.nextDepartures(LocalTime.of(12, 1), 10).isEmpty());
+        assertTrue(trainRegistry.nextDepartures(LocalTime.of(9, 0), 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> trainRegistry.nextDepartures(LocalTime.of(9, 0), -1));
+    }
+
+    @Test
+    void testDeparturesBetween() {
+        assertEquals(List.of(2), trainNumbers(trainRegistry.departuresBetween(LocalTime.of(10, 0), LocalTime.of(12, 0))));
+        assertEquals(List.of(2, 1), trainNumbers(trainRegistry.departuresBetween(LocalTime.of(9, 0), LocalTime.of(12, 1))));
+        assertTrue(trainRegistry.departuresBetween(LocalTime.of(12, 0), LocalTime.of(10, 0)).isEmpty());
+    }
+
+    @Test
+    void testNextDeparturesWithDelay() {
+        trainRegistry.addDelay(2, LocalTime.of(2, 30));
+
+        assertEquals(List.of(1, 2), trainNumbers(trainRegistry.nextDeparturesWithDelay(LocalTime.of(10, 0), 5)));
+        assertEquals(List.of(2), trainNumbers(trainRegistry.nextDeparturesWithDelay(LocalTime.of(12, 1), 5)));
+        assertEquals(List.of(1), trainNumbers(trainRegistry.departuresWithDelayBetween(LocalTime.of(10, 0), LocalTime.of(12, 30))));
+        assertEquals(List.of(1, 2), trainNumbers(trainRegistry.departuresWithDelayBetween(LocalTime.of(12, 0), LocalTime.of(12, 31))));
+        assertTrue(trainRegistry.departuresWithDelayBetween(LocalTime.of(13, 0), LocalTime.of(12, 0)).isEmpty());
+    }
+
+    private static List<Integer> trainNumbers(List<TrainDeparture> departures) {
+        return departures.stream().map(TrainDeparture::getTrainNumber).toList();
+    }
+}
@@ -0,0 +1,82 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepartureBatchTest {
+    private TrainRegistry trainRegistry;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new TrainRegistry();
+
+        trainRegistry.addDeparture(LocalTime.of(12,0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(10,0), "L2", "Stavanger", 2, 2, LocalTime.of(0, 0));
+        for (int i = 3; i <= 20; i++) {
+            trainRegistry.addDeparture(LocalTime.of(i, 0), "L3", "Bergen", i, 3, LocalTime.of(0, 0));
+        }
+    }
+
+    @Test
+    void testApplyBatch() {
+        DepartureBatch batch = new DepartureBatch()
+                .addDelay(1, LocalTime.of(0, 30))
+                .assignTrack(1, 5)
+                .addDeparture(LocalTime.of(9, 0), "L4", "Oslo", 21, 0, LocalTime.of(0, 0))
+                .assignTrack(21, 6)
+                .cancelDeparture(2);
+        DepartureBatch.Result result = trainRegistry.applyBatch(batch);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(5, result.applied());
+        assertEquals(LocalTime.of(12, 30), trainRegistry.departureFromNumber(1).getDepartureTimeWithDelay());
+        assertTrue(trainRegistry.checkDepartureTimeExistsTrack(5, LocalTime.of(12, 0)));
+        assertFalse(trainRegistry.checkDepartureTimeExistsTrack(1, LocalTime.of(12, 0)));
+        assertEquals(List.of(LocalTime.of(9, 0)), trainRegistry.departureTimesFromTrack(6));
+        assertNull(trainRegistry.departureFromNumber(2));
+        assertNull(trainRegistry.departureFromDestination("Stavanger"));
+        assertEquals(20, trainRegistry.getTrainDepartures().size());
+    }
+
+    @Test
+    void testApplyBatchReportsFailures() {
+        DepartureBatch batch = new DepartureBatch()
+                .addDelay(99, LocalTime.of(0, 30))
+                .assignTrack(1, -3)
+                .addDelay(1, LocalTime.of(0, 0))
+                .cancelDeparture(2)
+                .assignTrack(2, 4)
+                .addDeparture(LocalTime.of(9, 0), "L4", "Oslo", 0, 0, LocalTime.of(0, 0))
+                .addDelay(1, LocalTime.of(0, 10))
+                .addDelay(1, null);
+        DepartureBatch.Result result = trainRegistry.applyBatch(batch);
+
+        assertEquals(2, result.applied());
+        assertEquals(List.of(0, 1, 2, 4, 5, 7), result.failures().stream().map(DepartureBatch.Failure::index).toList());
+        assertEquals("Cannot update delay to 00:00", result.failures().get(2).message());
+        assertEquals("Train number not found", result.failures().get(3).message());
+        assertEquals("Delay cannot be null", result.failures().get(5).message());
+        assertEquals(LocalTime.of(0, 10), trainRegistry.departureFromNumber(1).getDelay());
+        assertEquals(1, trainRegistry.departureFromNumber(1).getTrack());
+    }
+
+    @Test
+    void testLargeBatchRebuildsIndexes() {
+        DepartureBatch batch = new DepartureBatch();
+        for (int i = 3; i <= 20; i++) {
+            batch.addDelay(i, LocalTime.of(1, 0)).assignTrack(i, 4);
+        }
+        assertTrue(trainRegistry.applyBatch(batch).isSuccessful());
+        assertEquals(18, trainRegistry.departuresFromTrack(4).size());
+        assertTrue(trainRegistry.departuresFromTrack(3).isEmpty());
+        trainRegistry.setCurrentTime(LocalTime.of(10, 30));
+        trainRegistry.removeDeparted();
+        assertEquals(12, trainRegistry.getTrainDepartures().size());
+        assertNull(trainRegistry.departureFromNumber(2));
+        assertNull(trainRegistry.departureFromNumber(9));
+        assertNotNull(trainRegistry.departureFromNumber(10));
+    }
+}
@@ -0,0 +1,48 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepartureIndexTest {
+    private DepartureIndex<Integer> index;
+    private TrainDeparture first;
+    private TrainDeparture second;
+
+    @BeforeEach
+    void setUp() {
+        index = new DepartureIndex<>();
+        first = new TrainDeparture(LocalTime.of(9, 0), "L1", "Oslo", 1, 1, LocalTime.of(0, 0));
+        second = new TrainDeparture(LocalTime.of(8, 0), "L2", "Bergen", 2, 1, LocalTime.of(0, 0));
+        index.add(1, first);
+        index.add(1, second);
+    }
+
+    @Test
+    void testDeparturesAreOrdered() {
+        assertEquals(List.of(second, first), index.departures(1));
+        assertEquals(List.of(LocalTime.of(8, 0), LocalTime.of(9, 0)), index.departureTimes(1));
+    }
+
+    @Test
+    void testContainsTime() {
+        assertTrue(index.containsTime(1, LocalTime.of(9, 0)));
+        assertFalse(index.containsTime(1, LocalTime.of(8, 30)));
+        assertFalse(index.containsTime(2, LocalTime.of(9, 0)));
+    }
+
+    @Test
+    void testRemove() {
+        index.remove(1, second);
+        assertEquals(List.of(first), index.departures(1));
+        index.remove(1, first);
+        assertTrue(index.departures(1).isEmpty());
+    }
+
+    @Test
+    void testDeparturesIsReadOnly() {
+        assertThrows(UnsupportedOperationException.class, () -> index.departures(1).clear());
+    }
+}
@@ -0,0 +1,72 @@
+package edu.ntnu.stud;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepartureParserTest {
+
+    private final DepartureParser parser = new DepartureParser();
+
+    @Test
+    void testParseRow() {
+        TrainDeparture trainDeparture = parser.parse(" 09:05 ,L12,  Trondheim S , 42, 3,00:15");
+        assertEquals(LocalTime.of(9, 5), trainDeparture.getDepartureTime());
+        assertEquals("L12", trainDeparture.getLine());
+        assertEquals("Trondheim S", trainDeparture.getDestination());
+        assertEquals(42, trainDeparture.getTrainNumber());
+        assertEquals(3, trainDeparture.getTrack());
+        assertEquals(LocalTime.of(0, 15), trainDeparture.getDelay());
+    }
+
+    @Test
+    void testParseMatchesSplitParsing() {
+        String row = "23:59, F4, Oslo, 2147483647, -1, 00:00, extra";
+        String[] data = row.split(",");
+        TrainDeparture trainDeparture = parser.parse(row);
+        assertEquals(LocalTime.parse(data[0].trim()), trainDeparture.getDepartureTime());
+        assertEquals(Integer.parseInt(data[3].trim()), trainDeparture.getTrainNumber());
+        assertEquals(-1, trainDeparture.getTrack());
+    }
+
+    @Test
+    void testParseBytes() {
+        byte[] bytes = "xx12:00, L1, Bodø, 7, 0, 00:05\r\n".getBytes(StandardCharsets.UTF_8);
+        TrainDeparture trainDeparture = parser.parse(bytes, 2, bytes.length - 2);
+        assertEquals(LocalTime.of(12, 0), trainDeparture.getDepartureTime());
+        assertEquals("Bodø", trainDeparture.getDestination());
+        assertEquals(7, trainDeparture.getTrainNumber());
+        assertEquals(parser.parse("12:00, L1, Bodø, 7, 0, 00:05").toString(), trainDeparture.toString());
+    }
+
+    @Test
+    void testInvalidTimesThrow() {
+        assertThrows(DateTimeParseException.class, () -> parser.parse("9:05, L1, Oslo, 1, 1, 00:00"));
+        assertThrows(DateTimeParseException.class, () -> parser.parse("24:00, L1, Oslo, 1, 1, 00:00"));
+        assertThrows(DateTimeParseException.class, () -> parser.parse("12:60, L1, Oslo, 1, 1, 00:00"));
+        assertThrows(DateTimeParseException.class, () -> parser.parse("12:00, L1, Oslo, 1, 1, 0a:00"));
+    }
+
+    @Test
+    void testInvalidNumbersThrow() {
+        assertThrows(NumberFormatException.class, () -> parser.parse("12:00, L1, Oslo, x, 1, 00:00"));
+        assertThrows(NumberFormatException.class, () -> parser.parse("12:00, L1, Oslo, , 1, 00:00"));
+        assertThrows(NumberFormatException.class, () -> parser.parse("12:00, L1, Oslo, 1, -, 00:00"));
+        assertThrows(NumberFormatException.class,
+                () -> parser.parse("12:00, L1, Oslo, 2147483648, 1, 00:00"));
+    }
+
+    @Test
+    void testTooFewFieldsThrows() {
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("12:00, L1, Oslo, 1, 1"));
+    }
+
+    @Test
+    void testIsBlank() {
+        assertTrue(DepartureParser.isBlank(" \t\r".getBytes(StandardCharsets.UTF_8), 0, 3));
+        assertFalse(DepartureParser.isBlank("ø".getBytes(StandardCharsets.UTF_8), 0, 2));
+        assertTrue(DepartureParser.isBlank(new byte[0], 0, 0));
+    }
+}
@@ -0,0 +1,49 @@
+package edu.ntnu.stud;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBuckets() {
+        for (long value : new long[] {0, 1, 15, 16, 17, 100, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) - value <= value / 8);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.highestValueOf(bucket - 1) < value);
+            }
+        }
+        assertEquals(LatencyHistogram.bucketOf(Long.MAX_VALUE), LatencyHistogram.bucketOf(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+        assertEquals(500_000, histogram.getPercentile(50), 500_000 / 8);
+        assertEquals(990_000, histogram.getPercentile(99), 990_000 / 8);
+        assertEquals(1_000_000, histogram.getPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(101));
+    }
+
+    @Test
+    void testEmptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMean());
+        histogram.record(-5);
+        histogram.record(42);
+        assertEquals(0, histogram.getPercentile(50));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+}
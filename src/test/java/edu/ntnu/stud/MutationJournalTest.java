@@ -0,0 +1,182 @@
+package edu.ntnu.stud;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationJournalTest {
+    private TrainRegistry trainRegistry;
+    private Path journalFile;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = baseRegistry();
+        journalFile = tempDir.resolve("registry.journal");
+    }
+
+    private TrainRegistry baseRegistry() {
+        TrainRegistry registry = new TrainRegistry();
+        registry.addDeparture(LocalTime.of(12,0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        registry.addDeparture(LocalTime.of(10,0), "L2", "Stavanger", 2, 2, LocalTime.of(0, 0));
+        return registry;
+    }
+
+    private void recordChanges() throws IOException {
+        try (MutationJournal journal = MutationJournal.open(journalFile, 2, Duration.ofSeconds(10))) {
+            trainRegistry.setJournal(journal);
+            trainRegistry.addDeparture(LocalTime.of(14,0), "L3", "Bodø", 3, 0, LocalTime.of(0, 0));
+            trainRegistry.assignTrack(3, 4);
+            trainRegistry.addDelay(1, LocalTime.of(0, 20));
+            trainRegistry.setCurrentTime(LocalTime.of(11, 0));
+            trainRegistry.removeDeparted();
+            trainRegistry.setJournal(null);
+        }
+    }
+
+    @Test
+    void testReplayRestoresChanges() throws IOException {
+        recordChanges();
+
+        TrainRegistry restored = baseRegistry();
+        assertEquals(4, MutationJournal.replay(journalFile, restored));
+        assertNull(restored.departureFromNumber(2));
+        assertEquals(4, restored.departureFromNumber(3).getTrack());
+        assertEquals(LocalTime.of(0, 20), restored.departureFromNumber(1).getDelay());
+        assertEquals(LocalTime.of(11, 0), restored.getCurrentTime());
+    }
+
+    @Test
+    void testReplayIgnoresPartlyWrittenRecord() throws IOException {
+        recordChanges();
+        long validLength = Files.size(journalFile);
+        Files.write(journalFile, new byte[] {0, 0, 0, 9, 2, 0}, StandardOpenOption.APPEND);
+
+        assertEquals(4, MutationJournal.replay(journalFile, baseRegistry()));
+        MutationJournal.open(journalFile).close();
+        assertEquals(validLength, Files.size(journalFile));
+    }
+
+    @Test
+    void testWaitingRecordIsSyncedAfterMaxDelay() throws IOException, InterruptedException {
+        try (MutationJournal journal = MutationJournal.open(journalFile, 64, Duration.ofMillis(20))) {
+            trainRegistry.setJournal(journal);
+            trainRegistry.addDelay(1, LocalTime.of(0, 5));
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (Files.size(journalFile) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(Files.size(journalFile) > 0);
+            trainRegistry.setJournal(null);
+        }
+        TrainRegistry restored = baseRegistry();
+        assertEquals(1, MutationJournal.replay(journalFile, restored));
+        assertEquals(LocalTime.of(0, 5), restored.departureFromNumber(1).getDelay());
+    }
+
+    @Test
+    void testFailedJournalWriteLeavesRegistryUnchanged() throws IOException {
+        MutationJournal journal = MutationJournal.open(journalFile, 1, Duration.ofSeconds(10));
+        trainRegistry.setJournal(journal);
+        journal.close();
+        long version = trainRegistry.snapshot().getVersion();
+
+        assertThrows(UncheckedIOException.class, () -> trainRegistry.addDeparture(
+                LocalTime.of(14,0), "L3", "Bodø", 3, 0, LocalTime.of(0, 0)));
+        assertThrows(UncheckedIOException.class, () -> trainRegistry.assignTrack(1, 5));
+        assertThrows(UncheckedIOException.class,
+                () -> trainRegistry.addDelay(1, LocalTime.of(0, 5)));
+        assertThrows(UncheckedIOException.class, () -> trainRegistry.cancelDeparture(2));
+        assertThrows(UncheckedIOException.class,
+                () -> trainRegistry.applyBatch(new DepartureBatch().assignTrack(2, 6)));
+
+        assertNull(trainRegistry.departureFromNumber(3));
+        assertEquals(1, trainRegistry.departureFromNumber(1).getTrack());
+        assertEquals(LocalTime.of(0, 0), trainRegistry.departureFromNumber(1).getDelay());
+        assertEquals(2, trainRegistry.departureFromNumber(2).getTrack());
+        assertEquals(version, trainRegistry.snapshot().getVersion());
+    }
+
+    @Test
+    void testReplayJournalLargerThanScanWindow() throws IOException {
+        int records = 200_000;
+        try (MutationJournal journal = MutationJournal.open(journalFile, 4096, Duration.ofSeconds(10))) {
+            for (int i = 0; i < records; i++) {
+                journal.recordDelay(1, LocalTime.of(0, 1 + i % 59));
+            }
+        }
+        long length = Files.size(journalFile);
+        assertTrue(length > 2 << 20);
+
+        TrainRegistry restored = baseRegistry();
+        assertEquals(records, MutationJournal.replay(journalFile, restored));
+        assertEquals(LocalTime.of(0, 1 + (records - 1) % 59), restored.departureFromNumber(1).getDelay());
+        MutationJournal.open(journalFile).close();
+        assertEquals(length, Files.size(journalFile));
+    }
+
+    @Test
+    void testCompactEmptiesJournal() throws IOException {
+        Path snapshotFile = tempDir.resolve("registry.snapshot");
+        try (MutationJournal journal = MutationJournal.open(journalFile)) {
+            trainRegistry.setJournal(journal);
+            trainRegistry.addDelay(2, LocalTime.of(0, 5));
+            journal.compact(trainRegistry, snapshotFile);
+            trainRegistry.assignTrack(2, 7);
+        }
+
+        TrainRegistry restored = new TrainRegistry();
+        restored.loadSnapshot(snapshotFile);
+        assertEquals(1, MutationJournal.replay(journalFile, restored));
+        assertEquals(LocalTime.of(0, 5), restored.departureFromNumber(2).getDelay());
+        assertEquals(7, restored.departureFromNumber(2).getTrack());
+    }
+
+    @Test
+    void testCompactWhileChanging() throws IOException, InterruptedException {
+        Path snapshotFile = tempDir.resolve("registry.snapshot");
+        int changes = 2000;
+        try (MutationJournal journal = MutationJournal.open(journalFile, 8, Duration.ofMillis(5))) {
+            trainRegistry.setJournal(journal);
+            Thread changer = new Thread(() -> {
+                for (int i = 0; i < changes; i++) {
+                    synchronized (trainRegistry) {
+                        trainRegistry.addDeparture(LocalTime.of(13, 0).plusMinutes(i % 600),
+                                "L" + i, "Oslo", 100 + i, 0, LocalTime.of(0, 0));
+                        trainRegistry.addDelay(100 + i, LocalTime.of(0, 1 + i % 59));
+                    }
+                }
+            });
+            changer.start();
+            while (changer.isAlive()) {
+                journal.compact(trainRegistry, snapshotFile);
+            }
+            changer.join();
+            trainRegistry.setJournal(null);
+        }
+
+        TrainRegistry restored = new TrainRegistry();
+        restored.loadSnapshot(snapshotFile);
+        MutationJournal.replay(journalFile, restored);
+        for (int i = 0; i < changes; i++) {
+            TrainDeparture trainDeparture = restored.departureFromNumber(100 + i);
+            assertNotNull(trainDeparture);
+            assertEquals(LocalTime.of(0, 1 + i % 59), trainDeparture.getDelay());
+        }
+    }
+
+    @Test
+    void testReplayWithoutJournalFile() throws IOException {
+        assertEquals(0, MutationJournal.replay(tempDir.resolve("missing.journal"), trainRegistry));
+    }
+}
@@ -0,0 +1,84 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetworkRegistryTest {
+    private NetworkRegistry networkRegistry;
+
+    @BeforeEach
+    void setUp() {
+        networkRegistry = new NetworkRegistry(new ForkJoinPool(4));
+
+        networkRegistry.addDeparture("Oslo S", LocalTime.of(12,0), "L1", "Bergen", 1, 1, LocalTime.of(0, 0));
+        networkRegistry.addDeparture("Oslo S", LocalTime.of(10,0), "L2", "Stavanger", 2, 2, LocalTime.of(0, 0));
+        networkRegistry.addDeparture("Drammen", LocalTime.of(11,0), "L1", "Bergen", 1, 1, LocalTime.of(0, 0));
+        networkRegistry.addDeparture("Trondheim S", LocalTime.of(10,0), "L3", "bergen", 7, 3, LocalTime.of(0, 0));
+    }
+
+    @Test
+    void testStations() {
+        assertEquals(3, networkRegistry.getStations().size());
+        assertEquals(4, networkRegistry.size());
+        assertEquals(2, (int) networkRegistry.withStation("Oslo S", trainRegistry -> trainRegistry.getTrainDepartures().size()));
+        assertThrows(IllegalArgumentException.class, () -> networkRegistry.withStation("Bodø", trainRegistry -> 0));
+        assertTrue(networkRegistry.removeStation("Drammen"));
+        assertFalse(networkRegistry.removeStation("Drammen"));
+        assertEquals(3, networkRegistry.size());
+    }
+
+    @Test
+    void testDeparturesToDestination() {
+        List<NetworkRegistry.StationDeparture> departures = networkRegistry.departuresToDestination("BERGEN");
+
+        assertEquals(List.of("Trondheim S", "Drammen", "Oslo S"),
+                departures.stream().map(NetworkRegistry.StationDeparture::station).toList());
+        assertTrue(networkRegistry.departuresToDestination("Bodø").isEmpty());
+    }
+
+    @Test
+    void testNextDepartures() {
+        for (int i = 1; i <= 20; i++) {
+            networkRegistry.addDeparture("Station " + i, LocalTime.of(1 + i % 23, 30), "L9", "Oslo", i, 0, LocalTime.of(0, 0));
+        }
+        List<NetworkRegistry.StationDeparture> departures = networkRegistry.nextDepartures(LocalTime.of(10, 0), 5);
+
+        assertEquals(5, departures.size());
+        assertEquals(List.of(LocalTime.of(10, 0), LocalTime.of(10, 0), LocalTime.of(10, 30), LocalTime.of(11, 0), LocalTime.of(11, 30)),
+                departures.stream().map(stationDeparture -> stationDeparture.departure().getDepartureTime()).toList());
+        assertEquals("Oslo S", departures.get(0).station());
+        assertTrue(networkRegistry.nextDepartures(LocalTime.of(10, 0), 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> networkRegistry.nextDepartures(LocalTime.of(10, 0), -1));
+    }
+
+    @Test
+    void testRemoveDeparted() {
+        networkRegistry.removeDeparted(LocalTime.of(11, 30));
+
+        assertEquals(1, networkRegistry.size());
+        assertEquals(LocalTime.of(11, 30), networkRegistry.withStation("Drammen", TrainRegistry::getCurrentTime));
+    }
+
+    @Test
+    void testEmptyNetwork() {
+        NetworkRegistry emptyNetwork = new NetworkRegistry();
+        assertTrue(emptyNetwork.nextDepartures(LocalTime.of(10, 0), 10).isEmpty());
+        assertEquals(0, emptyNetwork.size());
+    }
+
+    @Test
+    void testMerge() {
+        TrainDeparture early = new TrainDeparture(LocalTime.of(9, 0), "L1", "Oslo", 1, LocalTime.of(0, 0));
+        TrainDeparture late = new TrainDeparture(LocalTime.of(13, 0), "L1", "Oslo", 2, LocalTime.of(0, 0));
+        List<NetworkRegistry.StationDeparture> left = List.of(new NetworkRegistry.StationDeparture("A", early),
+                new NetworkRegistry.StationDeparture("A", late));
+        List<NetworkRegistry.StationDeparture> right = List.of(new NetworkRegistry.StationDeparture("B", early));
+
+        assertEquals(List.of(left.get(0), right.get(0), left.get(1)), NetworkRegistry.merge(left, right, 10));
+        assertEquals(List.of(left.get(0), right.get(0)), NetworkRegistry.merge(left, right, 2));
+    }
+}
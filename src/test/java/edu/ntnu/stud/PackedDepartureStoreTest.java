@@ -0,0 +1,89 @@
+package edu.ntnu.stud;
+
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedDepartureStoreTest {
+    private PackedDepartureStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new PackedDepartureStore();
+        store.add(LocalTime.of(12, 0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        store.add(LocalTime.of(10, 0), "L2", "Stavanger", 2, 0, LocalTime.of(0, 0));
+    }
+
+    @Test
+    void testCursorReadsRow() {
+        PackedDepartureStore.Cursor cursor = store.cursor().moveTo(store.rowOf(1));
+        assertEquals(1, cursor.getTrainNumber());
+        assertEquals(LocalTime.of(12, 0), cursor.getDepartureTime());
+        assertEquals("L1", cursor.getLine());
+        assertEquals("Trondheim", cursor.getDestination());
+        assertEquals(1, cursor.getTrack());
+        assertEquals(-1, cursor.moveTo(store.rowOf(2)).getTrack());
+    }
+
+    @Test
+    void testAddDelayAndAssignTrack() {
+        store.addDelay(1, LocalTime.of(13, 0));
+        store.assignTrack(2, 4);
+        PackedDepartureStore.Cursor cursor = store.cursor().moveTo(store.rowOf(1));
+        assertEquals(60, cursor.getDepartureMinuteWithDelay());
+        assertEquals(4, cursor.moveTo(store.rowOf(2)).getTrack());
+        assertThrows(DateTimeException.class, () -> store.addDelay(1, LocalTime.of(0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> store.assignTrack(3, 1));
+    }
+
+    @Test
+    void testAddReplacesSameTrainNumber() {
+        store.add(LocalTime.of(9, 0), "L3", "Bergen", 1, 2, LocalTime.of(0, 0));
+        assertEquals(2, store.size());
+        assertEquals("Bergen", store.cursor().moveTo(store.rowOf(1)).getDestination());
+    }
+
+    @Test
+    void testRemoveMovesLastRow() {
+        assertTrue(store.remove(1));
+        assertFalse(store.remove(1));
+        assertEquals(1, store.size());
+        assertEquals(-1, store.rowOf(1));
+        assertEquals(0, store.rowOf(2));
+    }
+
+    @Test
+    void testRemoveDeparted() {
+        store.addDelay(2, LocalTime.of(1, 0));
+        assertEquals(0, store.removeDeparted(LocalTime.of(11, 0)));
+        assertEquals(1, store.removeDeparted(LocalTime.of(11, 30)));
+        assertEquals(1, store.rowsByDepartureTime().length);
+    }
+
+    @Test
+    void testRowsByDepartureTime() {
+        for (int i = 3; i <= 1000; i++) {
+            store.add(LocalTime.of(1 + i % 23, i % 60), "L" + i % 5, "Oslo", i, 0, LocalTime.of(0, 0));
+        }
+        for (int i = 3; i <= 1000; i += 2) {
+            store.remove(i);
+        }
+        int[] rows = store.rowsByDepartureTime();
+        assertEquals(store.size(), rows.length);
+        PackedDepartureStore.Cursor cursor = store.cursor();
+        for (int i = 1; i < rows.length; i++) {
+            int previous = cursor.moveTo(rows[i - 1]).getDepartureMinute();
+            assertTrue(previous <= cursor.moveTo(rows[i]).getDepartureMinute());
+        }
+    }
+
+    @Test
+    void testAddRejectsInvalidValues() {
+        assertThrows(NullPointerException.class,
+                () -> store.add(LocalTime.of(0, 0), "L1", "Oslo", 5, 0, LocalTime.of(0, 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.add(LocalTime.of(1, 0), "L1", "Oslo", 0, 0, LocalTime.of(0, 0)));
+    }
+}
@@ -0,0 +1,91 @@
+package edu.ntnu.stud;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelTimetableLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeTimetable() throws IOException {
+        StringBuilder timetable = new StringBuilder("DepartureTime (HH:mm), Line, Destination, TrainNumber, Track, Delay(HH:mm)\n");
+        for (int i = 1; i <= 500; i++) {
+            int trainNumber = i % 300 + 1;
+            timetable.append(String.format("%02d:%02d, L%d, Trondheim %d, %d, %d, 00:%02d%s",
+                    1 + i % 23, i % 60, i % 7, i % 5, trainNumber, i % 4, i % 60, i % 3 == 0 ? "\r\n" : "\n"));
+            if (i % 50 == 0) {
+                timetable.append("\n");
+            }
+        }
+        timetable.append("12:00, L1, Bodø, 999, 1, 00:00");
+        Path file = tempDir.resolve("timetable.txt");
+        Files.writeString(file, timetable);
+        return file;
+    }
+
+    @Test
+    void testLoadMatchesSequentialLoad() throws IOException {
+        Path file = writeTimetable();
+        TrainRegistry expected = new TrainRegistry();
+        expected.loadDepartures(file);
+
+        for (int chunkSize : new int[] {1, 64, 1000, 1 << 20}) {
+            TrainRegistry actual = new TrainRegistry();
+            ParallelTimetableLoader.load(actual, file, new ForkJoinPool(4), chunkSize);
+
+            assertEquals(expected.getTrainDepartures().size(), actual.getTrainDepartures().size());
+            for (TrainDeparture trainDeparture : expected.getTrainDepartures()) {
+                assertEquals(trainDeparture.toString(),
+                        actual.departureFromNumber(trainDeparture.getTrainNumber()).toString());
+            }
+        }
+    }
+
+    @Test
+    void testChunkBoundariesAreAtLineStarts() throws IOException {
+        Path file = writeTimetable();
+        byte[] bytes = Files.readAllBytes(file);
+        try (FileChannel channel = FileChannel.open(file)) {
+            long[] boundaries = ParallelTimetableLoader.chunkBoundaries(channel, 100);
+
+            assertEquals(0, boundaries[0]);
+            assertEquals(bytes.length, boundaries[boundaries.length - 1]);
+            assertTrue(boundaries.length > 10);
+            for (int i = 1; i < boundaries.length - 1; i++) {
+                assertEquals('\n', bytes[(int) boundaries[i] - 1]);
+                assertTrue(boundaries[i] > boundaries[i - 1]);
+            }
+        }
+    }
+
+    @Test
+    void testLoadDeparturesParallel() throws IOException {
+        TrainRegistry trainRegistry = new TrainRegistry();
+        trainRegistry.loadDeparturesParallel(Paths.get("src/main/resources/TrainDepartureData.txt"));
+        TrainRegistry expected = new TrainRegistry();
+        expected.fillTrainDepartureListFromFile();
+
+        assertEquals(expected.getTrainDepartures().size(), trainRegistry.getTrainDepartures().size());
+    }
+
+    @Test
+    void testEmptyFileAndErrors() throws IOException {
+        Path empty = tempDir.resolve("empty.txt");
+        Files.writeString(empty, "");
+        assertEquals(List.of(List.of()), ParallelTimetableLoader.parse(empty, ForkJoinPool.commonPool(), 10));
+
+        Path malformed = tempDir.resolve("malformed.txt");
+        Files.writeString(malformed, "header\n12:00, L1, Oslo, x, 1, 00:00\n");
+        assertThrows(NumberFormatException.class, () -> new TrainRegistry().loadDeparturesParallel(malformed));
+        assertThrows(IllegalArgumentException.class, () -> ParallelTimetableLoader.parse(empty, ForkJoinPool.commonPool(), 0));
+    }
+}
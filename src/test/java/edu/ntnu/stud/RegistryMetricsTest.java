@@ -0,0 +1,104 @@
+package edu.ntnu.stud;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistryMetricsTest {
+    private TrainRegistry trainRegistry;
+    private RegistryMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new TrainRegistry();
+        metrics = new RegistryMetrics("test");
+        trainRegistry.setMetrics(metrics);
+
+        trainRegistry.addDeparture(LocalTime.of(12,0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(10,0), "L2", "Stavanger", 2, 2, LocalTime.of(0, 0));
+    }
+
+    @Test
+    void testRegistryOperationsAreRecorded() {
+        trainRegistry.addDelay(1, LocalTime.of(0, 5));
+        trainRegistry.assignTrack(2, 3);
+        trainRegistry.departureFromNumber(1);
+        trainRegistry.departureFromDestination("Trondheim");
+        trainRegistry.setCurrentTime(LocalTime.of(11, 0));
+        trainRegistry.removeDeparted();
+
+        assertEquals(2, metrics.get(RegistryMetrics.Operation.ADD).getCount());
+        assertEquals(1, metrics.get(RegistryMetrics.Operation.DELAY).getCount());
+        assertEquals(1, metrics.get(RegistryMetrics.Operation.TRACK).getCount());
+        assertEquals(2, metrics.get(RegistryMetrics.Operation.LOOKUP).getCount());
+        assertEquals(1, metrics.get(RegistryMetrics.Operation.REMOVE_DEPARTED).getCount());
+        assertTrue(metrics.get(RegistryMetrics.Operation.ADD).getMaxMicros() > 0);
+        assertTrue(metrics.get(RegistryMetrics.Operation.ADD).getP99Micros()
+                <= metrics.get(RegistryMetrics.Operation.ADD).getMaxMicros());
+
+        metrics.get(RegistryMetrics.Operation.ADD).reset();
+        assertEquals(0, metrics.get(RegistryMetrics.Operation.ADD).getCount());
+    }
+
+    @Test
+    void testRateIsNotChangedByReading() throws InterruptedException {
+        OperationMetricsMXBean add = metrics.get(RegistryMetrics.Operation.ADD);
+        assertTrue(add.getRatePerSecond() > 0);
+
+        metrics.sampleRates();
+        trainRegistry.addDeparture(LocalTime.of(13,0), "L3", "Bergen", 3, 3, LocalTime.of(0, 0));
+        Thread.sleep(20);
+        metrics.sampleRates();
+        double rate = add.getRatePerSecond();
+        assertTrue(rate > 0);
+        assertTrue(rate < 1000);
+        assertEquals(rate, add.getRatePerSecond());
+        assertEquals(rate, add.getRatePerSecond());
+
+        metrics.sampleRates();
+        assertEquals(0.0, add.getRatePerSecond());
+    }
+
+    @Test
+    void testDump() {
+        String dump = metrics.dump();
+        assertTrue(dump.startsWith("Registry metrics test"));
+        assertTrue(dump.contains("add"));
+        assertFalse(dump.contains("delay"));
+    }
+
+    @Test
+    void testStartDump() throws InterruptedException {
+        BlockingQueue<String> dumps = new ArrayBlockingQueue<>(16);
+        metrics.startDump(Duration.ofMillis(10), dumps::offer);
+        try {
+            assertNotNull(dumps.poll(5, TimeUnit.SECONDS));
+        } finally {
+            metrics.close();
+        }
+    }
+
+    @Test
+    void testMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("edu.ntnu.stud:type=RegistryMetrics,name=\"test\",operation=add");
+        metrics.registerMBeans();
+        try {
+            assertEquals(2L, server.getAttribute(objectName, "Count"));
+            assertTrue((Double) server.getAttribute(objectName, "P50Micros") > 0);
+            assertThrows(JMException.class, () -> new RegistryMetrics("test").registerMBeans());
+        } finally {
+            metrics.close();
+        }
+        assertFalse(server.isRegistered(objectName));
+    }
+}
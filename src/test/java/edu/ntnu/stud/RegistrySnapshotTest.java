@@ -0,0 +1,188 @@
+package edu.ntnu.stud;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistrySnapshotTest {
+    private TrainRegistry trainRegistry;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new TrainRegistry();
+        trainRegistry.addDeparture(LocalTime.of(12, 0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(10, 0), "L2", "Stavanger", 2, 2, LocalTime.of(0, 0));
+    }
+
+    private void assertMatchesRegistry(RegistrySnapshot snapshot) {
+        List<TrainDeparture> expected = trainRegistry.getTrainDepartures();
+        List<TrainDeparture> actual = snapshot.getTrainDepartures();
+        assertEquals(expected.size(), snapshot.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            TrainDeparture byNumber = snapshot.departureFromNumber(expected.get(i).getTrainNumber());
+            assertNotNull(byNumber);
+            assertEquals(expected.get(i).toString(), byNumber.toString());
+        }
+    }
+
+    @Test
+    void testSnapshotIsNotChangedByLaterChanges() {
+        RegistrySnapshot before = trainRegistry.snapshot();
+        trainRegistry.addDelay(1, LocalTime.of(0, 5));
+        trainRegistry.assignTrack(2, 4);
+        trainRegistry.addDeparture(LocalTime.of(11, 0), "L3", "Bergen", 3, 1, LocalTime.of(0, 0));
+        RegistrySnapshot after = trainRegistry.snapshot();
+
+        assertEquals(2, before.size());
+        assertEquals(LocalTime.of(0, 0), before.departureFromNumber(1).getDelay());
+        assertEquals(2, before.departureFromNumber(2).getTrack());
+        assertNull(before.departureFromNumber(3));
+        assertTrue(after.getVersion() > before.getVersion());
+        assertMatchesRegistry(after);
+    }
+
+    @Test
+    void testSnapshotDeparturesAreReadOnly() {
+        RegistrySnapshot snapshot = trainRegistry.snapshot();
+        TrainDeparture fromList = snapshot.getTrainDepartures().get(0);
+        TrainDeparture fromNumber = snapshot.departureFromNumber(1);
+        assertTrue(fromList.isReadOnly());
+        assertThrows(UnsupportedOperationException.class, () -> fromList.setTrack(5));
+        assertThrows(UnsupportedOperationException.class,
+                () -> fromNumber.setDelay(LocalTime.of(0, 5)));
+        assertEquals(LocalTime.of(0, 0), trainRegistry.snapshot().departureFromNumber(1).getDelay());
+        assertFalse(trainRegistry.departureFromNumber(1).isReadOnly());
+    }
+
+    @Test
+    void testSnapshotIsOnlyPublishedAfterChanges() {
+        RegistrySnapshot snapshot = trainRegistry.snapshot();
+        assertSame(snapshot, trainRegistry.snapshot());
+        trainRegistry.cancelDeparture(99);
+        assertSame(snapshot, trainRegistry.snapshot());
+        trainRegistry.cancelDeparture(1);
+        assertNotSame(snapshot, trainRegistry.snapshot());
+        assertNull(trainRegistry.snapshot().departureFromNumber(1));
+    }
+
+    @Test
+    void testBatchIsPublishedOnce() {
+        long version = trainRegistry.snapshot().getVersion();
+        trainRegistry.applyBatch(new DepartureBatch()
+                .addDelay(1, LocalTime.of(0, 10))
+                .assignTrack(2, 3)
+                .cancelDeparture(1));
+        assertEquals(version + 1, trainRegistry.snapshot().getVersion());
+        assertMatchesRegistry(trainRegistry.snapshot());
+    }
+
+    @Test
+    void testRandomChangesMatchRegistry() {
+        Random random = new Random(42);
+        List<TrainDeparture> departures = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            departures.add(new TrainDeparture(LocalTime.of(1 + random.nextInt(23), random.nextInt(60)),
+                    "L" + i % 9, "Dest" + i % 13, i, i % 5, LocalTime.of(0, 0)));
+        }
+        trainRegistry.loadDepartures(departures.stream());
+        RegistrySnapshot loaded = trainRegistry.snapshot();
+        assertMatchesRegistry(loaded);
+
+        for (int i = 0; i < 3000; i++) {
+            int trainNumber = 1 + random.nextInt(2500);
+            boolean exists = trainRegistry.departureFromNumber(trainNumber) != null;
+            int operation = random.nextInt(4);
+            if (operation == 0 || !exists) {
+                trainRegistry.addDeparture(LocalTime.of(1 + random.nextInt(23), random.nextInt(60)),
+                        "L1", "Oslo", trainNumber, random.nextInt(5), LocalTime.of(0, 0));
+            } else if (operation == 1) {
+                trainRegistry.addDelay(trainNumber, LocalTime.of(0, 1 + random.nextInt(59)));
+            } else if (operation == 2) {
+                trainRegistry.assignTrack(trainNumber, 1 + random.nextInt(9));
+            } else {
+                trainRegistry.cancelDeparture(trainNumber);
+            }
+            if (i % 500 == 0) {
+                assertMatchesRegistry(trainRegistry.snapshot());
+            }
+        }
+        assertMatchesRegistry(trainRegistry.snapshot());
+        assertEquals(2000, loaded.size());
+    }
+
+    private static void assertChunkSizes(RegistrySnapshot snapshot) {
+        for (int[] sizes : snapshot.chunkSizes()) {
+            if (sizes.length > 1) {
+                for (int size : sizes) {
+                    assertTrue(size >= RegistrySnapshot.CHUNK_SIZE / 2, "chunk of " + size);
+                    assertTrue(size <= 2 * RegistrySnapshot.CHUNK_SIZE, "chunk of " + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSmallChunksAreMerged() {
+        Random random = new Random(7);
+        TrainRegistry registry = new TrainRegistry();
+        registry.snapshot();
+        for (int trainNumber = 1; trainNumber <= 5000; trainNumber++) {
+            registry.addDeparture(LocalTime.of(0, 1).plusMinutes(random.nextInt(1400)), "L1",
+                    "Oslo", trainNumber, 0, LocalTime.of(0, 0));
+        }
+        assertChunkSizes(registry.snapshot());
+        for (int minute = 60; minute <= 1400; minute += 10) {
+            registry.setCurrentTime(LocalTime.of(0, 0).plusMinutes(minute));
+            registry.removeDeparted();
+            for (int i = 0; i < 20; i++) {
+                registry.cancelDeparture(1 + random.nextInt(5000));
+            }
+            assertChunkSizes(registry.snapshot());
+        }
+        assertEquals(registry.getTrainDepartures().size(), registry.snapshot().size());
+    }
+
+    @Test
+    void testReaderAlwaysSeesWholeBatches() throws InterruptedException {
+        List<TrainDeparture> departures = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            departures.add(new TrainDeparture(LocalTime.of(1 + i % 23, i % 60), "L1", "Oslo", i, 1,
+                    LocalTime.of(0, 0)));
+        }
+        trainRegistry.loadDepartures(departures.stream());
+        trainRegistry.snapshot();
+
+        AtomicReference<String> error = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int round = 1; round <= 200; round++) {
+                DepartureBatch batch = new DepartureBatch();
+                for (int trainNumber = 1; trainNumber <= 500; trainNumber += 50) {
+                    batch.assignTrack(trainNumber, round);
+                }
+                synchronized (trainRegistry) {
+                    trainRegistry.applyBatch(batch);
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            RegistrySnapshot snapshot = trainRegistry.snapshot();
+            int track = snapshot.departureFromNumber(1).getTrack();
+            for (int trainNumber = 1; trainNumber <= 500; trainNumber += 50) {
+                if (snapshot.departureFromNumber(trainNumber).getTrack() != track) {
+                    error.set("Half of a batch seen in version " + snapshot.getVersion());
+                }
+            }
+        }
+        writer.join();
+        assertNull(error.get());
+        assertEquals(200, trainRegistry.snapshot().departureFromNumber(451).getTrack());
+    }
+}
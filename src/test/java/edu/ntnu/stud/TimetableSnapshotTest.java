@@ -0,0 +1,100 @@
+package edu.ntnu.stud;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimetableSnapshotTest {
+    private TrainRegistry trainRegistry;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new TrainRegistry();
+
+        trainRegistry.addDeparture(LocalTime.of(12,0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(10,0), "L2", "Bodø", 2, 0, LocalTime.of(0, 15));
+        trainRegistry.addDeparture(LocalTime.of(23,59), "L1", "Trondheim", 3, 4, LocalTime.of(2, 0));
+    }
+
+    @Test
+    void testSaveAndLoad() throws IOException {
+        Path file = tempDir.resolve("registry.snapshot");
+        trainRegistry.saveSnapshot(file);
+
+        TrainRegistry loaded = new TrainRegistry();
+        loaded.loadSnapshot(file);
+        assertEquals(3, loaded.getTrainDepartures().size());
+        for (TrainDeparture expected : trainRegistry.getTrainDepartures()) {
+            TrainDeparture actual = loaded.departureFromNumber(expected.getTrainNumber());
+            assertEquals(expected.toString(), actual.toString());
+        }
+        assertTrue(loaded.checkDepartureTimeExistsLine("L1", LocalTime.of(23, 59)));
+        assertEquals(2, loaded.departureFromDestination("Trondheim").size());
+    }
+
+    @Test
+    void testSaveReplacesExistingSnapshot() throws IOException {
+        Path file = tempDir.resolve("registry.snapshot");
+        trainRegistry.saveSnapshot(file);
+        trainRegistry.cancelDeparture(2);
+        trainRegistry.saveSnapshot(file);
+
+        TrainRegistry loaded = new TrainRegistry();
+        loaded.loadSnapshot(file);
+        assertEquals(2, loaded.getTrainDepartures().size());
+        assertNull(loaded.departureFromNumber(2));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testLoadRejectsOtherFiles() throws IOException {
+        Path file = tempDir.resolve("not.snapshot");
+        Files.writeString(file, "DepartureTime (HH:mm), Line, Destination");
+        assertThrows(IOException.class, () -> trainRegistry.loadSnapshot(file));
+    }
+
+    @Test
+    void testLoadRejectsTruncatedFile() throws IOException {
+        Path file = tempDir.resolve("registry.snapshot");
+        trainRegistry.saveSnapshot(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        assertThrows(IOException.class, () -> new TrainRegistry().loadSnapshot(file));
+    }
+
+    @Test
+    void testLoadRejectsCorruptRecord() throws IOException {
+        Path file = tempDir.resolve("registry.snapshot");
+        trainRegistry.saveSnapshot(file);
+        byte[] bytes = Files.readAllBytes(file);
+        int lastRecord = bytes.length - TimetableSnapshot.RECORD_SIZE;
+
+        byte[] badTrainNumber = bytes.clone();
+        ByteBuffer.wrap(badTrainNumber).putInt(lastRecord, 0);
+        byte[] badTime = bytes.clone();
+        ByteBuffer.wrap(badTime).putShort(lastRecord + 4, (short) 1500);
+        byte[] badLength = bytes.clone();
+        ByteBuffer.wrap(badLength).putInt(16, -1);
+
+        for (byte[] corrupt : List.of(badTrainNumber, badTime, badLength)) {
+            Files.write(file, corrupt);
+            TrainRegistry loaded = new TrainRegistry();
+            assertThrows(IOException.class, () -> loaded.loadSnapshot(file));
+            assertEquals(0, loaded.getTrainDepartures().size());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package edu.ntnu.stud;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackAllocatorTest {
+    private TrainRegistry trainRegistry;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new TrainRegistry();
+    }
+
+    private void add(int trainNumber, int hour, int minute, int track) {
+        trainRegistry.addDeparture(LocalTime.of(hour, minute), "L1", "Oslo", trainNumber, track,
+                LocalTime.of(0, 0));
+    }
+
+    private int conflicts(Duration dwellTime) {
+        return TrackConflicts.attach(trainRegistry, dwellTime, conflict -> { })
+                .conflicts().size();
+    }
+
+    @Test
+    void testAssignsUnassignedDepartures() {
+        add(1, 12, 0, 0);
+        add(2, 12, 2, 0);
+        add(3, 12, 10, 0);
+        TrackAllocator allocator = new TrackAllocator(trainRegistry, Duration.ofMinutes(5), 2);
+
+        TrackAllocator.Result result = allocator.allocate();
+
+        assertEquals(3, result.changed());
+        assertEquals(List.of(), result.unallocated());
+        assertEquals(1, trainRegistry.departureFromNumber(1).getTrack());
+        assertEquals(2, trainRegistry.departureFromNumber(2).getTrack());
+        assertEquals(1, trainRegistry.departureFromNumber(3).getTrack());
+    }
+
+    @Test
+    void testKeepsExistingTracksAndRespectsThem() {
+        add(1, 12, 0, 0);
+        add(2, 12, 3, 1);
+        TrackAllocator allocator = new TrackAllocator(trainRegistry, Duration.ofMinutes(5), 2);
+
+        allocator.allocate();
+
+        assertEquals(1, trainRegistry.departureFromNumber(2).getTrack());
+        assertEquals(2, trainRegistry.departureFromNumber(1).getTrack());
+    }
+
+    @Test
+    void testLeavesDeparturesWithoutRoomUnassigned() {
+        add(1, 12, 0, 1);
+        add(2, 12, 1, 0);
+        TrackAllocator allocator = new TrackAllocator(trainRegistry, Duration.ofMinutes(5), 1);
+
+        TrackAllocator.Result result = allocator.allocate();
+
+        assertEquals(List.of(2), result.unallocated());
+        assertEquals(-1, trainRegistry.departureFromNumber(2).getTrack());
+    }
+
+    @Test
+    void testReplansAfterDelay() {
+        add(1, 12, 0, 0);
+        add(2, 12, 10, 0);
+        TrackAllocator allocator = new TrackAllocator(trainRegistry, Duration.ofMinutes(5), 1);
+        allocator.allocate();
+        assertEquals(1, trainRegistry.departureFromNumber(1).getTrack());
+        assertEquals(1, trainRegistry.departureFromNumber(2).getTrack());
+
+        trainRegistry.addDelay(1, LocalTime.of(0, 8));
+        TrackAllocator.Result result = allocator.allocate();
+
+        assertEquals(List.of(2), result.unallocated());
+        assertEquals(1, trainRegistry.departureFromNumber(1).getTrack());
+        assertEquals(-1, trainRegistry.departureFromNumber(2).getTrack());
+    }
+
+    @Test
+    void testManualTrackIsKept() {
+        add(1, 12, 0, 0);
+        TrackAllocator allocator = new TrackAllocator(trainRegistry, Duration.ofMinutes(5), 3);
+        allocator.allocate();
+        trainRegistry.assignTrack(1, 3);
+
+        assertEquals(0, allocator.allocate().changed());
+        assertEquals(3, trainRegistry.departureFromNumber(1).getTrack());
+    }
+
+    @Test
+    void testRandomDayHasNoConflicts() {
+        Random random = new Random(3);
+        for (int i = 1; i <= 1000; i++) {
+            add(i, 1 + random.nextInt(23), random.nextInt(60), random.nextInt(10) == 0 ? 1 + random.nextInt(8) : 0);
+        }
+        int before = conflicts(Duration.ofMinutes(5));
+        TrackAllocator allocator = new TrackAllocator(trainRegistry, Duration.ofMinutes(5), 8);
+
+        TrackAllocator.Result result = allocator.allocate();
+
+        assertEquals(before, conflicts(Duration.ofMinutes(5)));
+        for (int trainNumber : result.unallocated()) {
+            assertEquals(-1, trainRegistry.departureFromNumber(trainNumber).getTrack());
+        }
+    }
+
+    @Test
+    void testUsesAllTracksWhenNothingIsReserved() {
+        // 4 departures always overlap at most 4 at a time, so 4 tracks are enough
+        for (int i = 1; i <= 40; i++) {
+            add(i, 10, i, 0);
+        }
+        TrackAllocator allocator = new TrackAllocator(trainRegistry, Duration.ofMinutes(4), 4);
+
+        assertEquals(List.of(), allocator.allocate().unallocated());
+        assertEquals(0, conflicts(Duration.ofMinutes(4)));
+    }
+
+    @Test
+    void testInvalidArgumentsThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TrackAllocator(trainRegistry, Duration.ofMinutes(5), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TrackAllocator(trainRegistry, Duration.ofHours(24), 1));
+    }
+}
@@ -0,0 +1,126 @@
+package edu.ntnu.stud;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackConflictsTest {
+    private TrainRegistry trainRegistry;
+    private List<TrackConflicts.Conflict> reported;
+    private TrackConflicts trackConflicts;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new TrainRegistry();
+        trainRegistry.addDeparture(LocalTime.of(12, 0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(12, 10), "L2", "Stavanger", 2, 1, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(12, 3), "L3", "Bergen", 3, 2, LocalTime.of(0, 0));
+        reported = new ArrayList<>();
+        trackConflicts = TrackConflicts.attach(trainRegistry, Duration.ofMinutes(5), reported::add);
+    }
+
+    @Test
+    void testNoConflictsWhenApart() {
+        assertEquals(List.of(), trackConflicts.conflicts());
+        assertEquals(List.of(), trackConflicts.conflictsOf(1));
+    }
+
+    @Test
+    void testDelayCausesConflict() {
+        trainRegistry.addDelay(1, LocalTime.of(0, 6));
+
+        assertEquals(1, reported.size());
+        assertEquals(1, reported.get(0).track());
+        assertEquals(1, reported.get(0).departure().getTrainNumber());
+        assertEquals(2, reported.get(0).other().getTrainNumber());
+        assertEquals(1, trackConflicts.conflicts().size());
+        assertEquals(1, trackConflicts.conflictsOf(2).size());
+    }
+
+    @Test
+    void testExistingConflictIsNotReportedAgain() {
+        trainRegistry.addDelay(1, LocalTime.of(0, 6));
+        trainRegistry.addDelay(1, LocalTime.of(0, 7));
+        trainRegistry.addDelay(2, LocalTime.of(0, 1));
+        trainRegistry.addDeparture(LocalTime.of(14, 0), "L5", "Oslo", 5, 1, LocalTime.of(0, 0));
+        assertEquals(1, reported.size());
+        assertEquals(1, trackConflicts.conflicts().size());
+
+        trainRegistry.addDeparture(LocalTime.of(12, 9), "L6", "Oslo", 6, 1, LocalTime.of(0, 0));
+        assertEquals(3, reported.size());
+        assertEquals(6, reported.get(1).departure().getTrainNumber());
+        assertEquals(6, reported.get(2).departure().getTrainNumber());
+    }
+
+    @Test
+    void testExactlyDwellTimeApartIsNoConflict() {
+        trainRegistry.addDelay(1, LocalTime.of(0, 5));
+        assertEquals(List.of(), reported);
+    }
+
+    @Test
+    void testAssignTrackMovesOccupancy() {
+        trainRegistry.assignTrack(3, 1);
+        assertEquals(1, reported.size());
+        assertEquals(1, reported.get(0).other().getTrainNumber());
+
+        trainRegistry.assignTrack(3, 2);
+        assertEquals(List.of(), trackConflicts.conflicts());
+    }
+
+    @Test
+    void testRemovedDeparturesAreNotInConflict() {
+        trainRegistry.addDelay(1, LocalTime.of(0, 8));
+        trainRegistry.cancelDeparture(2);
+        assertEquals(List.of(), trackConflicts.conflicts());
+        trackConflicts.detach();
+        trainRegistry.assignTrack(3, 1);
+        assertEquals(1, reported.size());
+    }
+
+    @Test
+    void testBulkLoadIsReloaded() {
+        trainRegistry.loadDepartures(Stream.of(
+                new TrainDeparture(LocalTime.of(12, 2), "L4", "Oslo", 4, 2, LocalTime.of(0, 0))));
+        assertEquals(1, trackConflicts.conflicts().size());
+        assertEquals(4, trackConflicts.conflictsOf(3).get(0).other().getTrainNumber());
+    }
+
+    @Test
+    void testMatchesPairwiseCheck() {
+        Random random = new Random(7);
+        for (int i = 10; i < 300; i++) {
+            trainRegistry.addDeparture(LocalTime.of(1 + random.nextInt(23), random.nextInt(60)),
+                    "L1", "Oslo", i, random.nextInt(6), LocalTime.of(0, 0));
+            if (i % 3 == 0) {
+                trainRegistry.addDelay(10 + random.nextInt(i - 9), LocalTime.of(0, 1 + random.nextInt(20)));
+            }
+        }
+        List<TrainDeparture> departures = trainRegistry.getTrainDepartures();
+        int expected = 0;
+        for (int i = 0; i < departures.size(); i++) {
+            for (int j = i + 1; j < departures.size(); j++) {
+                TrainDeparture first = departures.get(i);
+                TrainDeparture second = departures.get(j);
+                int apart = Math.abs(first.getDepartureTimeWithDelay().toSecondOfDay()
+                        - second.getDepartureTimeWithDelay().toSecondOfDay());
+                if (first.getTrack() >= 0 && first.getTrack() == second.getTrack() && apart < 300) {
+                    expected++;
+                }
+            }
+        }
+        assertEquals(expected, trackConflicts.conflicts().size());
+    }
+
+    @Test
+    void testInvalidDwellTimeThrows() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TrackConflicts.attach(trainRegistry, Duration.ZERO, reported::add));
+    }
+}
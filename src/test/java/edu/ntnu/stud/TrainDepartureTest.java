@@ -118,4 +118,42 @@ class TrainDepartureTest {
         assertEquals(LocalTime.of(1, 0), trainDeparture.getDepartureTimeWithDelay());
     }
 
+    @Test
+    void testToString() {
+        assertEquals("|     12:00      |    L1    |         1           | Trondheim       "
+                + "|            |            | \n", trainDeparture.toString());
+        trainDeparture.setTrack(3);
+        trainDeparture.setDelay(LocalTime.of(0, 5));
+        assertEquals("| 12:00(+00:05)  |    L1    |         1           | Trondheim       "
+                + "| 00:05      |      3     | \n", trainDeparture.toString());
+    }
+
+    @Test
+    void testToStringIsCachedUntilChanged() {
+        String row = trainDeparture.toString();
+        assertSame(row, trainDeparture.toString());
+        trainDeparture.setTrack(2);
+        String rowWithTrack = trainDeparture.toString();
+        assertNotEquals(row, rowWithTrack);
+        assertSame(rowWithTrack, trainDeparture.toString());
+        trainDeparture.setDelay(LocalTime.of(0, 10));
+        assertNotEquals(rowWithTrack, trainDeparture.toString());
+    }
+
+    @Test
+    void testAppendRow() {
+        StringBuilder rows = new StringBuilder();
+        trainDeparture.appendRow(rows);
+        trainDeparture.appendRow(rows);
+        assertEquals(trainDeparture.toString() + trainDeparture, rows.toString());
+    }
+
+    @Test
+    void testTimesWithSecondsAreRejected() {
+        assertThrows(DateTimeException.class, () ->
+                new TrainDeparture(LocalTime.of(12, 0, 30), "L1", "Trondheim", 1, 0, LocalTime.of(0, 0)));
+        assertThrows(DateTimeException.class, () ->
+                new TrainDeparture(LocalTime.of(12, 0), "L1", "Trondheim", 1, 0, LocalTime.of(0, 5, 0, 1)));
+    }
+
 }
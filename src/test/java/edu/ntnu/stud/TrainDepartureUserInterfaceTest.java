@@ -0,0 +1,52 @@
+package edu.ntnu.stud;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainDepartureUserInterfaceTest {
+    private final PrintStream originalOut = System.out;
+    private ByteArrayOutputStream output;
+    private TrainDepartureUserInterface userInterface;
+
+    @BeforeEach
+    void setUp() {
+        output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        userInterface = new TrainDepartureUserInterface();
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void testPrintEmptyBoard() {
+        String header = userInterface.tableHeader();
+        userInterface.printAnyDepartures(List.of());
+        assertEquals(header + System.lineSeparator() + System.lineSeparator(),
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testPrintBoard() {
+        List<TrainDeparture> departures = List.of(
+                new TrainDeparture(LocalTime.of(12, 0), "L1", "Bodø", 1, 1, LocalTime.of(0, 0)),
+                new TrainDeparture(LocalTime.of(13, 0), "L2", "Oslo", 2, 0, LocalTime.of(0, 5)));
+        String header = userInterface.tableHeader();
+        userInterface.printAnyDepartures(departures);
+        String rows = departures.stream()
+                .map(trainDeparture -> trainDeparture.toString() + TrainDepartureUserInterface.TABLE_LINE)
+                .collect(Collectors.joining("\n"));
+        assertEquals(header + System.lineSeparator() + rows + "\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -1,6 +1,11 @@
 package edu.ntnu.stud;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.DateTimeException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.time.LocalTime;
@@ -82,4 +87,179 @@ class TrainRegistryTest {
         assertFalse(trainRegistry.checkDepartureTimeExistsLine("L1", LocalTime.of(10, 0)));
     }
 
+    @Test
+    void testDeparturesStayOrderedOnAdd(){
+        trainRegistry.addDeparture(LocalTime.of(11,0), "L3", "Bergen", 3, 3, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(11,0), "L4", "Oslo", 4, 4, LocalTime.of(0, 0));
+        List<TrainDeparture> departures = trainRegistry.getTrainDepartures();
+        assertEquals(4, departures.size());
+        assertEquals(2, departures.get(0).getTrainNumber());
+        assertEquals(3, departures.get(1).getTrainNumber());
+        assertEquals(4, departures.get(2).getTrainNumber());
+        assertEquals(1, departures.get(3).getTrainNumber());
+    }
+
+    @Test
+    void testAddDepartureReplacesSameTrainNumber(){
+        trainRegistry.addDeparture(LocalTime.of(9,0), "L1", "Bodø", 1, 1, LocalTime.of(0, 0));
+        assertEquals(2, trainRegistry.getTrainDepartures().size());
+        assertEquals("Bodø", trainRegistry.getTrainDepartures().get(0).getDestination());
+    }
+
+    @Test
+    void testGetTrainDeparturesIsReadOnly(){
+        assertThrows(UnsupportedOperationException.class, () -> trainRegistry.getTrainDepartures().clear());
+    }
+
+    @Test
+    void testLoadDeparturesFromReader() throws IOException {
+        String data = "DepartureTime (HH:mm), Line, Destination, TrainNumber, Track, Delay(HH:mm)\n"
+                + "13:00, A1, Oslo, 3, 0, 00:00\n"
+                + "\n"
+                + "09:30,F1,Bergen,4,5,00:10\n"
+                + "11:00,F2,Bodø,3,6,00:00\n";
+        trainRegistry.loadDepartures(new StringReader(data));
+        List<TrainDeparture> departures = trainRegistry.getTrainDepartures();
+        assertEquals(4, departures.size());
+        assertEquals(4, departures.get(0).getTrainNumber());
+        assertEquals(2, departures.get(1).getTrainNumber());
+        assertEquals(3, departures.get(2).getTrainNumber());
+        assertEquals("Bodø", trainRegistry.departureFromNumber(3).getDestination());
+    }
+
+    @Test
+    void testLoadDeparturesFromStream() {
+        trainRegistry.loadDepartures(Stream.of(
+                new TrainDeparture(LocalTime.of(8, 0), "L3", "Oslo", 3, 1, LocalTime.of(0, 0)),
+                new TrainDeparture(LocalTime.of(7, 0), "L4", "Bergen", 4, LocalTime.of(0, 0))));
+        assertEquals(4, trainRegistry.getNumberToDepartureMap().size());
+        assertEquals(4, trainRegistry.getTrainDepartures().get(0).getTrainNumber());
+        assertEquals(1, trainRegistry.getTrainDepartures().get(3).getTrainNumber());
+    }
+
+    @Test
+    void testAssignTrackUpdatesTrackIndex(){
+        trainRegistry.assignTrack(1, 2);
+        assertFalse(trainRegistry.checkDepartureTimeExistsTrack(1, LocalTime.of(12, 0)));
+        assertTrue(trainRegistry.checkDepartureTimeExistsTrack(2, LocalTime.of(12, 0)));
+        assertEquals(List.of(LocalTime.of(10, 0), LocalTime.of(12, 0)), trainRegistry.departureTimesFromTrack(2));
+    }
+
+    @Test
+    void testRemoveDepartedUpdatesTrackIndex(){
+        trainRegistry.setCurrentTime(LocalTime.of(11, 0));
+        trainRegistry.removeDeparted();
+        assertTrue(trainRegistry.departuresFromTrack(2).isEmpty());
+        assertEquals(1, trainRegistry.departuresFromTrack(1).size());
+    }
+
+    @Test
+    void testLineIndexIgnoresCase(){
+        trainRegistry.addDeparture(LocalTime.of(8,0), "l1", "Bergen", 3, 3, LocalTime.of(0, 0));
+        assertTrue(trainRegistry.checkDepartureTimeExistsLine("l1", LocalTime.of(12, 0)));
+        assertEquals(List.of(LocalTime.of(8, 0), LocalTime.of(12, 0)), trainRegistry.departureTimesFromLine("L1"));
+        assertEquals(2, trainRegistry.departuresFromLine("L1").size());
+    }
+
+    @Test
+    void testRemoveDepartedUpdatesLineIndex(){
+        trainRegistry.setCurrentTime(LocalTime.of(12, 30));
+        trainRegistry.removeDeparted();
+        assertFalse(trainRegistry.checkDepartureTimeExistsLine("L1", LocalTime.of(12, 0)));
+        assertTrue(trainRegistry.departuresFromLine("L1").isEmpty());
+    }
+
+    @Test
+    void testDepartureFromDestinationIgnoresCase(){
+        trainRegistry.addDeparture(LocalTime.of(8,0), "L3", "trondheim", 3, 3, LocalTime.of(0, 0));
+        List<TrainDeparture> foundDepartures = trainRegistry.departureFromDestination("TRONDHEIM");
+        assertEquals(2, foundDepartures.size());
+        assertEquals(3, foundDepartures.get(0).getTrainNumber());
+        assertEquals(1, foundDepartures.get(1).getTrainNumber());
+        assertThrows(UnsupportedOperationException.class, foundDepartures::clear);
+    }
+
+    @Test
+    void testDepartureFromDestinationAfterRemoveDeparted(){
+        trainRegistry.setCurrentTime(LocalTime.of(12, 30));
+        trainRegistry.removeDeparted();
+        assertNull(trainRegistry.departureFromDestination("Trondheim"));
+    }
+
+    @Test
+    void testRemoveDepartedUsesDelay(){
+        trainRegistry.addDelay(2, LocalTime.of(3, 0));
+        trainRegistry.setCurrentTime(LocalTime.of(12, 30));
+        trainRegistry.removeDeparted();
+        assertEquals(1, trainRegistry.getTrainDepartures().size());
+        assertEquals(2, trainRegistry.getTrainDepartures().get(0).getTrainNumber());
+        trainRegistry.setCurrentTime(LocalTime.of(13, 1));
+        trainRegistry.removeDeparted();
+        assertEquals(0, trainRegistry.getNumberToDepartureMap().size());
+    }
+
+    @Test
+    void testAddDelayInvalidKeepsDeparture(){
+        assertThrows(DateTimeException.class, () -> trainRegistry.addDelay(1, LocalTime.of(0, 0)));
+        trainRegistry.setCurrentTime(LocalTime.of(12, 30));
+        trainRegistry.removeDeparted();
+        assertEquals(0, trainRegistry.getNumberToDepartureMap().size());
+    }
+
+    @Test
+    void testNextDepartures() {
+        trainRegistry.addDeparture(LocalTime.of(11,0), "L3", "Bergen", 3, 0, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(11,0), "L3", "Bergen", 4, 0, LocalTime.of(0, 0));
+
+        assertEquals(List.of(3, 4), trainNumbers(trainRegistry.nextDepartures(LocalTime.of(10, 30), 2)));
+        assertEquals(List.of(2, 3, 4, 1), trainNumbers(trainRegistry.nextDepartures(LocalTime.of(10, 0), 10)));
+        assertTrue(trainRegistry.nextDepartures(LocalTime.of(12, 1), 10).isEmpty());
+        assertTrue(trainRegistry.nextDepartures(LocalTime.of(9, 0), 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> trainRegistry.nextDepartures(LocalTime.of(9, 0), -1));
+    }
+
+    @Test
+    void testDeparturesBetween() {
+        assertEquals(List.of(2), trainNumbers(trainRegistry.departuresBetween(LocalTime.of(10, 0), LocalTime.of(12, 0))));
+        assertEquals(List.of(2, 1), trainNumbers(trainRegistry.departuresBetween(LocalTime.of(9, 0), LocalTime.of(12, 1))));
+        assertTrue(trainRegistry.departuresBetween(LocalTime.of(12, 0), LocalTime.of(10, 0)).isEmpty());
+    }
+
+    @Test
+    void testNextDeparturesWithDelay() {
+        trainRegistry.addDelay(2, LocalTime.of(2, 30));
+
+        assertEquals(List.of(1, 2), trainNumbers(trainRegistry.nextDeparturesWithDelay(LocalTime.of(10, 0), 5)));
+        assertEquals(List.of(2), trainNumbers(trainRegistry.nextDeparturesWithDelay(LocalTime.of(12, 1), 5)));
+        assertEquals(List.of(1), trainNumbers(trainRegistry.departuresWithDelayBetween(LocalTime.of(10, 0), LocalTime.of(12, 30))));
+        assertEquals(List.of(1, 2), trainNumbers(trainRegistry.departuresWithDelayBetween(LocalTime.of(12, 0), LocalTime.of(12, 31))));
+        assertTrue(trainRegistry.departuresWithDelayBetween(LocalTime.of(13, 0), LocalTime.of(12, 0)).isEmpty());
+    }
+
+    @Test
+    void testEventsHaveIncreasingSequenceNumbers() {
+        List<DepartureEvent> events = new ArrayList<>();
+        trainRegistry.subscribe(events::add);
+        trainRegistry.addDelay(1, LocalTime.of(0, 5));
+        trainRegistry.assignTrack(2, 3);
+        trainRegistry.applyBatch(new DepartureBatch()
+                .addDeparture(LocalTime.of(14, 0), "L3", "Bergen", 3, 1, LocalTime.of(0, 0))
+                .cancelDeparture(1));
+        trainRegistry.setCurrentTime(LocalTime.of(11, 0));
+        trainRegistry.removeDeparted();
+
+        assertEquals(List.of(DepartureEvent.Type.DELAYED, DepartureEvent.Type.TRACK_CHANGED,
+                DepartureEvent.Type.ADDED, DepartureEvent.Type.CANCELLED,
+                DepartureEvent.Type.DEPARTED), events.stream().map(DepartureEvent::type).toList());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).sequence());
+        }
+        assertEquals(LocalTime.of(0, 5), events.get(0).departure().getDelay());
+        assertEquals(2, events.get(4).departure().getTrainNumber());
+        assertEquals(5, trainRegistry.getEventSequence());
+    }
+
+    private static List<Integer> trainNumbers(List<TrainDeparture> departures) {
+        return departures.stream().map(TrainDeparture::getTrainNumber).toList();
+    }
 }
@@ -0,0 +1,137 @@
+package edu.ntnu.stud;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpdateIngesterTest {
+    private TrainRegistry trainRegistry;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        trainRegistry = new TrainRegistry();
+
+        trainRegistry.addDeparture(LocalTime.of(12,0), "L1", "Trondheim", 1, 1, LocalTime.of(0, 0));
+        trainRegistry.addDeparture(LocalTime.of(10,0), "L2", "Stavanger", 2, 2, LocalTime.of(0, 0));
+    }
+
+    @Test
+    void testParseUpdate() {
+        assertEquals(new DepartureBatch.Delay(1, LocalTime.of(0, 15)), UpdateIngester.parseUpdate("DELAY,1,00:15"));
+        assertEquals(new DepartureBatch.Track(1, 4), UpdateIngester.parseUpdate(" track, 1, 4 "));
+        assertEquals(new DepartureBatch.Cancel(2), UpdateIngester.parseUpdate("CANCEL,2"));
+        assertEquals(new DepartureBatch.Add(LocalTime.of(9, 30), "L3", "Oslo", 3, 5, LocalTime.of(0, 0)),
+                UpdateIngester.parseUpdate("ADD,09:30,L3,Oslo,3,5,00:00"));
+        assertNull(UpdateIngester.parseUpdate("  "));
+        assertNull(UpdateIngester.parseUpdate("# comment"));
+        assertThrows(IllegalArgumentException.class, () -> UpdateIngester.parseUpdate("DELAY,x,00:15"));
+        assertThrows(IllegalArgumentException.class, () -> UpdateIngester.parseUpdate("MOVE,1,2"));
+        assertThrows(IllegalArgumentException.class, () -> UpdateIngester.parseUpdate("DELAY"));
+        assertThrows(IllegalArgumentException.class, () -> UpdateIngester.parseUpdate("DELAY,1,00:00"));
+        assertThrows(IllegalArgumentException.class, () -> UpdateIngester.parseUpdate("TRACK,1,-2"));
+    }
+
+    @Test
+    void testCoalesce() {
+        DepartureBatch batch = UpdateIngester.coalesce(List.of(
+                new DepartureBatch.Delay(1, LocalTime.of(0, 5)),
+                new DepartureBatch.Track(2, 3),
+                new DepartureBatch.Delay(1, LocalTime.of(0, 10)),
+                new DepartureBatch.Track(1, 4),
+                new DepartureBatch.Cancel(2),
+                new DepartureBatch.Delay(1, LocalTime.of(0, 20))));
+
+        assertEquals(List.of(
+                new DepartureBatch.Track(1, 4),
+                new DepartureBatch.Delay(1, LocalTime.of(0, 20)),
+                new DepartureBatch.Cancel(2)), batch.mutations());
+    }
+
+    @Test
+    void testAddSource() throws IOException {
+        UpdateIngester ingester = new UpdateIngester(trainRegistry, 4, 2);
+        ingester.addSource(new StringReader("""
+                DELAY,1,00:05
+                TRACK,1,3
+                not an update
+                DELAY,99,00:05
+                ADD,09:30,L3,Oslo,3,5,00:00
+                CANCEL,2
+                DELAY,1,00:25"""));
+        ingester.close();
+
+        assertEquals(LocalTime.of(0, 25), trainRegistry.departureFromNumber(1).getDelay());
+        assertEquals(3, trainRegistry.departureFromNumber(1).getTrack());
+        assertEquals(List.of(LocalTime.of(9, 30)), trainRegistry.departureTimesFromTrack(5));
+        assertNull(trainRegistry.departureFromNumber(2));
+        assertEquals(1, ingester.getMalformedUpdates());
+        assertEquals(1, ingester.getRejectedUpdates());
+        assertTrue(ingester.getAppliedBatches() >= 3);
+        assertThrows(IllegalStateException.class, () -> ingester.addSource(new StringReader("")));
+    }
+
+    @Test
+    void testManySourcesWithBackpressure() throws IOException {
+        for (int i = 3; i <= 1000; i++) {
+            trainRegistry.addDeparture(LocalTime.of(1 + i % 23, i % 60), "L1", "Bergen", i, 0, LocalTime.of(0, 0));
+        }
+        UpdateIngester ingester = new UpdateIngester(trainRegistry, 16, 64);
+        for (int source = 0; source < 4; source++) {
+            StringBuilder updates = new StringBuilder();
+            for (int i = 1 + source; i <= 1000; i += 4) {
+                updates.append("TRACK,").append(i).append(",7\n");
+                updates.append("DELAY,").append(i).append(",00:01\n");
+                updates.append("DELAY,").append(i).append(",00:02\n");
+            }
+            ingester.addSource(new StringReader(updates.toString()));
+        }
+        ingester.close();
+
+        assertEquals(1000, trainRegistry.departuresFromTrack(7).size());
+        assertTrue(trainRegistry.getTrainDepartures().stream()
+                .allMatch(trainDeparture -> trainDeparture.getDelay().equals(LocalTime.of(0, 2))));
+        assertEquals(0, ingester.getRejectedUpdates());
+    }
+
+    @Test
+    void testTail() throws IOException, InterruptedException {
+        Path updates = tempDir.resolve("updates.txt");
+        Files.writeString(updates, "DELAY,1,00:05\nTRACK,2,");
+        UpdateIngester ingester = new UpdateIngester(trainRegistry);
+        ingester.tail(updates, Duration.ofMillis(5));
+        Thread.sleep(50);
+        Files.writeString(updates, "6\nCANCEL,1\n", StandardOpenOption.APPEND);
+        ingester.close();
+
+        assertNull(trainRegistry.departureFromNumber(1));
+        assertEquals(6, trainRegistry.departureFromNumber(2).getTrack());
+        assertEquals(0, ingester.getMalformedUpdates());
+    }
+
+    @Test
+    void testTailIgnoresUnterminatedLine() throws IOException, InterruptedException {
+        Path updates = tempDir.resolve("updates.txt");
+        Files.writeString(updates, "DELAY,1,00:05\nTRACK,2,6");
+        UpdateIngester ingester = new UpdateIngester(trainRegistry);
+        ingester.tail(updates, Duration.ofMillis(5));
+        Thread.sleep(50);
+        ingester.close();
+
+        assertEquals(LocalTime.of(0, 5), trainRegistry.departureFromNumber(1).getDelay());
+        assertEquals(2, trainRegistry.departureFromNumber(2).getTrack());
+        assertEquals(1, ingester.getAppliedUpdates());
+        assertEquals(0, ingester.getMalformedUpdates());
+    }
+}